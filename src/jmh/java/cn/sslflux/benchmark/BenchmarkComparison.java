@@ -0,0 +1,86 @@
+package cn.sslflux.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 基准结果对比
+ * 读取两份JMH JSON结果（-rf json），按 基准方法+参数 对齐后输出平均耗时变化；
+ * 任一基准耗时增加超过阈值时以非零状态退出，便于在CI中发现每个域名CPU开销的退化
+ * @date 2025/3/29 16:30
+ */
+public class BenchmarkComparison {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * @param args 当前结果文件、退化阈值（百分比）、基线结果文件（可省略）
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args[2].isBlank()) {
+            System.out.println("未指定基线结果（-Djmh.baseline），跳过对比");
+            return;
+        }
+        Map<String, Score> current = load(new File(args[0]));
+        double threshold = Double.parseDouble(args[1]);
+        Map<String, Score> baseline = load(new File(args[2]));
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, Score> entry : new TreeMap<>(current).entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null || !before.unit().equals(now.unit())) {
+                System.out.printf("%-70s %14s %14s %9s%n", entry.getKey(), "-", now, "new");
+                continue;
+            }
+            double change = (now.value() - before.value()) / before.value() * 100;
+            // 平均耗时越大越差；结果误差范围重叠时不算退化
+            boolean regressed = change > threshold && now.value() - now.error() > before.value() + before.error();
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14s %14s %+8.1f%%%s%n", entry.getKey(), before, now, change,
+                    regressed ? "  <-- 退化" : "");
+        }
+        if (regressions > 0) {
+            System.out.printf("%d 项基准耗时增加超过 %.0f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> load(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : MAPPER.readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText()
+                    .replace("cn.sslflux.benchmark.", ""));
+            JsonNode params = run.path("params");
+            for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = it.next();
+                key.append(key.indexOf(":") < 0 ? ":" : ",").append(param.getKey()).append('=')
+                        .append(param.getValue().asText());
+            }
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(key.toString(), new Score(metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+
+    private record Score(double value, double error, String unit) {
+        @Override
+        public String toString() {
+            return String.format("%.3f %s", value, unit);
+        }
+    }
+}
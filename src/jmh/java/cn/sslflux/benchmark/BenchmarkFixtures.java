@@ -0,0 +1,93 @@
+package cn.sslflux.benchmark;
+
+import cn.sslflux.Utils.CertUtils;
+import cn.sslflux.Utils.CryptoServices;
+import cn.sslflux.certManager.model.KeyAlgorithm;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 基准测试数据
+ * 证书链为 叶子 + 中间 + 根 三级，叶子证书带多个SAN，与CA签发的续期证书结构一致
+ * @date 2025/3/29 15:10
+ */
+final class BenchmarkFixtures {
+
+    // 单张多SAN证书包含的域名数
+    static final int SAN_COUNT = 10;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 多SAN证书包含的域名
+     */
+    static List<String> sanDomains() {
+        List<String> domains = new ArrayList<>(SAN_COUNT);
+        domains.add("example.com.cn");
+        for (int i = 1; i < SAN_COUNT; i++) {
+            domains.add("cdn" + i + ".example.com.cn");
+        }
+        return domains;
+    }
+
+    /**
+     * 生成三级证书链，叶子证书使用给定密钥
+     */
+    static List<X509Certificate> chain(KeyAlgorithm algorithm, KeyPair leafKey) throws Exception {
+        KeyPair rootKey = algorithm.generate();
+        KeyPair intermediateKey = algorithm.generate();
+        X500Name rootName = new X500Name("CN=SSLFlux Bench Root");
+        X500Name intermediateName = new X500Name("CN=SSLFlux Bench Intermediate");
+        X509Certificate root = sign(rootName, rootName, rootKey, rootKey, algorithm, null);
+        X509Certificate intermediate = sign(rootName, intermediateName, intermediateKey, rootKey, algorithm, null);
+        X509Certificate leaf = sign(intermediateName, new X500Name("CN=example.com.cn"), leafKey, intermediateKey,
+                algorithm, sanDomains());
+        return List.of(leaf, intermediate, root);
+    }
+
+    /**
+     * 证书PEM去掉换行后的单行形式，模拟CDN接口返回的证书内容
+     */
+    static String flatten(String pem) {
+        return pem.replace("\r", "").replace("\n", "");
+    }
+
+    static String leafPem(List<X509Certificate> chain) throws Exception {
+        return CertUtils.generateFullChainPem(List.of(chain.get(0)));
+    }
+
+    private static X509Certificate sign(X500Name issuer, X500Name subject, KeyPair subjectKey, KeyPair issuerKey,
+                                        KeyAlgorithm algorithm, List<String> sans) throws Exception {
+        long now = System.currentTimeMillis();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                issuer,
+                BigInteger.valueOf(now),
+                new Date(now - 3_600_000L),
+                new Date(now + 90L * 24 * 3_600_000L),
+                subject,
+                subjectKey.getPublic());
+        if (sans != null) {
+            GeneralName[] names = sans.stream()
+                    .map(domain -> new GeneralName(GeneralName.dNSName, domain))
+                    .toArray(GeneralName[]::new);
+            builder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(names));
+        }
+        String signatureAlgorithm = algorithm.name().startsWith("EC") ? "SHA256withECDSA" : "SHA256withRSA";
+        return CryptoServices.parseCertificate(
+                builder.build(new JcaContentSignerBuilder(signatureAlgorithm).build(issuerKey.getPrivate())).getEncoded());
+    }
+}
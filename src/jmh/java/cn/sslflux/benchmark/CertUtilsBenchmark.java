@@ -0,0 +1,116 @@
+package cn.sslflux.benchmark;
+
+import cn.sslflux.Utils.CertUtils;
+import cn.sslflux.Utils.PemCodec;
+import cn.sslflux.certManager.model.KeyAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 证书与私钥PEM处理基准
+ * 覆盖证书保存、部署前校验时每个域名都会经过的编码、解析与匹配校验
+ * @date 2025/3/29 15:30
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CertUtilsBenchmark {
+
+    @Param({"RSA_2048", "EC_P256"})
+    private KeyAlgorithm algorithm;
+
+    private List<X509Certificate> chain;
+    private PrivateKey privateKey;
+    private String leafPem;
+    private String flatLeafPem;
+    private String base64;
+    private String privateKeyPem;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPair keyPair = algorithm.generate();
+        chain = BenchmarkFixtures.chain(algorithm, keyPair);
+        privateKey = keyPair.getPrivate();
+        leafPem = BenchmarkFixtures.leafPem(chain);
+        flatLeafPem = BenchmarkFixtures.flatten(leafPem);
+        base64 = flatLeafPem
+                .replace("-----BEGIN CERTIFICATE-----", "")
+                .replace("-----END CERTIFICATE-----", "");
+        privateKeyPem = CertUtils.generatePrivateKeyPem(privateKey);
+    }
+
+    /**
+     * 不经缓存生成证书链PEM字符串，与引入缓存前的结果可直接对比
+     */
+    @Benchmark
+    public String generateFullChainPem() throws Exception {
+        return new String(PemCodec.encodeChain(chain), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 命中证书链缓存，对应保存后部署同一证书链的场景
+     */
+    @Benchmark
+    public String generateFullChainPemCached() throws Exception {
+        return CertUtils.generateFullChainPem(chain);
+    }
+
+    /**
+     * 不经缓存的证书链编码
+     */
+    @Benchmark
+    public byte[] encodeChain() throws Exception {
+        return PemCodec.encodeChain(chain);
+    }
+
+    @Benchmark
+    public String generatePrivateKeyPem() throws Exception {
+        return CertUtils.generatePrivateKeyPem(privateKey);
+    }
+
+    @Benchmark
+    public String normalizeCert() {
+        return CertUtils.normalizeCert(flatLeafPem);
+    }
+
+    @Benchmark
+    public String chunkText() {
+        return CertUtils.chunkText(base64, 64);
+    }
+
+    @Benchmark
+    public X509Certificate parseCertificate() throws Exception {
+        return CertUtils.parseCertificate(leafPem);
+    }
+
+    @Benchmark
+    public PrivateKey parsePrivateKey() throws Exception {
+        return CertUtils.parsePrivateKey(privateKeyPem);
+    }
+
+    @Benchmark
+    public boolean validateKeyPair() {
+        return CertUtils.validateKeyPair(leafPem, privateKeyPem);
+    }
+}
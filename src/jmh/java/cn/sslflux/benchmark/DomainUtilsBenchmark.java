@@ -0,0 +1,70 @@
+package cn.sslflux.benchmark;
+
+import cn.sslflux.Utils.DomainUtils;
+import cn.sslflux.Utils.PublicSuffixList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 根域名提取基准
+ * 分别测量命中LRU缓存的调用与直接查询公共后缀前缀树的开销
+ * @date 2025/3/29 16:05
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainUtilsBenchmark {
+
+    private static final String[] HOSTS = {
+            "www.example.com",
+            "shop.example.com.cn",
+            "static.cdn.example.co.uk",
+            "img.example.com",
+            "a.b.c.example.org",
+            "example.cn",
+            "www.city.kawasaki.jp",
+            "api.service.example.net",
+    };
+
+    private final PublicSuffixList suffixList = PublicSuffixList.getDefault();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // 预热缓存，cachedRootDomain 只测量命中路径
+        for (String host : HOSTS) {
+            DomainUtils.extractRootDomain(host);
+        }
+    }
+
+    @Benchmark
+    public String cachedRootDomain() {
+        return DomainUtils.extractRootDomain(nextHost());
+    }
+
+    @Benchmark
+    public String registrableDomain() {
+        return suffixList.registrableDomain(nextHost());
+    }
+
+    private String nextHost() {
+        String host = HOSTS[next];
+        next = (next + 1) % HOSTS.length;
+        return host;
+    }
+}
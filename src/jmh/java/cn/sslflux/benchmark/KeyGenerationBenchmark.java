@@ -0,0 +1,60 @@
+package cn.sslflux.benchmark;
+
+import cn.sslflux.acmeClient.core.AcmeCoreClient;
+import cn.sslflux.certManager.model.KeyAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 密钥生成与CSR签名基准
+ * RSA密钥生成耗时波动大，迭代时间适当放长
+ * @date 2025/3/29 15:50
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyGenerationBenchmark {
+
+    @Param({"RSA_2048", "RSA_3072", "RSA_4096", "EC_P256", "EC_P384"})
+    private KeyAlgorithm algorithm;
+
+    private KeyPair keyPair;
+    private List<String> domains;
+
+    @Setup
+    public void setUp() {
+        keyPair = algorithm.generate();
+        domains = BenchmarkFixtures.sanDomains();
+    }
+
+    @Benchmark
+    public KeyPair generateKeyPair() {
+        return algorithm.generate();
+    }
+
+    /**
+     * 与 AcmeCoreClient.finalizeOrder 相同的多SAN CSR构建与签名
+     */
+    @Benchmark
+    public byte[] buildCsr() throws Exception {
+        return AcmeCoreClient.buildCsr(domains, keyPair);
+    }
+}
@@ -0,0 +1,504 @@
+package cn.sslflux.loadtest;
+
+import cn.sslflux.Utils.CryptoServices;
+import cn.sslflux.Utils.PemCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.jose4j.jwk.JsonWebKey;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 进程内ACME服务（RFC 8555 子集），用于压测时替代 Let's Encrypt
+ * 1. 支持目录、Nonce、账户、订单、授权、dns-01挑战、完成订单与证书下载，不校验JWS签名
+ * 2. 挑战触发后经过验证延迟再判定，判定逻辑由调用方提供（如检查假DNS中的TXT记录）
+ * 3. 可按比例注入下单限流（rateLimited）与挑战失败，证书由内存中的CA签发
+ * @date 2025/3/30 10:20
+ */
+@Slf4j
+public class AcmeStandInServer implements AutoCloseable {
+
+    private static final String ERROR_PREFIX = "urn:ietf:params:acme:error:";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Base64.Encoder B64URL = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64URL_DECODER = Base64.getUrlDecoder();
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService httpExecutor;
+    private final ScheduledExecutorService validator;
+    private final String baseUrl;
+    private final KeyPair caKey;
+    private final X509Certificate caCert;
+    private final String caPem;
+
+    private final Set<String> nonces = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> accountThumbprints = new ConcurrentHashMap<>();
+    private final Map<String, OrderState> orders = new ConcurrentHashMap<>();
+    private final Map<String, AuthzState> authorizations = new ConcurrentHashMap<>();
+    private final Map<String, String> certificates = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicInteger issued = new AtomicInteger();
+    private final AtomicInteger rateLimited = new AtomicInteger();
+
+    // 挑战判定：(待验证域名, 期望的TXT记录值) -> 是否通过
+    private volatile BiPredicate<String, String> dnsValidator = (domain, digest) -> true;
+
+    /**
+     * 服务参数
+     */
+    public record Options(
+            // 挑战触发到判定完成的耗时
+            Duration validationDelay,
+            // 完成订单（签发证书）的耗时
+            Duration finalizeDelay,
+            // 下单被限流的比例
+            double orderRateLimitRate,
+            // 挑战判定失败的比例（在判定逻辑之外额外注入）
+            double challengeFailureRate,
+            int httpThreads) {
+
+        public static Options defaults() {
+            return new Options(Duration.ofMillis(200), Duration.ofMillis(100), 0, 0, 32);
+        }
+    }
+
+    public AcmeStandInServer(Options options) throws Exception {
+        this.options = options;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        this.baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/acme";
+        this.httpExecutor = Executors.newFixedThreadPool(options.httpThreads(), daemon("acme-standin-http"));
+        this.validator = Executors.newScheduledThreadPool(2, daemon("acme-standin-validate"));
+        this.caKey = CryptoServices.generateEcKeyPair("secp256r1");
+        X500Name caName = new X500Name("CN=SSLFlux Stand-in CA");
+        this.caCert = CryptoServices.parseCertificate(new JcaX509v3CertificateBuilder(
+                caName, BigInteger.ONE, new Date(), Date.from(Instant.now().plus(Duration.ofDays(3650))),
+                caName, caKey.getPublic()).build(new JcaContentSignerBuilder("SHA256withECDSA").build(caKey.getPrivate()))
+                .getEncoded());
+        this.caPem = pem(caCert.getEncoded());
+        server.setExecutor(httpExecutor);
+        server.createContext("/acme", this::handle);
+    }
+
+    public AcmeStandInServer start() {
+        server.start();
+        log.info("ACME替身服务已启动 [Directory: {}]", directoryUrl());
+        return this;
+    }
+
+    public String directoryUrl() {
+        return baseUrl + "/directory";
+    }
+
+    /**
+     * 设置挑战判定逻辑
+     */
+    public void setDnsValidator(BiPredicate<String, String> dnsValidator) {
+        this.dnsValidator = dnsValidator;
+    }
+
+    public int issuedCount() {
+        return issued.get();
+    }
+
+    public int rateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        httpExecutor.shutdownNow();
+        validator.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath().substring("/acme".length());
+            String method = exchange.getRequestMethod();
+            if (path.equals("/directory")) {
+                directory(exchange);
+            } else if (path.equals("/new-nonce")) {
+                exchange.getResponseHeaders().add("Replay-Nonce", newNonce());
+                exchange.getResponseHeaders().add("Cache-Control", "no-store");
+                exchange.sendResponseHeaders("HEAD".equals(method) ? 200 : 204, -1);
+            } else if ("POST".equals(method)) {
+                post(exchange, path);
+            } else {
+                problem(exchange, 405, "malformed", "不支持的请求方法: " + method);
+            }
+        } catch (Exception ex) {
+            log.warn("ACME替身请求处理失败 [Path: {}]", exchange.getRequestURI(), ex);
+            problem(exchange, 500, "serverInternal", String.valueOf(ex.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void directory(HttpExchange exchange) throws IOException {
+        ObjectNode dir = MAPPER.createObjectNode();
+        dir.put("newNonce", baseUrl + "/new-nonce");
+        dir.put("newAccount", baseUrl + "/new-account");
+        dir.put("newOrder", baseUrl + "/new-order");
+        dir.put("revokeCert", baseUrl + "/revoke-cert");
+        dir.put("keyChange", baseUrl + "/key-change");
+        dir.putObject("meta").put("termsOfService", baseUrl + "/terms");
+        json(exchange, 200, dir, null);
+    }
+
+    private void post(HttpExchange exchange, String path) throws Exception {
+        JsonNode jws = MAPPER.readTree(exchange.getRequestBody());
+        JsonNode header = MAPPER.readTree(B64URL_DECODER.decode(jws.path("protected").asText()));
+        if (!nonces.remove(header.path("nonce").asText())) {
+            problem(exchange, 400, "badNonce", "Nonce无效或已使用");
+            return;
+        }
+        String encodedPayload = jws.path("payload").asText();
+        JsonNode payload = encodedPayload.isEmpty() ? null : MAPPER.readTree(B64URL_DECODER.decode(encodedPayload));
+        String account = header.hasNonNull("kid") ? header.get("kid").asText() : null;
+
+        if (path.equals("/new-account")) {
+            newAccount(exchange, header);
+        } else if (path.equals("/new-order")) {
+            newOrder(exchange, account, payload);
+        } else if (path.startsWith("/order/")) {
+            OrderState order = orders.get(path.substring("/order/".length()));
+            if (order == null) {
+                problem(exchange, 404, "malformed", "订单不存在");
+                return;
+            }
+            json(exchange, 200, order.toJson(), null);
+        } else if (path.startsWith("/authz/")) {
+            AuthzState authz = authorizations.get(path.substring("/authz/".length()));
+            if (authz == null) {
+                problem(exchange, 404, "malformed", "授权不存在");
+                return;
+            }
+            json(exchange, 200, authz.toJson(), null);
+        } else if (path.startsWith("/chall/")) {
+            challenge(exchange, path.substring("/chall/".length()), payload);
+        } else if (path.startsWith("/finalize/")) {
+            finalizeOrder(exchange, path.substring("/finalize/".length()), payload);
+        } else if (path.startsWith("/cert/")) {
+            String chain = certificates.get(path.substring("/cert/".length()));
+            if (chain == null) {
+                problem(exchange, 404, "malformed", "证书不存在");
+                return;
+            }
+            send(exchange, 200, "application/pem-certificate-chain", chain.getBytes(StandardCharsets.US_ASCII));
+        } else if (path.startsWith("/acct/")) {
+            ObjectNode acct = MAPPER.createObjectNode().put("status", "valid");
+            acct.put("orders", baseUrl + path + "/orders");
+            json(exchange, 200, acct, null);
+        } else {
+            problem(exchange, 404, "malformed", "未知资源: " + path);
+        }
+    }
+
+    private void newAccount(HttpExchange exchange, JsonNode header) throws Exception {
+        JsonWebKey jwk = JsonWebKey.Factory.newJwk(MAPPER.writeValueAsString(header.path("jwk")));
+        String thumbprint = jwk.calculateBase64urlEncodedThumbprint("SHA-256");
+        String url = baseUrl + "/acct/" + ids.incrementAndGet();
+        accountThumbprints.put(url, thumbprint);
+        ObjectNode acct = MAPPER.createObjectNode().put("status", "valid");
+        acct.put("orders", url + "/orders");
+        json(exchange, 201, acct, url);
+    }
+
+    private void newOrder(HttpExchange exchange, String account, JsonNode payload) throws Exception {
+        String thumbprint = account == null ? null : accountThumbprints.get(account);
+        if (thumbprint == null) {
+            problem(exchange, 400, "accountDoesNotExist", "账户不存在");
+            return;
+        }
+        if (ThreadLocalRandom.current().nextDouble() < options.orderRateLimitRate()) {
+            rateLimited.incrementAndGet();
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            problem(exchange, 429, "rateLimited", "Too many new orders (stand-in)");
+            return;
+        }
+        OrderState order = new OrderState(String.valueOf(ids.incrementAndGet()));
+        for (JsonNode identifier : payload.path("identifiers")) {
+            AuthzState authz = new AuthzState(String.valueOf(ids.incrementAndGet()), identifier.path("value").asText(),
+                    randomToken(), thumbprint, order);
+            authorizations.put(authz.id, authz);
+            order.authorizations.add(authz);
+        }
+        orders.put(order.id, order);
+        json(exchange, 201, order.toJson(), baseUrl + "/order/" + order.id);
+    }
+
+    private void challenge(HttpExchange exchange, String id, JsonNode payload) throws IOException {
+        AuthzState authz = authorizations.get(id);
+        if (authz == null) {
+            problem(exchange, 404, "malformed", "挑战不存在");
+            return;
+        }
+        // 非空载荷表示触发验证，空载荷为查询
+        if (payload != null && authz.challengeStatus.equals("pending")) {
+            authz.challengeStatus = "processing";
+            validator.schedule(() -> authz.validate(), options.validationDelay().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        json(exchange, 200, authz.challengeJson(), null);
+    }
+
+    private void finalizeOrder(HttpExchange exchange, String id, JsonNode payload) throws Exception {
+        OrderState order = orders.get(id);
+        if (order == null) {
+            problem(exchange, 404, "malformed", "订单不存在");
+            return;
+        }
+        if (!order.status().equals("ready")) {
+            problem(exchange, 403, "orderNotReady", "订单状态为 " + order.status());
+            return;
+        }
+        PKCS10CertificationRequest csr = new PKCS10CertificationRequest(
+                B64URL_DECODER.decode(payload.path("csr").asText()));
+        List<String> names = csrDomains(csr);
+        for (AuthzState authz : order.authorizations) {
+            if (!names.contains(authz.domain)) {
+                problem(exchange, 400, "badCSR", "CSR缺少域名: " + authz.domain);
+                return;
+            }
+        }
+        sleep(options.finalizeDelay());
+        certificates.put(order.id, issue(csr, names));
+        order.certificate = baseUrl + "/cert/" + order.id;
+        issued.incrementAndGet();
+        json(exchange, 200, order.toJson(), baseUrl + "/order/" + order.id);
+    }
+
+    private String issue(PKCS10CertificationRequest csr, List<String> names) throws Exception {
+        Instant now = Instant.now();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                caCert, BigInteger.valueOf(ids.incrementAndGet()), Date.from(now.minusSeconds(60)),
+                Date.from(now.plus(Duration.ofDays(90))), new X500Name("CN=" + names.get(0)),
+                CryptoServices.publicKey(csr.getSubjectPublicKeyInfo()));
+        builder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(names.stream()
+                .map(name -> new GeneralName(GeneralName.dNSName, name)).toArray(GeneralName[]::new)));
+        byte[] der = builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(caKey.getPrivate())).getEncoded();
+        return pem(der) + caPem;
+    }
+
+    private static List<String> csrDomains(PKCS10CertificationRequest csr) {
+        List<String> names = new ArrayList<>();
+        for (var attribute : csr.getAttributes(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest)) {
+            Extensions extensions = Extensions.getInstance(attribute.getAttrValues().getObjectAt(0));
+            GeneralNames sans = GeneralNames.fromExtensions(extensions, Extension.subjectAlternativeName);
+            if (sans != null) {
+                for (GeneralName name : sans.getNames()) {
+                    if (name.getTagNo() == GeneralName.dNSName) {
+                        names.add(name.getName().toString());
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    private void json(HttpExchange exchange, int status, JsonNode body, String location) throws IOException {
+        if (location != null) {
+            exchange.getResponseHeaders().add("Location", location);
+        }
+        send(exchange, status, "application/json", MAPPER.writeValueAsBytes(body));
+    }
+
+    private void problem(HttpExchange exchange, int status, String type, String detail) throws IOException {
+        ObjectNode body = MAPPER.createObjectNode().put("type", ERROR_PREFIX + type).put("detail", detail);
+        send(exchange, status, "application/problem+json", MAPPER.writeValueAsBytes(body));
+    }
+
+    private void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.getResponseHeaders().add("Replay-Nonce", newNonce());
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private String newNonce() {
+        String nonce = randomToken();
+        nonces.add(nonce);
+        return nonce;
+    }
+
+    private String randomToken() {
+        byte[] bytes = new byte[16];
+        CryptoServices.secureRandom().nextBytes(bytes);
+        return B64URL.encodeToString(bytes);
+    }
+
+    private static String pem(byte[] der) {
+        return new String(PemCodec.encode(PemCodec.CERTIFICATE, der), StandardCharsets.US_ASCII);
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory daemon(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 订单，状态由其授权推导
+     */
+    private final class OrderState {
+        private final String id;
+        private final Instant expires = Instant.now().plus(Duration.ofDays(7));
+        private final List<AuthzState> authorizations = new ArrayList<>();
+        private volatile String certificate;
+
+        private OrderState(String id) {
+            this.id = id;
+        }
+
+        String status() {
+            if (certificate != null) {
+                return "valid";
+            }
+            boolean allValid = true;
+            for (AuthzState authz : authorizations) {
+                if (authz.status().equals("invalid")) {
+                    return "invalid";
+                }
+                allValid &= authz.status().equals("valid");
+            }
+            return allValid ? "ready" : "pending";
+        }
+
+        ObjectNode toJson() {
+            ObjectNode node = MAPPER.createObjectNode();
+            node.put("status", status());
+            node.put("expires", expires.toString());
+            ArrayNode identifiers = node.putArray("identifiers");
+            ArrayNode authzUrls = node.putArray("authorizations");
+            for (AuthzState authz : authorizations) {
+                identifiers.addObject().put("type", "dns").put("value", authz.domain);
+                authzUrls.add(baseUrl + "/authz/" + authz.id);
+            }
+            node.put("finalize", baseUrl + "/finalize/" + id);
+            if (certificate != null) {
+                node.put("certificate", certificate);
+            }
+            return node;
+        }
+    }
+
+    /**
+     * 授权及其唯一的 dns-01 挑战
+     */
+    private final class AuthzState {
+        private final String id;
+        private final String domain;
+        private final String token;
+        private final String digest;
+        private final OrderState order;
+        private volatile String challengeStatus = "pending";
+
+        private AuthzState(String id, String domain, String token, String thumbprint, OrderState order)
+                throws Exception {
+            this.id = id;
+            this.domain = domain;
+            this.token = token;
+            this.order = order;
+            byte[] hash = CryptoServices.sha256((token + "." + thumbprint).getBytes(StandardCharsets.US_ASCII));
+            this.digest = B64URL.encodeToString(hash);
+        }
+
+        String status() {
+            return switch (challengeStatus) {
+                case "valid" -> "valid";
+                case "invalid" -> "invalid";
+                default -> "pending";
+            };
+        }
+
+        void validate() {
+            String bare = domain.startsWith("*.") ? domain.substring(2) : domain;
+            boolean injectedFailure = ThreadLocalRandom.current().nextDouble() < options.challengeFailureRate();
+            boolean valid = !injectedFailure && dnsValidator.test(bare, digest);
+            challengeStatus = valid ? "valid" : "invalid";
+            if (!valid) {
+                log.debug("ACME替身挑战验证失败 [Domain: {}] [Injected: {}] [Order: {}]", domain, injectedFailure, order.id);
+            }
+        }
+
+        ObjectNode challengeJson() {
+            ObjectNode node = MAPPER.createObjectNode();
+            node.put("type", "dns-01");
+            node.put("url", baseUrl + "/chall/" + id);
+            node.put("token", token);
+            node.put("status", challengeStatus);
+            if (challengeStatus.equals("invalid")) {
+                node.putObject("error").put("type", ERROR_PREFIX + "incorrectResponse")
+                        .put("detail", "未找到正确的TXT记录: _acme-challenge." + domain);
+            }
+            return node;
+        }
+
+        ObjectNode toJson() {
+            ObjectNode node = MAPPER.createObjectNode();
+            node.put("status", status());
+            node.put("expires", order.expires.toString());
+            node.putObject("identifier").put("type", "dns").put("value", domain.startsWith("*.") ? domain.substring(2) : domain);
+            if (domain.startsWith("*.")) {
+                node.put("wildcard", true);
+            }
+            node.putArray("challenges").add(challengeJson());
+            return node;
+        }
+    }
+}
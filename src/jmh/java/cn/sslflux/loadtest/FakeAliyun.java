@@ -0,0 +1,395 @@
+package cn.sslflux.loadtest;
+
+import cn.sslflux.Utils.CertUtils;
+import cn.sslflux.Utils.DomainUtils;
+import com.aliyun.sdk.gateway.pop.exception.PopClientException;
+import com.aliyun.sdk.gateway.pop.exception.PopServerException;
+import com.aliyun.sdk.service.alidns20150109.models.AddDomainRecordRequest;
+import com.aliyun.sdk.service.alidns20150109.models.AddDomainRecordResponse;
+import com.aliyun.sdk.service.alidns20150109.models.AddDomainRecordResponseBody;
+import com.aliyun.sdk.service.alidns20150109.models.DeleteDomainRecordRequest;
+import com.aliyun.sdk.service.alidns20150109.models.DeleteDomainRecordResponse;
+import com.aliyun.sdk.service.alidns20150109.models.DeleteDomainRecordResponseBody;
+import com.aliyun.sdk.service.alidns20150109.models.DescribeSubDomainRecordsRequest;
+import com.aliyun.sdk.service.alidns20150109.models.DescribeSubDomainRecordsResponse;
+import com.aliyun.sdk.service.alidns20150109.models.DescribeSubDomainRecordsResponseBody;
+import com.aliyun.sdk.service.alidns20150109.models.GetMainDomainNameRequest;
+import com.aliyun.sdk.service.alidns20150109.models.GetMainDomainNameResponse;
+import com.aliyun.sdk.service.alidns20150109.models.GetMainDomainNameResponseBody;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeDomainCertificateInfoRequest;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeDomainCertificateInfoResponse;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeDomainCertificateInfoResponseBody;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeUserDomainsRequest;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeUserDomainsResponse;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeUserDomainsResponseBody;
+import com.aliyun.sdk.service.cdn20180510.models.SetCdnDomainSSLCertificateRequest;
+import com.aliyun.sdk.service.cdn20180510.models.SetCdnDomainSSLCertificateResponse;
+import com.aliyun.sdk.service.cdn20180510.models.SetCdnDomainSSLCertificateResponseBody;
+import java.lang.reflect.Proxy;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 进程内模拟的阿里云CDN与云解析DNS
+ * 1. 以动态代理实现SDK的 AsyncClient，响应在调度线程上按配置的延迟完成，与真实SDK一样不阻塞调用线程
+ * 2. 可按比例注入限流（Throttling.User）与服务端错误
+ * 3. 保存域名、TXT记录与已部署证书，供ACME替身验证挑战、探测器返回证书有效期
+ * @date 2025/3/30 11:10
+ */
+public class FakeAliyun implements AutoCloseable {
+
+    /**
+     * 模拟参数
+     */
+    public record Options(
+            // 每次接口调用的基础延迟与随机抖动
+            Duration latency,
+            Duration latencyJitter,
+            // TXT记录从添加到权威DNS可见的耗时
+            Duration propagationDelay,
+            // 被限流的比例
+            double throttleRate,
+            // 服务端错误的比例
+            double errorRate) {
+
+        public static Options defaults() {
+            return new Options(Duration.ofMillis(30), Duration.ofMillis(20), Duration.ZERO, 0, 0);
+        }
+    }
+
+    private final Options options;
+    private final List<String> domains;
+    private final ScheduledExecutorService scheduler;
+
+    // 记录ID -> TXT记录
+    private final Map<String, TxtRecord> records = new ConcurrentHashMap<>();
+    // CDN域名 -> 当前证书
+    private final Map<String, DeployedCert> deployed = new ConcurrentHashMap<>();
+    // 证书名称 -> 证书ID（模拟证书管理服务）
+    private final Map<String, Long> casCertificates = new ConcurrentHashMap<>();
+    private final Set<String> zones;
+
+    private final AtomicLong ids = new AtomicLong(1000);
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger uploads = new AtomicInteger();
+
+    private record TxtRecord(String fqdn, String value, Instant visibleAt) {
+    }
+
+    private record DeployedCert(String certName, Date notBefore, Date notAfter) {
+    }
+
+    /**
+     * @param domainCount 域名总数
+     * @param perRoot     每个根域名下的域名数
+     */
+    public FakeAliyun(Options options, int domainCount, int perRoot) {
+        this.options = options;
+        this.domains = generateDomains(domainCount, perRoot);
+        this.zones = ConcurrentHashMap.newKeySet();
+        domains.forEach(domain -> zones.add(DomainUtils.extractRootDomain(domain)));
+        AtomicInteger counter = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "fake-aliyun-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 生成 h{i}.site{r}.com 形式的域名，同一根域名下的域名会被合并为一张多SAN证书
+     */
+    static List<String> generateDomains(int count, int perRoot) {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add("h" + (i % perRoot) + ".site" + (i / perRoot) + ".com");
+        }
+        return result;
+    }
+
+    public List<String> domains() {
+        return domains;
+    }
+
+    /**
+     * CDN客户端
+     */
+    public com.aliyun.sdk.service.cdn20180510.AsyncClient cdnClient() {
+        return proxy(com.aliyun.sdk.service.cdn20180510.AsyncClient.class);
+    }
+
+    /**
+     * 云解析DNS客户端
+     */
+    public com.aliyun.sdk.service.alidns20150109.AsyncClient dnsClient() {
+        return proxy(com.aliyun.sdk.service.alidns20150109.AsyncClient.class);
+    }
+
+    /**
+     * TXT记录是否已在权威DNS可见
+     */
+    public boolean isVisible(String fqdn, String value) {
+        Instant now = Instant.now();
+        return records.values().stream().anyMatch(record -> record.fqdn().equals(fqdn)
+                && record.value().equals(value) && !record.visibleAt().isAfter(now));
+    }
+
+    /**
+     * 域名当前证书有效期；未部署过的域名视为证书即将到期（剩余5天）
+     */
+    public Date[] validity(String hostname) {
+        DeployedCert cert = deployed.get(hostname);
+        if (cert != null) {
+            return new Date[]{cert.notBefore(), cert.notAfter()};
+        }
+        Instant now = Instant.now();
+        return new Date[]{Date.from(now.minus(Duration.ofDays(85))), Date.from(now.plus(Duration.ofDays(5)))};
+    }
+
+    public int deployedCount() {
+        return deployed.size();
+    }
+
+    public int remainingTxtRecords() {
+        return records.size();
+    }
+
+    public int uploads() {
+        return uploads.get();
+    }
+
+    public int throttledCount() {
+        return throttled.get();
+    }
+
+    public int failedCount() {
+        return failed.get();
+    }
+
+    /**
+     * 各接口调用次数
+     */
+    public Map<String, Integer> callCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        calls.forEach((api, count) -> counts.put(api, count.get()));
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "describeUserDomains" -> respond("DescribeUserDomains",
+                            () -> describeUserDomains((DescribeUserDomainsRequest) args[0]));
+                    case "setCdnDomainSSLCertificate" -> respond("SetCdnDomainSSLCertificate",
+                            () -> setCertificate((SetCdnDomainSSLCertificateRequest) args[0]));
+                    case "describeDomainCertificateInfo" -> respond("DescribeDomainCertificateInfo",
+                            () -> describeCertificate((DescribeDomainCertificateInfoRequest) args[0]));
+                    case "addDomainRecord" -> respond("AddDomainRecord",
+                            () -> addRecord((AddDomainRecordRequest) args[0]));
+                    case "deleteDomainRecord" -> respond("DeleteDomainRecord",
+                            () -> deleteRecord((DeleteDomainRecordRequest) args[0]));
+                    case "describeSubDomainRecords" -> respond("DescribeSubDomainRecords",
+                            () -> subDomainRecords((DescribeSubDomainRecordsRequest) args[0]));
+                    case "getMainDomainName" -> respond("GetMainDomainName",
+                            () -> mainDomainName((GetMainDomainNameRequest) args[0]));
+                    case "close" -> null;
+                    case "toString" -> "FakeAliyun(" + type.getSimpleName() + ")";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException("模拟阿里云未实现该接口: " + method.getName());
+                });
+    }
+
+    /**
+     * 经过模拟延迟后完成响应，按比例注入限流与服务端错误
+     */
+    private <R> CompletableFuture<R> respond(String api, Supplier<R> handler) {
+        calls.computeIfAbsent(api, k -> new AtomicInteger()).incrementAndGet();
+        CompletableFuture<R> future = new CompletableFuture<>();
+        long delay = options.latency().toMillis();
+        if (!options.latencyJitter().isZero()) {
+            delay += ThreadLocalRandom.current().nextLong(options.latencyJitter().toMillis() + 1);
+        }
+        scheduler.schedule(() -> {
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < options.throttleRate()) {
+                throttled.incrementAndGet();
+                future.completeExceptionally(new PopClientException("Throttling.User",
+                        "Request was denied due to user flow control. api: " + api, requestId()));
+            } else if (roll < options.throttleRate() + options.errorRate()) {
+                failed.incrementAndGet();
+                future.completeExceptionally(new PopServerException("InternalError",
+                        "The request processing has failed due to some unknown error. api: " + api, requestId()));
+            } else {
+                try {
+                    future.complete(handler.get());
+                } catch (RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private DescribeUserDomainsResponse describeUserDomains(DescribeUserDomainsRequest request) {
+        int pageSize = request.getPageSize() == null ? 20 : request.getPageSize();
+        int page = request.getPageNumber() == null ? 1 : request.getPageNumber();
+        List<DescribeUserDomainsResponseBody.PageData> pageData = new ArrayList<>();
+        for (int i = (page - 1) * pageSize; i < Math.min(domains.size(), page * pageSize); i++) {
+            String domain = domains.get(i);
+            pageData.add(DescribeUserDomainsResponseBody.PageData.builder()
+                    .domainName(domain)
+                    .domainStatus("online")
+                    .sslProtocol("on")
+                    .cname(domain + ".w.kunlunsl.com")
+                    .gmtModified("2025-03-01T00:00:00Z")
+                    .build());
+        }
+        return DescribeUserDomainsResponse.builder()
+                .statusCode(200)
+                .body(DescribeUserDomainsResponseBody.builder()
+                        .totalCount((long) domains.size())
+                        .pageNumber((long) page)
+                        .pageSize((long) pageSize)
+                        .domains(DescribeUserDomainsResponseBody.Domains.builder().pageData(pageData).build())
+                        .build())
+                .build();
+    }
+
+    private SetCdnDomainSSLCertificateResponse setCertificate(SetCdnDomainSSLCertificateRequest request) {
+        Date[] validity;
+        if ("cas".equals(request.getCertType())) {
+            if (!casCertificates.containsValue(request.getCertId())) {
+                throw new PopClientException("InvalidCertificate.NotFound", "certId: " + request.getCertId(), requestId());
+            }
+            DeployedCert source = deployed.values().stream()
+                    .filter(cert -> cert.certName().equals(request.getCertName()))
+                    .findFirst()
+                    .orElseThrow(() -> new PopClientException("InvalidCertificate.NotFound",
+                            "The certificate does not exist.", requestId()));
+            validity = new Date[]{source.notBefore(), source.notAfter()};
+        } else {
+            X509Certificate leaf = parseLeaf(request.getSSLPub());
+            validity = new Date[]{leaf.getNotBefore(), leaf.getNotAfter()};
+            casCertificates.putIfAbsent(request.getCertName(), ids.incrementAndGet());
+            uploads.incrementAndGet();
+        }
+        deployed.put(request.getDomainName(), new DeployedCert(request.getCertName(), validity[0], validity[1]));
+        return SetCdnDomainSSLCertificateResponse.builder()
+                .statusCode(200)
+                .body(SetCdnDomainSSLCertificateResponseBody.builder().requestId(requestId()).build())
+                .build();
+    }
+
+    private DescribeDomainCertificateInfoResponse describeCertificate(DescribeDomainCertificateInfoRequest request) {
+        List<DescribeDomainCertificateInfoResponseBody.CertInfo> infos = new ArrayList<>();
+        DeployedCert cert = deployed.get(request.getDomainName());
+        if (cert != null) {
+            infos.add(DescribeDomainCertificateInfoResponseBody.CertInfo.builder()
+                    .domainName(request.getDomainName())
+                    .certName(cert.certName())
+                    .certId(String.valueOf(casCertificates.get(cert.certName())))
+                    .build());
+        }
+        return DescribeDomainCertificateInfoResponse.builder()
+                .statusCode(200)
+                .body(DescribeDomainCertificateInfoResponseBody.builder()
+                        .certInfos(DescribeDomainCertificateInfoResponseBody.CertInfos.builder().certInfo(infos).build())
+                        .build())
+                .build();
+    }
+
+    private AddDomainRecordResponse addRecord(AddDomainRecordRequest request) {
+        if (!zones.contains(request.getDomainName())) {
+            throw new PopClientException("InvalidDomainName.NoExist", "domain: " + request.getDomainName(), requestId());
+        }
+        String recordId = String.valueOf(ids.incrementAndGet());
+        String fqdn = "@".equals(request.getRr()) ? request.getDomainName()
+                : request.getRr() + "." + request.getDomainName();
+        records.put(recordId, new TxtRecord(fqdn, request.getValue(), Instant.now().plus(options.propagationDelay())));
+        return AddDomainRecordResponse.builder()
+                .statusCode(200)
+                .body(AddDomainRecordResponseBody.builder().recordId(recordId).requestId(requestId()).build())
+                .build();
+    }
+
+    private DeleteDomainRecordResponse deleteRecord(DeleteDomainRecordRequest request) {
+        if (records.remove(request.getRecordId()) == null) {
+            throw new PopClientException("DomainRecordNotBelongToUser", "recordId: " + request.getRecordId(), requestId());
+        }
+        return DeleteDomainRecordResponse.builder()
+                .statusCode(200)
+                .body(DeleteDomainRecordResponseBody.builder().recordId(request.getRecordId()).requestId(requestId()).build())
+                .build();
+    }
+
+    private DescribeSubDomainRecordsResponse subDomainRecords(DescribeSubDomainRecordsRequest request) {
+        List<DescribeSubDomainRecordsResponseBody.Record> matched = new ArrayList<>();
+        records.forEach((recordId, record) -> {
+            if (record.fqdn().equals(request.getSubDomain())) {
+                matched.add(DescribeSubDomainRecordsResponseBody.Record.builder()
+                        .recordId(recordId)
+                        .type("TXT")
+                        .value(record.value())
+                        .build());
+            }
+        });
+        return DescribeSubDomainRecordsResponse.builder()
+                .statusCode(200)
+                .body(DescribeSubDomainRecordsResponseBody.builder()
+                        .domainRecords(DescribeSubDomainRecordsResponseBody.DomainRecords.builder().record(matched).build())
+                        .totalCount((long) matched.size())
+                        .requestId(requestId())
+                        .build())
+                .build();
+    }
+
+    private GetMainDomainNameResponse mainDomainName(GetMainDomainNameRequest request) {
+        String zone = DomainUtils.findZone(request.getInputString(), zones);
+        if (zone == null) {
+            throw new PopClientException("InvalidDomainName.NoExist", "input: " + request.getInputString(), requestId());
+        }
+        return GetMainDomainNameResponse.builder()
+                .statusCode(200)
+                .body(GetMainDomainNameResponseBody.builder().domainName(zone).requestId(requestId()).build())
+                .build();
+    }
+
+    private static X509Certificate parseLeaf(String pem) {
+        try {
+            return CertUtils.parseCertificate(pem);
+        } catch (Exception ex) {
+            throw new IllegalStateException("code: 400, InvalidSSLPub " + ex.getMessage(), ex);
+        }
+    }
+
+    private String requestId() {
+        return Long.toHexString(ids.incrementAndGet());
+    }
+}
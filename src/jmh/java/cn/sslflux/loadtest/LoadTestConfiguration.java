@@ -0,0 +1,72 @@
+package cn.sslflux.loadtest;
+
+import cn.sslflux.acmeClient.core.DnsPropagationChecker;
+import cn.sslflux.acmeClient.core.TlsExpiryProber;
+import cn.sslflux.acmeClient.model.CertificateValidityPeriod;
+import cn.sslflux.acmeClient.model.ProbeStatus;
+import cn.sslflux.cloudAdapters.AliyunClientRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 压测时替换外部依赖的Bean：阿里云客户端指向 FakeAliyun，TLS探测与DNS传播检查读取模拟状态
+ * 不加 @Configuration，避免被应用的组件扫描加载，仅由 RenewalLoadTest 作为启动源注册
+ * @date 2025/3/30 14:00
+ */
+public class LoadTestConfiguration {
+
+    @Bean
+    @Primary
+    public AliyunClientRegistry fakeAliyunClientRegistry(FakeAliyun fakeAliyun) {
+        return new AliyunClientRegistry() {
+            @Override
+            public com.aliyun.sdk.service.cdn20180510.AsyncClient cdnClient() {
+                return fakeAliyun.cdnClient();
+            }
+
+            @Override
+            public com.aliyun.sdk.service.alidns20150109.AsyncClient dnsClient() {
+                return fakeAliyun.dnsClient();
+            }
+        };
+    }
+
+    @Bean
+    @Primary
+    public TlsExpiryProber fakeTlsExpiryProber(FakeAliyun fakeAliyun) {
+        return new TlsExpiryProber(Duration.ofSeconds(1), Duration.ofSeconds(1), 64) {
+            @Override
+            public CertificateValidityPeriod probe(String hostname, int port) {
+                Date[] validity = fakeAliyun.validity(hostname);
+                CertificateValidityPeriod result = new CertificateValidityPeriod();
+                result.setHostname(hostname);
+                result.setNotBefore(validity[0]);
+                result.setNotAfter(validity[1]);
+                result.setProbeStatus(ProbeStatus.SUCCESS);
+                return result;
+            }
+        };
+    }
+
+    @Bean
+    @Primary
+    public DnsPropagationChecker fakeDnsPropagationChecker(FakeAliyun fakeAliyun) {
+        return new DnsPropagationChecker(List.of(), true, Duration.ofSeconds(1)) {
+            @Override
+            public boolean isPropagated(String recordName, String expectedValue, String zone) {
+                return fakeAliyun.isVisible(recordName, expectedValue);
+            }
+        };
+    }
+
+    @Bean
+    public StageRecorder stageRecorder() {
+        return new StageRecorder();
+    }
+}
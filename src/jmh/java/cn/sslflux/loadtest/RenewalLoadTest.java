@@ -0,0 +1,231 @@
+package cn.sslflux.loadtest;
+
+import cn.sslflux.SslFluxApplication;
+import cn.sslflux.scheduler.AliyunScheduler;
+import cn.sslflux.scheduler.RenewalQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 端到端续期吞吐压测
+ * 以完整的 AliyunScheduler 流程（枚举、探测、下单、DNS挑战、签发、部署、清理）对接进程内ACME服务与模拟阿里云，
+ * 按不同域名规模统计每分钟完成部署的域名数、各阶段耗时分位数以及峰值线程数与堆内存
+ * <p>
+ * 系统属性：
+ * load.scales 域名规模，默认 10,100,1000,10000；load.per-root 每个根域名下的域名数，默认5；
+ * load.timeout 单个规模的最长运行时间，默认30m；load.retry-passes 失败域名的补跑轮数，默认1；
+ * load.report 报告文件，默认 target/loadtest/report.json；
+ * load.cloud.latency / load.cloud.jitter / load.cloud.propagation / load.cloud.throttle-rate / load.cloud.error-rate 模拟阿里云参数；
+ * load.acme.validation-delay / load.acme.finalize-delay / load.acme.rate-limit-rate / load.acme.challenge-failure-rate 模拟ACME参数；
+ * 设置 acme.serverUri（如 acme://pebble）时改用外部ACME服务，此时挑战由外部服务自行验证。
+ * 其他应用配置（如 sslflux.renewal.worker-threads）可直接通过 -D 覆盖
+ * @date 2025/3/30 15:00
+ */
+public class RenewalLoadTest {
+
+    /**
+     * 单个规模的压测结果
+     */
+    public record ScaleResult(int domains,
+                              int deployed,
+                              int certificatesIssued,
+                              double elapsedSeconds,
+                              double domainsPerMinute,
+                              int peakThreads,
+                              long peakHeapMb,
+                              int acmeRateLimited,
+                              int cloudThrottled,
+                              int cloudFailed,
+                              int leftoverTxtRecords,
+                              Map<String, Integer> cloudCalls,
+                              Map<String, StageRecorder.Percentiles> stages) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> scales = Arrays.stream(System.getProperty("load.scales", "10,100,1000,10000").split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(Integer::parseInt)
+                .toList();
+        List<ScaleResult> results = new ArrayList<>();
+        for (int scale : scales) {
+            ScaleResult result = runScale(scale);
+            results.add(result);
+            print(result);
+        }
+        writeReport(results);
+        // 阿里云SDK与Spring的非守护线程可能仍在运行
+        System.exit(0);
+    }
+
+    private static ScaleResult runScale(int domainCount) throws Exception {
+        Path workDir = Files.createTempDirectory("sslflux-load-" + domainCount + "-");
+        FakeAliyun.Options cloudOptions = new FakeAliyun.Options(
+                duration("load.cloud.latency", "30ms"),
+                duration("load.cloud.jitter", "20ms"),
+                duration("load.cloud.propagation", "0s"),
+                Double.parseDouble(System.getProperty("load.cloud.throttle-rate", "0")),
+                Double.parseDouble(System.getProperty("load.cloud.error-rate", "0")));
+        AcmeStandInServer.Options acmeOptions = new AcmeStandInServer.Options(
+                duration("load.acme.validation-delay", "200ms"),
+                duration("load.acme.finalize-delay", "100ms"),
+                Double.parseDouble(System.getProperty("load.acme.rate-limit-rate", "0")),
+                Double.parseDouble(System.getProperty("load.acme.challenge-failure-rate", "0")),
+                Integer.getInteger("load.acme.http-threads", 32));
+
+        try (FakeAliyun fakeAliyun = new FakeAliyun(cloudOptions, domainCount, Integer.getInteger("load.per-root", 5));
+             AcmeStandInServer acmeServer = System.getProperty("acme.serverUri") == null
+                     ? new AcmeStandInServer(acmeOptions).start() : null) {
+            if (acmeServer != null) {
+                acmeServer.setDnsValidator((domain, digest) -> fakeAliyun.isVisible("_acme-challenge." + domain, digest));
+            }
+            Map<String, Object> defaults = defaultProperties(domainCount, workDir, acmeServer);
+
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                    SslFluxApplication.class, LoadTestConfiguration.class)
+                    .web(WebApplicationType.NONE)
+                    .initializers(ctx -> {
+                        // 优先于 application.yml，低于 -D 系统属性与环境变量
+                        ctx.getEnvironment().getPropertySources().addAfter(
+                                StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME,
+                                new MapPropertySource("loadTest", defaults));
+                        ctx.getBeanFactory().registerSingleton("fakeAliyun", fakeAliyun);
+                    })
+                    .run();
+            try (ResourceSampler sampler = new ResourceSampler(Duration.ofMillis(50))) {
+                AliyunScheduler scheduler = context.getBean(AliyunScheduler.class);
+                RenewalQueue queue = context.getBean(RenewalQueue.class);
+                StageRecorder recorder = context.getBean(StageRecorder.class);
+                recorder.reset();
+
+                Instant deadline = Instant.now().plus(duration("load.timeout", "30m"));
+                long start = System.nanoTime();
+                int passes = 1 + Integer.getInteger("load.retry-passes", 1);
+                for (int pass = 0; pass < passes && fakeAliyun.deployedCount() < domainCount; pass++) {
+                    scheduler.runRenewalPass("load-test");
+                    drain(scheduler, queue, deadline);
+                }
+                double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+                int deployed = fakeAliyun.deployedCount();
+                return new ScaleResult(domainCount,
+                        deployed,
+                        acmeServer == null ? -1 : acmeServer.issuedCount(),
+                        elapsedSeconds,
+                        deployed / (elapsedSeconds / 60),
+                        sampler.peakThreads(),
+                        sampler.peakHeapBytes() / (1024 * 1024),
+                        acmeServer == null ? -1 : acmeServer.rateLimitedCount(),
+                        fakeAliyun.throttledCount(),
+                        fakeAliyun.failedCount(),
+                        fakeAliyun.remainingTxtRecords(),
+                        fakeAliyun.callCounts(),
+                        recorder.snapshot());
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * 反复执行到期的续期，直到队列清空或超时
+     */
+    private static void drain(AliyunScheduler scheduler, RenewalQueue queue, Instant deadline)
+            throws InterruptedException {
+        while (queue.size() > 0 && Instant.now().isBefore(deadline)) {
+            scheduler.dispatchDue();
+            Instant next = queue.nextDueAt().orElse(null);
+            if (next != null && next.isAfter(Instant.now())) {
+                Thread.sleep(Math.min(1000, Math.max(10, Duration.between(Instant.now(), next).toMillis())));
+            }
+        }
+    }
+
+    /**
+     * 压测默认配置，均可被同名的 -D 系统属性覆盖
+     */
+    private static Map<String, Object> defaultProperties(int domainCount, Path workDir, AcmeStandInServer acmeServer) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:load" + domainCount + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        if (acmeServer != null) {
+            properties.put("acme.serverUri", acmeServer.directoryUrl());
+        }
+        properties.put("acme.keystore.file", "file:" + workDir.resolve("keystore.p12"));
+        properties.put("acme.keystore.password", "load-test");
+        properties.put("acme.account-file", workDir.resolve("acme_account.properties").toString());
+        properties.put("acme.contact.email", "load-test@example.com");
+        properties.put("acme.kid", "load-test");
+        properties.put("acme.macKey", "bG9hZC10ZXN0LW1hYy1rZXktbG9hZC10ZXN0LW1hYy1rZXk");
+        properties.put("sslflux.cloud.aliyun.access-key", "load-test");
+        properties.put("sslflux.cloud.aliyun.secret-key", "load-test");
+        properties.put("sslflux.inventory.file", workDir.resolve("inventory.json").toString());
+        properties.put("sslflux.inventory.catalog-file", workDir.resolve("cdn-catalog.json").toString());
+        properties.put("sslflux.inventory.certs-dir", workDir.resolve("certs").toString());
+        properties.put("sslflux.job.key-file", workDir.resolve("job.key").toString());
+        // 由压测驱动续期，关闭启动预热与定时分发
+        properties.put("sslflux.renewal.warmup.enabled", "false");
+        properties.put("sslflux.renewal.dispatch-interval", "1h");
+        properties.put("sslflux.cluster.claim-interval", "1h");
+        properties.put("sslflux.job.retry-delay", "0s");
+        properties.put("sslflux.challenge.poll.initial-delay", "200ms");
+        properties.put("sslflux.dns.propagation.initial-interval", "100ms");
+        properties.put("logging.level.cn.sslflux", "WARN");
+        return properties;
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        String value = System.getProperty(property, defaultValue).trim();
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("无法解析时长: " + property + "=" + value);
+        };
+    }
+
+    private static void print(ScaleResult result) {
+        System.out.printf("%n== %d 个域名 ==%n", result.domains());
+        System.out.printf("部署完成 %d，签发证书 %d，耗时 %.1fs，吞吐 %.1f 域名/分钟%n",
+                result.deployed(), result.certificatesIssued(), result.elapsedSeconds(), result.domainsPerMinute());
+        System.out.printf("峰值线程 %d，峰值堆内存 %dMB，ACME限流 %d，云接口限流 %d，云接口错误 %d，残留TXT记录 %d%n",
+                result.peakThreads(), result.peakHeapMb(), result.acmeRateLimited(),
+                result.cloudThrottled(), result.cloudFailed(), result.leftoverTxtRecords());
+        System.out.printf("%-22s %8s %10s %10s %10s %10s%n", "阶段", "次数", "p50(ms)", "p95(ms)", "p99(ms)", "max(ms)");
+        result.stages().forEach((stage, p) -> System.out.printf("%-22s %8d %10.1f %10.1f %10.1f %10.1f%n",
+                stage, p.count(), p.p50(), p.p95(), p.p99(), p.max()));
+    }
+
+    private static void writeReport(List<ScaleResult> results) throws Exception {
+        Path report = Path.of(System.getProperty("load.report", "target/loadtest/report.json"));
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("timestamp", Instant.now().toString());
+        document.put("results", results);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), document);
+        System.out.printf("%n报告已写入 %s%n", report.toAbsolutePath());
+    }
+}
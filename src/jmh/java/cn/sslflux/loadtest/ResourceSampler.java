@@ -0,0 +1,57 @@
+package cn.sslflux.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 压测期间定时采样线程数与堆内存，记录峰值
+ * @date 2025/3/30 14:30
+ */
+public class ResourceSampler implements AutoCloseable {
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final AtomicInteger peakThreads = new AtomicInteger();
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+    private final ScheduledExecutorService executor;
+
+    public ResourceSampler(Duration interval) {
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "load-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        threads.resetPeakThreadCount();
+        sample();
+        executor.scheduleAtFixedRate(this::sample, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        peakThreads.accumulateAndGet(threads.getThreadCount(), Math::max);
+        peakHeapBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+    }
+
+    public int peakThreads() {
+        // JVM记录的峰值包含采样间隔内创建又退出的线程
+        return Math.max(peakThreads.get(), threads.getPeakThreadCount());
+    }
+
+    public long peakHeapBytes() {
+        return peakHeapBytes.get();
+    }
+
+    @Override
+    public void close() {
+        sample();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,91 @@
+package cn.sslflux.loadtest;
+
+import cn.sslflux.metrics.RenewalMetrics;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 记录续期各阶段观测的耗时，用于计算压测的分位数
+ * 阶段观测按 stage 标签归类，整个续期任务记为 renewal
+ * @date 2025/3/30 14:20
+ */
+public class StageRecorder implements ObservationHandler<Observation.Context> {
+
+    public static final String RENEWAL = "renewal";
+
+    private static final Object START = StageRecorder.class;
+
+    private final Map<String, ConcurrentLinkedQueue<Long>> samples = new ConcurrentHashMap<>();
+
+    /**
+     * 分位数统计，单位毫秒
+     */
+    public record Percentiles(int count, double p50, double p95, double p99, double max) {
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return RenewalMetrics.STAGE_OBSERVATION.equals(context.getName())
+                || RenewalMetrics.RENEWAL_OBSERVATION.equals(context.getName());
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        context.put(START, System.nanoTime());
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Long start = context.get(START);
+        if (start == null) {
+            return;
+        }
+        String stage = RenewalMetrics.RENEWAL_OBSERVATION.equals(context.getName()) ? RENEWAL
+                : context.getLowCardinalityKeyValue("stage") == null ? "unknown"
+                : context.getLowCardinalityKeyValue("stage").getValue();
+        samples.computeIfAbsent(stage, k -> new ConcurrentLinkedQueue<>()).add(System.nanoTime() - start);
+    }
+
+    /**
+     * 清空已记录的样本，每个规模的压测开始前调用
+     */
+    public void reset() {
+        samples.clear();
+    }
+
+    /**
+     * 按阶段计算分位数
+     */
+    public Map<String, Percentiles> snapshot() {
+        Map<String, Percentiles> result = new TreeMap<>();
+        samples.forEach((stage, queue) -> {
+            List<Long> sorted = new ArrayList<>(queue);
+            if (sorted.isEmpty()) {
+                return;
+            }
+            Collections.sort(sorted);
+            result.put(stage, new Percentiles(sorted.size(),
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    sorted.get(sorted.size() - 1) / 1_000_000.0));
+        });
+        return result;
+    }
+
+    /**
+     * 最近秩法计算分位数
+     */
+    private static double percentile(List<Long> sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.size());
+        return sorted.get(Math.max(0, rank - 1)) / 1_000_000.0;
+    }
+}
@@ -1,26 +1,25 @@
 package cn.sslflux.Utils;
 
 import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.openssl.PEMKeyPair;
 import org.bouncycastle.openssl.PEMParser;
-import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
-import org.bouncycastle.util.io.pem.PemObject;
-import org.bouncycastle.util.io.pem.PemWriter;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.List;
 
 /**
@@ -33,7 +32,7 @@ import java.util.List;
 public class CertUtils {
 
     /**
-     * 验证证书与私钥匹配性（RSA 专用）
+     * 验证证书与私钥匹配性（支持 RSA 和 EC）
      */
     public static boolean validateKeyPair(String certContent, String privateKeyContent) {
         try {
@@ -44,17 +43,30 @@ public class CertUtils {
             // 解析私钥
             PrivateKey privateKey = parsePrivateKey(privateKeyContent);
 
-            // 仅支持 RSA 验证
-            if (!(publicKey instanceof RSAPublicKey) || !(privateKey instanceof RSAPrivateKey)) {
-                log.error("仅支持 RSA 密钥验证");
-                return false;
+            // RSA 比较模数 (Modulus)
+            if (publicKey instanceof RSAPublicKey rsaPub && privateKey instanceof RSAPrivateKey rsaPri) {
+                return rsaPub.getModulus().equals(rsaPri.getModulus());
             }
 
-            // 比较模数 (Modulus)
-            RSAPublicKey rsaPub = (RSAPublicKey) publicKey;
-            RSAPrivateKey rsaPri = (RSAPrivateKey) privateKey;
+            // EC 先比较曲线，再用私钥签名、公钥验签
+            if (publicKey instanceof ECPublicKey ecPub && privateKey instanceof ECPrivateKey ecPri) {
+                if (!ecPub.getParams().getCurve().equals(ecPri.getParams().getCurve())) {
+                    return false;
+                }
+                byte[] challenge = new byte[32];
+                CryptoServices.secureRandom().nextBytes(challenge);
+                Signature ecdsa = CryptoServices.signature("SHA256withECDSA");
+                ecdsa.initSign(privateKey);
+                ecdsa.update(challenge);
+                byte[] signature = ecdsa.sign();
+                ecdsa.initVerify(publicKey);
+                ecdsa.update(challenge);
+                return ecdsa.verify(signature);
+            }
 
-            return rsaPub.getModulus().equals(rsaPri.getModulus());
+            log.error("证书与私钥算法不一致或不受支持 [Cert: {}] [Key: {}]",
+                    publicKey.getAlgorithm(), privateKey.getAlgorithm());
+            return false;
 
         } catch (Exception e) {
             log.error("密钥对验证失败: {}", e.getMessage());
@@ -63,38 +75,38 @@ public class CertUtils {
     }
 
     /**
-     * 解析 PEM 格式证书
+     * 解析 PEM 格式证书，也接受去掉换行或边界的Base64文本
      */
     public static X509Certificate parseCertificate(String certStr)
             throws CertificateException, IOException {
-
-        // 标准化 PEM 格式
-        String normalized = normalizeCert(certStr);
-
-        CertificateFactory cf = CertificateFactory.getInstance("X.509");
-        return (X509Certificate) cf.generateCertificate(
-                new ByteArrayInputStream(normalized.getBytes())
-        );
+        byte[] der;
+        try {
+            der = PemCodec.decodeFirst(certStr, PemCodec.CERTIFICATE);
+        } catch (IllegalArgumentException ex) {
+            throw new CertificateException("证书PEM格式错误: " + ex.getMessage(), ex);
+        }
+        return CryptoServices.parseCertificate(der);
     }
 
     /**
-     * 解析 PEM 格式私钥（支持 PKCS#1 和 PKCS#8）
+     * 解析 PEM 格式私钥（支持 PKCS#1、SEC1(EC) 和 PKCS#8）
      */
-    public static PrivateKey parsePrivateKey(String keyStr)
-            throws IOException, NoSuchAlgorithmException, InvalidKeySpecException {
+    public static PrivateKey parsePrivateKey(String keyStr) throws IOException {
 
         try (PEMParser parser = new PEMParser(new StringReader(keyStr))) {
             Object object = parser.readObject();
 
-            // 处理 PKCS#8
-            if (object instanceof PKCS8EncodedKeySpec) {
-                KeyFactory kf = KeyFactory.getInstance("RSA");
-                return kf.generatePrivate((PKCS8EncodedKeySpec) object);
+            // 处理 PKCS#1（RSA PRIVATE KEY）和 SEC1（EC PRIVATE KEY）
+            if (object instanceof PEMKeyPair keyPair) {
+                return CryptoServices.privateKey(keyPair.getPrivateKeyInfo());
+            }
+
+            // 处理 PKCS#8（PRIVATE KEY）
+            if (object instanceof PrivateKeyInfo keyInfo) {
+                return CryptoServices.privateKey(keyInfo);
             }
 
-            // 处理 PKCS#1
-            JcaPEMKeyConverter converter = new JcaPEMKeyConverter();
-            return converter.getPrivateKey((org.bouncycastle.asn1.pkcs.PrivateKeyInfo) object);
+            throw new IOException("不支持的私钥格式: " + (object == null ? "null" : object.getClass().getSimpleName()));
         }
     }
 
@@ -102,48 +114,85 @@ public class CertUtils {
      * 标准化证书格式
      */
     public static String normalizeCert(String raw) {
-        // 提取 Base64 内容
-        String base64 = raw
-                .replaceAll("-----(BEGIN|END) CERTIFICATE-----", "")
-                .replaceAll("\\s+", "");
-
-        // 重组标准 PEM
-        return "-----BEGIN CERTIFICATE-----\n" +
-                chunkText(base64, 64) +
-                "\n-----END CERTIFICATE-----\n";
+        // 提取 Base64 内容并按64列重组标准 PEM
+        return new String(PemCodec.encode(PemCodec.CERTIFICATE,
+                PemCodec.decodeFirst(raw, PemCodec.CERTIFICATE)), StandardCharsets.US_ASCII);
     }
 
     /**
      * 添加换行格式化
      */
     public static String chunkText(String text, int chunkSize) {
-        return String.join("\n",
-                text.replaceAll("(.{"+chunkSize+"})", "$1\n")
-                        .split("\n")
-        ).trim();
+        StringBuilder sb = new StringBuilder(text.length() + text.length() / chunkSize);
+        for (int i = 0; i < text.length(); i += chunkSize) {
+            if (i > 0) {
+                sb.append('\n');
+            }
+            sb.append(text, i, Math.min(i + chunkSize, text.length()));
+        }
+        return sb.toString().trim();
     }
 
     /**
      * 生成完整证书链PEM格式
      */
     public static String generateFullChainPem(List<X509Certificate> certChain) throws Exception {
-        StringWriter sw = new StringWriter();
-        try (PemWriter pw = new PemWriter(sw)) {
-            for (X509Certificate cert : certChain) {
-                pw.writeObject(new PemObject("CERTIFICATE", cert.getEncoded()));
-            }
-        }
-        return sw.toString();
+        return new String(fullChainPemBytes(certChain), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 生成完整证书链PEM字节，同一证书链重复调用时返回缓存结果（共享实例，不得修改）
+     */
+    public static byte[] fullChainPemBytes(List<X509Certificate> certChain) throws CertificateEncodingException {
+        return PemCodec.encodeChainCached(certChain);
     }
 
     /**
      * 生成PKCS#8格式私钥PEM
      */
     public static String generatePrivateKeyPem(PrivateKey privateKey) throws Exception {
-        StringWriter sw = new StringWriter();
-        try (PemWriter pw = new PemWriter(sw)) {
-            pw.writeObject(new PemObject("PRIVATE KEY", privateKey.getEncoded()));
+        return new String(privateKeyPemBytes(privateKey), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 生成PKCS#8格式私钥PEM字节
+     */
+    public static byte[] privateKeyPemBytes(PrivateKey privateKey) {
+        return PemCodec.encode(PemCodec.PRIVATE_KEY, privateKey.getEncoded());
+    }
+
+    /**
+     * 生成密钥对PEM（PKCS#8私钥 + X.509公钥），RSA与EC通用
+     */
+    public static String generateKeyPairPem(KeyPair keyPair) throws IOException {
+        byte[] privateKey = keyPair.getPrivate().getEncoded();
+        byte[] publicKey = keyPair.getPublic().getEncoded();
+        byte[] out = new byte[PemCodec.encodedLength(PemCodec.PRIVATE_KEY, privateKey.length)
+                + PemCodec.encodedLength(PemCodec.PUBLIC_KEY, publicKey.length)];
+        int pos = PemCodec.encode(PemCodec.PRIVATE_KEY, privateKey, out, 0);
+        PemCodec.encode(PemCodec.PUBLIC_KEY, publicKey, out, pos);
+        return new String(out, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 解析 generateKeyPairPem 生成的密钥对PEM
+     */
+    public static KeyPair parseKeyPair(String pem) throws IOException {
+        PrivateKey privateKey = null;
+        PublicKey publicKey = null;
+        try (PEMParser parser = new PEMParser(new StringReader(pem))) {
+            Object object;
+            while ((object = parser.readObject()) != null) {
+                if (object instanceof PrivateKeyInfo keyInfo) {
+                    privateKey = CryptoServices.privateKey(keyInfo);
+                } else if (object instanceof SubjectPublicKeyInfo publicKeyInfo) {
+                    publicKey = CryptoServices.publicKey(publicKeyInfo);
+                }
+            }
+        }
+        if (privateKey == null || publicKey == null) {
+            throw new IOException("密钥对PEM不完整");
         }
-        return sw.toString();
+        return new KeyPair(publicKey, privateKey);
     }
 }
@@ -0,0 +1,278 @@
+package cn.sslflux.Utils;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.Signature;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 加密服务入口，证书、密钥、摘要与TLS相关的JCA对象统一由此获取
+ * 1. BouncyCastle提供者在类加载时注册一次（追加在JDK提供者之后，不改变默认算法实现）
+ * 2. CertificateFactory、KeyFactory、MessageDigest、Signature、KeyPairGenerator 非线程安全，按线程缓存，
+ *    每个线程每种算法只做一次提供者查找（虚拟线程不复用，缓存仅在单个任务内生效）
+ * 3. SecureRandom 与跳过证书校验的 SSLContext 全局共享，只做一次播种与初始化
+ * @date 2025/3/31 15:00
+ */
+public final class CryptoServices {
+
+    public static final Provider BOUNCY_CASTLE;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private static final ThreadLocal<CertificateFactory> X509_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return CertificateFactory.getInstance("X.509");
+        } catch (CertificateException ex) {
+            throw new IllegalStateException("X.509证书工厂不可用", ex);
+        }
+    });
+    private static final ThreadLocal<Map<String, KeyFactory>> KEY_FACTORIES = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, Signature>> SIGNATURES = ThreadLocal.withInitial(HashMap::new);
+    // 键为 算法:参数，如 RSA:2048、EC:secp256r1，生成器已按参数初始化
+    private static final ThreadLocal<Map<String, KeyPairGenerator>> KEY_PAIR_GENERATORS =
+            ThreadLocal.withInitial(HashMap::new);
+
+    static {
+        Provider registered = Security.getProvider(BouncyCastleProvider.PROVIDER_NAME);
+        if (registered == null) {
+            registered = new BouncyCastleProvider();
+            Security.addProvider(registered);
+        }
+        BOUNCY_CASTLE = registered;
+    }
+
+    private CryptoServices() {
+    }
+
+    /**
+     * 共享的安全随机数源（线程安全）
+     */
+    public static SecureRandom secureRandom() {
+        return SECURE_RANDOM;
+    }
+
+    /**
+     * 当前线程的X.509证书工厂
+     */
+    public static CertificateFactory certificateFactory() {
+        return X509_FACTORY.get();
+    }
+
+    /**
+     * 解析DER或PEM编码的证书（流中的第一张）
+     */
+    public static X509Certificate parseCertificate(InputStream in) throws CertificateException {
+        return (X509Certificate) certificateFactory().generateCertificate(in);
+    }
+
+    /**
+     * 解析DER编码的证书
+     */
+    public static X509Certificate parseCertificate(byte[] der) throws CertificateException {
+        return parseCertificate(new ByteArrayInputStream(der));
+    }
+
+    /**
+     * 当前线程指定算法的密钥工厂，如 RSA、EC
+     */
+    public static KeyFactory keyFactory(String algorithm) {
+        return lookup(KEY_FACTORIES, algorithm, name -> {
+            try {
+                return KeyFactory.getInstance(name);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("密钥工厂不可用: " + name, ex);
+            }
+        });
+    }
+
+    /**
+     * 当前线程指定算法的消息摘要，已重置
+     */
+    public static MessageDigest messageDigest(String algorithm) {
+        MessageDigest digest = lookup(DIGESTS, algorithm, name -> {
+            try {
+                return MessageDigest.getInstance(name);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("摘要算法不可用: " + name, ex);
+            }
+        });
+        // 上次使用可能因异常未完成
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * 计算SHA-256摘要
+     */
+    public static byte[] sha256(byte[] data) {
+        return messageDigest("SHA-256").digest(data);
+    }
+
+    /**
+     * 当前线程指定算法的签名对象，使用前需 initSign / initVerify
+     */
+    public static Signature signature(String algorithm) {
+        return lookup(SIGNATURES, algorithm, name -> {
+            try {
+                return Signature.getInstance(name);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("签名算法不可用: " + name, ex);
+            }
+        });
+    }
+
+    /**
+     * 生成RSA密钥对（公共指数65537）
+     */
+    public static KeyPair generateRsaKeyPair(int bits) {
+        return lookup(KEY_PAIR_GENERATORS, "RSA:" + bits, key -> {
+            try {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(new RSAKeyGenParameterSpec(bits, RSAKeyGenParameterSpec.F4), SECURE_RANDOM);
+                return generator;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("RSA密钥生成器初始化失败: " + bits, ex);
+            }
+        }).generateKeyPair();
+    }
+
+    /**
+     * 生成EC密钥对
+     *
+     * @param curve 曲线名称，如 secp256r1
+     */
+    public static KeyPair generateEcKeyPair(String curve) {
+        return lookup(KEY_PAIR_GENERATORS, "EC:" + curve, key -> {
+            try {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec(curve), SECURE_RANDOM);
+                return generator;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("EC密钥生成失败: " + curve, ex);
+            }
+        }).generateKeyPair();
+    }
+
+    /**
+     * 由PKCS#8结构还原私钥，RSA与EC使用缓存的密钥工厂，其他算法交给BouncyCastle
+     */
+    public static PrivateKey privateKey(PrivateKeyInfo info) throws IOException {
+        try {
+            return keyFactory(keyAlgorithm(info.getPrivateKeyAlgorithm().getAlgorithm()))
+                    .generatePrivate(new PKCS8EncodedKeySpec(info.getEncoded()));
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("私钥解析失败: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 由X.509 SubjectPublicKeyInfo 结构还原公钥
+     */
+    public static PublicKey publicKey(SubjectPublicKeyInfo info) throws IOException {
+        try {
+            return keyFactory(keyAlgorithm(info.getAlgorithm().getAlgorithm()))
+                    .generatePublic(new X509EncodedKeySpec(info.getEncoded()));
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("公钥解析失败: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 跳过证书校验的共享SSLContext，仅用于读取对端证书（如探测有效期），不得用于传输敏感数据
+     */
+    public static SSLContext trustAllSslContext() {
+        return TrustAllHolder.CONTEXT;
+    }
+
+    /**
+     * 跳过证书校验的共享SSLSocketFactory
+     */
+    public static SSLSocketFactory trustAllSocketFactory() {
+        return TrustAllHolder.CONTEXT.getSocketFactory();
+    }
+
+    private static String keyAlgorithm(ASN1ObjectIdentifier oid) {
+        if (PKCSObjectIdentifiers.rsaEncryption.equals(oid)) {
+            return "RSA";
+        }
+        if (X9ObjectIdentifiers.id_ecPublicKey.equals(oid)) {
+            return "EC";
+        }
+        // 由已注册的BouncyCastle按OID解析
+        return oid.getId();
+    }
+
+    private static <T> T lookup(ThreadLocal<Map<String, T>> cache, String key, Function<String, T> factory) {
+        return cache.get().computeIfAbsent(key, factory);
+    }
+
+    /**
+     * 首次使用时初始化
+     */
+    private static final class TrustAllHolder {
+
+        private static final SSLContext CONTEXT = create();
+
+        private static SSLContext create() {
+            TrustManager[] trustAllCerts = new TrustManager[]{
+                    new X509TrustManager() {
+                        @Override
+                        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+                            // 不执行任何验证
+                        }
+
+                        @Override
+                        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+                            // 不执行任何验证
+                        }
+
+                        @Override
+                        public X509Certificate[] getAcceptedIssuers() {
+                            return new X509Certificate[]{};
+                        }
+                    }
+            };
+            try {
+                SSLContext sc = SSLContext.getInstance("TLS");
+                sc.init(null, trustAllCerts, SECURE_RANDOM);
+                return sc;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("SSLContext初始化失败", ex);
+            }
+        }
+    }
+}
@@ -1,13 +1,30 @@
 package cn.sslflux.Utils;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * @author liuyg
  * @version 1.0
  * @description: 域名工具类
+ * 根域名按公共后缀列表计算（shop.example.com.cn 的根域名为 example.com.cn），
+ * 结果缓存在LRU中；可传入服务商返回的权威区域列表，命中时优先使用
  * @date 2025/3/21 14:35
  */
 public class DomainUtils {
 
+    private static final int CACHE_SIZE = 4096;
+
+    private static final Map<String, String> ROOT_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
 
     /**
      * @description: 提取根域名
@@ -16,8 +33,50 @@ public class DomainUtils {
      * @version 1.0
      */
     public static String extractRootDomain(String fqdn) {
-        String[] parts = fqdn.split("\\.");
-        return parts[parts.length - 2] + "." + parts[parts.length - 1];
+        String host = normalize(fqdn);
+        String cached = ROOT_CACHE.get(host);
+        if (cached != null) {
+            return cached;
+        }
+        String root = PublicSuffixList.getDefault().registrableDomain(host);
+        // 本身就是公共后缀时无法再上溯，原样返回
+        if (root == null) {
+            root = host;
+        }
+        ROOT_CACHE.put(host, root);
+        return root;
+    }
+
+    /**
+     * 提取根域名，优先匹配权威区域列表中最长的区域，未命中时按公共后缀列表计算
+     *
+     * @param authoritativeZones 服务商返回的权威区域（小写、无末尾点）
+     */
+    public static String extractRootDomain(String fqdn, Set<String> authoritativeZones) {
+        String zone = findZone(fqdn, authoritativeZones);
+        return zone != null ? zone : extractRootDomain(fqdn);
+    }
+
+    /**
+     * 在区域列表中查找包含该域名的最长区域，未命中返回 null
+     */
+    public static String findZone(String fqdn, Set<String> zones) {
+        if (zones.isEmpty()) {
+            return null;
+        }
+        String host = normalize(fqdn);
+        int start = 0;
+        while (true) {
+            String candidate = start == 0 ? host : host.substring(start);
+            if (zones.contains(candidate)) {
+                return candidate;
+            }
+            int dot = host.indexOf('.', start);
+            if (dot < 0) {
+                return null;
+            }
+            start = dot + 1;
+        }
     }
 
     /**
@@ -27,7 +86,30 @@ public class DomainUtils {
      * @version 1.0
      */
     public static String extractSubDomain(String fqdn) {
-        return fqdn.replace("." + extractRootDomain(fqdn), "");
+        String host = normalize(fqdn);
+        return extractSubDomain(host, extractRootDomain(host));
+    }
+
+    /**
+     * 提取相对于指定区域的主机记录，区域本身返回 @
+     */
+    public static String extractSubDomain(String fqdn, String zone) {
+        if (fqdn.equals(zone)) {
+            return "@";
+        }
+        if (!fqdn.endsWith(zone) || fqdn.length() <= zone.length()
+                || fqdn.charAt(fqdn.length() - zone.length() - 1) != '.') {
+            throw new IllegalArgumentException("域名不属于该区域: " + fqdn + " / " + zone);
+        }
+        return fqdn.substring(0, fqdn.length() - zone.length() - 1);
+    }
+
+    /**
+     * 转为小写并去掉末尾的点，无需转换时不产生新字符串
+     */
+    private static String normalize(String fqdn) {
+        String host = fqdn.endsWith(".") ? fqdn.substring(0, fqdn.length() - 1) : fqdn;
+        return host.toLowerCase(Locale.ROOT);
     }
 
     public static void main(String[] args) {
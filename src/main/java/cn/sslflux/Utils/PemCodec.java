@@ -0,0 +1,306 @@
+package cn.sslflux.Utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: PEM编解码（RFC 7468）
+ * 1. 编码时DER直接写为64列换行的Base64字节，一次写入预先算好长度的数组或输出流，不经过中间字符串
+ * 2. 解码时逐字符扫描BEGIN/END边界并跳过空白，不使用正则
+ * 3. 证书链编码结果按证书缓存，同一张证书在保存、部署时只编码一次
+ * @date 2025/3/31 10:00
+ */
+public final class PemCodec {
+
+    public static final String CERTIFICATE = "CERTIFICATE";
+    public static final String PRIVATE_KEY = "PRIVATE KEY";
+    public static final String PUBLIC_KEY = "PUBLIC KEY";
+
+    private static final String BEGIN = "-----BEGIN ";
+    private static final String END = "-----END ";
+    private static final String DASHES = "-----";
+    // 每行64个字符，对应48字节原文
+    private static final int LINE_CHARS = 64;
+    private static final int LINE_BYTES = 48;
+    // 写输出流时每批编码的行数
+    private static final int STREAM_LINES = 16;
+
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DECODE = new byte[128];
+
+    // 证书链PEM缓存的条目上限
+    private static final int CHAIN_CACHE_SIZE = 256;
+    // 证书链 -> PEM字节，按访问顺序淘汰；证书按DER内容比较，哈希值由JDK缓存
+    private static final Map<List<X509Certificate>, byte[]> CHAIN_CACHE =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<X509Certificate>, byte[]> eldest) {
+                    return size() > CHAIN_CACHE_SIZE;
+                }
+            };
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private PemCodec() {
+    }
+
+    /**
+     * PEM块
+     *
+     * @param type    类型，如 CERTIFICATE
+     * @param content DER内容
+     */
+    public record PemBlock(String type, byte[] content) {
+    }
+
+    /**
+     * 计算PEM编码后的字节数
+     */
+    public static int encodedLength(String type, int contentLength) {
+        int base64 = (contentLength + 2) / 3 * 4;
+        int lines = (base64 + LINE_CHARS - 1) / LINE_CHARS;
+        return BEGIN.length() + type.length() + DASHES.length() + 1
+                + base64 + lines
+                + END.length() + type.length() + DASHES.length() + 1;
+    }
+
+    /**
+     * 编码为PEM字节（US-ASCII）
+     */
+    public static byte[] encode(String type, byte[] content) {
+        byte[] out = new byte[encodedLength(type, content.length)];
+        encode(type, content, out, 0);
+        return out;
+    }
+
+    /**
+     * 编码到调用方提供的数组，数组剩余空间不少于 encodedLength
+     *
+     * @return 写入结束的位置
+     */
+    public static int encode(String type, byte[] content, byte[] out, int offset) {
+        int pos = writeAscii(out, offset, BEGIN, type);
+        for (int from = 0; from < content.length; from += LINE_BYTES) {
+            pos = encodeLine(content, from, Math.min(from + LINE_BYTES, content.length), out, pos);
+        }
+        return writeAscii(out, pos, END, type);
+    }
+
+    /**
+     * 编码并写入输出流，按批次复用同一个缓冲区
+     */
+    public static void encode(String type, byte[] content, OutputStream out) throws IOException {
+        byte[] buffer = new byte[Math.max(STREAM_LINES * (LINE_CHARS + 1), BEGIN.length() + type.length() + 6)];
+        out.write(buffer, 0, writeAscii(buffer, 0, BEGIN, type));
+        int from = 0;
+        while (from < content.length) {
+            int pos = 0;
+            for (int line = 0; line < STREAM_LINES && from < content.length; line++, from += LINE_BYTES) {
+                pos = encodeLine(content, from, Math.min(from + LINE_BYTES, content.length), buffer, pos);
+            }
+            out.write(buffer, 0, pos);
+        }
+        out.write(buffer, 0, writeAscii(buffer, 0, END, type));
+    }
+
+    /**
+     * 编码证书链，全部证书写入同一个数组
+     */
+    public static byte[] encodeChain(List<X509Certificate> chain) throws CertificateEncodingException {
+        List<byte[]> encoded = new ArrayList<>(chain.size());
+        int length = 0;
+        for (X509Certificate cert : chain) {
+            byte[] der = cert.getEncoded();
+            encoded.add(der);
+            length += encodedLength(CERTIFICATE, der.length);
+        }
+        byte[] out = new byte[length];
+        int pos = 0;
+        for (byte[] der : encoded) {
+            pos = encode(CERTIFICATE, der, out, pos);
+        }
+        return out;
+    }
+
+    /**
+     * 编码证书链并缓存结果，返回的数组为共享实例，调用方不得修改
+     */
+    public static byte[] encodeChainCached(List<X509Certificate> chain) throws CertificateEncodingException {
+        List<X509Certificate> key = List.copyOf(chain);
+        synchronized (CHAIN_CACHE) {
+            byte[] cached = CHAIN_CACHE.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        byte[] encoded = encodeChain(key);
+        synchronized (CHAIN_CACHE) {
+            CHAIN_CACHE.putIfAbsent(key, encoded);
+        }
+        return encoded;
+    }
+
+    /**
+     * 解析全部PEM块，块之间及块外的内容忽略
+     */
+    public static List<PemBlock> decode(String pem) {
+        List<PemBlock> blocks = new ArrayList<>();
+        int from = 0;
+        PemBlock block;
+        int[] next = new int[1];
+        while ((block = decodeNext(pem, from, null, next)) != null) {
+            blocks.add(block);
+            from = next[0];
+        }
+        return blocks;
+    }
+
+    /**
+     * 解析第一个指定类型的PEM块；文本中没有任何BEGIN边界时按纯Base64解析
+     *
+     * @throws IllegalArgumentException 找不到指定类型或内容不是合法的Base64
+     */
+    public static byte[] decodeFirst(String pem, String type) {
+        if (pem.indexOf(BEGIN) < 0) {
+            return decodeBase64(pem, 0, pem.length());
+        }
+        PemBlock block = decodeNext(pem, 0, type, new int[1]);
+        if (block == null) {
+            throw new IllegalArgumentException("未找到PEM块: " + type);
+        }
+        return block.content();
+    }
+
+    /**
+     * 解码Base64，跳过空白，遇到填充符结束
+     */
+    public static byte[] decodeBase64(CharSequence text, int from, int to) {
+        byte[] out = new byte[(to - from) / 4 * 3 + 3];
+        int pos = 0;
+        int bits = 0;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                continue;
+            }
+            if (c == '=') {
+                break;
+            }
+            int value = c < 128 ? DECODE[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("非法的Base64字符: '" + c + "' [Index: " + i + "]");
+            }
+            bits = bits << 6 | value;
+            if (++count == 4) {
+                out[pos++] = (byte) (bits >> 16);
+                out[pos++] = (byte) (bits >> 8);
+                out[pos++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 1) {
+            throw new IllegalArgumentException("Base64长度不完整");
+        }
+        if (count == 2) {
+            out[pos++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            out[pos++] = (byte) (bits >> 10);
+            out[pos++] = (byte) (bits >> 2);
+        }
+        return pos == out.length ? out : Arrays.copyOf(out, pos);
+    }
+
+    /**
+     * 从指定位置查找下一个PEM块
+     *
+     * @param type 只匹配该类型，为空时匹配任意类型
+     * @param next 输出参数，块结束后的位置
+     */
+    private static PemBlock decodeNext(String pem, int from, String type, int[] next) {
+        while (true) {
+            int begin = pem.indexOf(BEGIN, from);
+            if (begin < 0) {
+                return null;
+            }
+            int typeStart = begin + BEGIN.length();
+            int typeEnd = pem.indexOf(DASHES, typeStart);
+            if (typeEnd < 0) {
+                throw new IllegalArgumentException("PEM边界不完整 [Index: " + begin + "]");
+            }
+            String blockType = pem.substring(typeStart, typeEnd);
+            int bodyStart = typeEnd + DASHES.length();
+            int end = pem.indexOf(END, bodyStart);
+            if (end < 0) {
+                throw new IllegalArgumentException("缺少PEM结束边界: " + blockType);
+            }
+            int endClose = pem.indexOf(DASHES, end + END.length());
+            if (endClose < 0 || !pem.regionMatches(end + END.length(), blockType, 0, blockType.length())) {
+                throw new IllegalArgumentException("PEM结束边界与开始不一致: " + blockType);
+            }
+            from = endClose + DASHES.length();
+            if (type == null || type.equals(blockType)) {
+                next[0] = from;
+                return new PemBlock(blockType, decodeBase64(pem, bodyStart, end));
+            }
+        }
+    }
+
+    /**
+     * 编码一行（不超过48字节）并追加换行
+     */
+    private static int encodeLine(byte[] in, int from, int to, byte[] out, int pos) {
+        int i = from;
+        for (; i + 3 <= to; i += 3) {
+            int bits = (in[i] & 0xff) << 16 | (in[i + 1] & 0xff) << 8 | (in[i + 2] & 0xff);
+            out[pos++] = ALPHABET[bits >>> 18];
+            out[pos++] = ALPHABET[bits >>> 12 & 0x3f];
+            out[pos++] = ALPHABET[bits >>> 6 & 0x3f];
+            out[pos++] = ALPHABET[bits & 0x3f];
+        }
+        int remaining = to - i;
+        if (remaining > 0) {
+            int bits = (in[i] & 0xff) << 16 | (remaining == 2 ? (in[i + 1] & 0xff) << 8 : 0);
+            out[pos++] = ALPHABET[bits >>> 18];
+            out[pos++] = ALPHABET[bits >>> 12 & 0x3f];
+            out[pos++] = remaining == 2 ? ALPHABET[bits >>> 6 & 0x3f] : (byte) '=';
+            out[pos++] = '=';
+        }
+        out[pos++] = '\n';
+        return pos;
+    }
+
+    /**
+     * 写入边界行，如 -----BEGIN CERTIFICATE-----\n
+     */
+    private static int writeAscii(byte[] out, int pos, String marker, String type) {
+        for (int i = 0; i < marker.length(); i++) {
+            out[pos++] = (byte) marker.charAt(i);
+        }
+        for (int i = 0; i < type.length(); i++) {
+            out[pos++] = (byte) type.charAt(i);
+        }
+        for (int i = 0; i < DASHES.length(); i++) {
+            out[pos++] = '-';
+        }
+        out[pos++] = '\n';
+        return pos;
+    }
+}
@@ -0,0 +1,218 @@
+package cn.sslflux.Utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 公共后缀列表（Public Suffix List）
+ * 启动时将规则编译为按标签倒序的前缀树，每个节点的子标签按字典序存放在数组中，
+ * 查找时直接在原字符串上比较标签区间，不拆分字符串；支持通配符（*）与例外（!）规则
+ * @date 2025/3/26 14:10
+ */
+public final class PublicSuffixList {
+
+    public static final String DEFAULT_RESOURCE = "/public_suffix_list.dat";
+
+    private final Node root;
+    private final int ruleCount;
+
+    private PublicSuffixList(Node root, int ruleCount) {
+        this.root = root;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * 类路径中内置的公共后缀列表
+     */
+    public static PublicSuffixList getDefault() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 从 public_suffix_list.dat 格式的输入流编译
+     */
+    public static PublicSuffixList parse(InputStream in) throws IOException {
+        Builder root = new Builder();
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("//")) {
+                    continue;
+                }
+                // 规则以第一个空白结束
+                int space = line.indexOf(' ');
+                // 中文等国际化规则转为 punycode，与CDN返回的域名形式一致
+                String rule = IDN.toASCII((space < 0 ? line : line.substring(0, space)).toLowerCase(Locale.ROOT),
+                        IDN.ALLOW_UNASSIGNED);
+                boolean exception = rule.startsWith("!");
+                if (exception) {
+                    rule = rule.substring(1);
+                }
+                String[] labels = rule.split("\\.");
+                Builder node = root;
+                for (int i = labels.length - 1; i >= 0; i--) {
+                    node = node.children.computeIfAbsent(labels[i], k -> new Builder());
+                }
+                if (exception) {
+                    node.exception = true;
+                } else {
+                    node.rule = true;
+                }
+                count++;
+            }
+        }
+        return new PublicSuffixList(root.compile(), count);
+    }
+
+    public int size() {
+        return ruleCount;
+    }
+
+    /**
+     * 公共后缀的起始下标（如 shop.example.com.cn 返回 "com.cn" 的起始位置）
+     *
+     * @param host 小写、无末尾点的主机名
+     */
+    public int publicSuffixStart(String host) {
+        // 默认规则 "*"：未命中任何规则时顶级域即为公共后缀
+        int end = host.length();
+        int labelStart = host.lastIndexOf('.') + 1;
+        int suffixStart = labelStart;
+
+        Node node = root;
+        while (node != null) {
+            Node child = node.find(host, labelStart, end);
+            if (node.wildcard != null) {
+                if (child != null && child.exception) {
+                    // 例外规则：公共后缀为其父级
+                    return end == host.length() ? labelStart : end + 1;
+                }
+                suffixStart = labelStart;
+            }
+            if (child == null) {
+                break;
+            }
+            if (child.rule) {
+                suffixStart = labelStart;
+            }
+            if (labelStart == 0) {
+                break;
+            }
+            node = child;
+            end = labelStart - 1;
+            labelStart = host.lastIndexOf('.', end - 1) + 1;
+        }
+        return suffixStart;
+    }
+
+    /**
+     * 可注册域名（公共后缀再加一级），主机名本身就是公共后缀时返回 null
+     *
+     * @param host 小写、无末尾点的主机名
+     */
+    public String registrableDomain(String host) {
+        int suffixStart = publicSuffixStart(host);
+        if (suffixStart == 0) {
+            return null;
+        }
+        int start = host.lastIndexOf('.', suffixStart - 2) + 1;
+        return start == 0 ? host : host.substring(start);
+    }
+
+    /**
+     * 前缀树节点，子标签有序存放以便二分查找
+     */
+    private static final class Node {
+        private final String[] labels;
+        private final Node[] children;
+        private final Node wildcard;
+        private final boolean rule;
+        private final boolean exception;
+
+        private Node(String[] labels, Node[] children, Node wildcard, boolean rule, boolean exception) {
+            this.labels = labels;
+            this.children = children;
+            this.wildcard = wildcard;
+            this.rule = rule;
+            this.exception = exception;
+        }
+
+        /**
+         * 查找与 host[from, to) 相同的子标签
+         */
+        Node find(String host, int from, int to) {
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(labels[mid], host, from, to);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        private static int compare(String label, String host, int from, int to) {
+            int len = to - from;
+            int n = Math.min(label.length(), len);
+            for (int i = 0; i < n; i++) {
+                int diff = label.charAt(i) - host.charAt(from + i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return label.length() - len;
+        }
+    }
+
+    private static final class Builder {
+        private final Map<String, Builder> children = new TreeMap<>();
+        private boolean rule;
+        private boolean exception;
+
+        Node compile() {
+            Builder wildcardBuilder = children.remove("*");
+            List<String> labels = new ArrayList<>(children.keySet());
+            Node[] compiled = new Node[labels.size()];
+            for (int i = 0; i < compiled.length; i++) {
+                compiled[i] = children.get(labels.get(i)).compile();
+            }
+            Node wildcard = wildcardBuilder == null ? null : wildcardBuilder.compile();
+            return new Node(labels.toArray(new String[0]), compiled, wildcard, rule, exception);
+        }
+    }
+
+    private static final class Holder {
+        private static final PublicSuffixList INSTANCE = load();
+
+        private static PublicSuffixList load() {
+            try (InputStream in = PublicSuffixList.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+                if (in == null) {
+                    throw new IllegalStateException("缺少公共后缀列表: " + DEFAULT_RESOURCE);
+                }
+                return parse(in);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("公共后缀列表加载失败", ex);
+            }
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package cn.sslflux.acmeClient.core;
 
+import cn.sslflux.Utils.CryptoServices;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.asn1.x500.X500Name;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
@@ -11,13 +11,14 @@ import org.shredzone.acme4j.AccountBuilder;
 import org.shredzone.acme4j.Login;
 import org.shredzone.acme4j.Session;
 import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeUnauthorizedException;
+import org.shredzone.acme4j.exception.AcmeUserActionRequiredException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -33,7 +34,6 @@ import java.nio.file.Paths;
 import java.security.*;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.Properties;
 
@@ -49,15 +49,12 @@ import java.util.Properties;
 @Slf4j
 @Component
 public class AccountSession {
-    // 账户信息存储文件
-    private static final String STORE_FILE = "acme_account.properties";
     // 属性文件中存储账户URL的键
     private static final String KEY_ACCOUNT_URL = "account.url";
     // 密钥库条目别名
     private static final String KEYSTORE_ALIAS = "acme-account";
 
     private static final int KEY_SIZE = 2048;
-    private static final String KEY_ALGORITHM = "RSA";
 
     // ACME服务器地址（从配置注入）
     @Value("${acme.serverUri}")
@@ -67,6 +64,10 @@ public class AccountSession {
     @Value("${acme.keystore.file}")
     private String keystoreFile;
 
+    // 账户信息存储文件（保存账户URL）
+    @Value("${acme.account-file:acme_account.properties}")
+    private String accountFile;
+
     // 密钥库密码（使用char[]避免字符串驻留）
     @Value("${acme.keystore.password}")
     private char[] keystorePassword;
@@ -86,38 +87,91 @@ public class AccountSession {
     @Autowired
     private ResourceLoader resourceLoader;
 
+    // 缓存的账户登录信息，整个运行期复用同一个Session（目录、Nonce）
+    private volatile Login cachedLogin;
+
     /**
-     * 初始化ACME账户入口方法
+     * 初始化ACME账户入口方法，首次调用完成登录，后续直接返回缓存的账户
      *
      * @return 初始化成功的Account对象
      * @throws AcmeException 账户初始化失败时抛出
      */
     public Account initializeAccount() throws Exception {
-        try {
-            Session session = new Session(serverUri);
-            KeyPair accountKey = loadOrCreateKeyPair();
-            return loadExistingAccount(session, accountKey) != null ?
-                    loadExistingAccount(session, accountKey) :
-                    createNewAccount(session, accountKey);
-        } catch (Exception e) {
-            throw new AcmeException("账户初始化失败", e);
+        return getLogin().getAccount();
+    }
+
+    /**
+     * 获取缓存的账户登录信息（线程安全）
+     *
+     * @return 账户登录信息
+     * @throws AcmeException 登录失败时抛出
+     */
+    public Login getLogin() throws AcmeException {
+        Login login = cachedLogin;
+        if (login != null) {
+            return login;
+        }
+        synchronized (this) {
+            if (cachedLogin == null) {
+                cachedLogin = login();
+            }
+            return cachedLogin;
         }
     }
 
     /**
-     * @description: 密钥对加载/创建方法
-     * @author liuyg
-     * @date 2025/3/21 19:23
-     * @version 1.0
+     * 使缓存失效，下次调用时重新登录（账户异常时调用）
+     */
+    public synchronized void invalidate() {
+        if (cachedLogin != null) {
+            log.warn("ACME账户缓存已失效，下次使用时重新登录");
+            cachedLogin = null;
+        }
+    }
+
+    /**
+     * 账户密钥轮换：向CA提交新密钥并持久化，缓存的登录信息随之更新
+     */
+    public synchronized void rolloverKey() throws Exception {
+        KeyPair newKeyPair = generateKeyPair();
+        getLogin().getAccount().changeKey(newKeyPair);
+        saveKeyPair(newKeyPair);
+        log.info("ACME账户密钥已轮换");
+    }
+
+    /**
+     * 判断异常是否由账户本身引起（需要刷新账户缓存）
+     */
+    public static boolean isAccountError(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof AcmeUnauthorizedException || t instanceof AcmeUserActionRequiredException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 完成一次账户登录，密钥库只读取一次
      */
-    private KeyPair loadOrCreateKeyPair() throws Exception {
+    private Login login() throws AcmeException {
         try {
-            return loadKeyPair();
-        } catch (FileNotFoundException ex) {
-            log.info("首次运行，生成新密钥对...");
-            KeyPair newKeyPair = generateKeyPair();
-            saveKeyPair(newKeyPair);
-            return newKeyPair;
+            Session session = new Session(serverUri);
+            KeyStore keyStore = loadKeyStore();
+            KeyPair accountKey;
+            if (keyStore == null) {
+                log.info("首次运行，生成新密钥对...");
+                accountKey = generateKeyPair();
+                saveKeyPair(accountKey);
+            } else {
+                accountKey = readKeyPair(keyStore);
+            }
+            Login existing = loadExistingAccount(session, accountKey);
+            Login login = existing != null ? existing : createNewAccount(session, accountKey);
+            log.info("ACME账户登录成功 [Account: {}]", login.getAccountLocation());
+            return login;
+        } catch (Exception e) {
+            throw new AcmeException("账户初始化失败", e);
         }
     }
 
@@ -127,51 +181,58 @@ public class AccountSession {
      * @date 2025/3/21 19:23
      * @version 1.0
      */
-    private KeyPair generateKeyPair() throws NoSuchAlgorithmException {
-        KeyPairGenerator keyGen = KeyPairGenerator.getInstance(KEY_ALGORITHM);
-        keyGen.initialize(KEY_SIZE);
-        return keyGen.generateKeyPair();
+    private KeyPair generateKeyPair() {
+        return CryptoServices.generateRsaKeyPair(KEY_SIZE);
     }
 
     /**
-     * 从PKCS12密钥库加载密钥对
+     * 读取PKCS12密钥库
      *
-     * @return 加载的密钥对
+     * @return 密钥库，不存在返回null
      * @throws GeneralSecurityException 密钥库操作安全异常
      * @throws IOException              文件读写异常
      */
-    private KeyPair loadKeyPair() throws GeneralSecurityException, IOException {
+    private KeyStore loadKeyStore() throws GeneralSecurityException, IOException {
         Resource resource = resourceLoader.getResource(keystoreFile);
 
         if (!resource.exists()) {
-            throw new FileNotFoundException("密钥库不存在");
+            return null;
         }
 
         try (InputStream is = resource.getInputStream()) {
             KeyStore ks = KeyStore.getInstance("PKCS12");
             ks.load(is, keystorePassword);
+            return ks;
+        }
+    }
 
-            String alias = ks.aliases().nextElement();
-            PrivateKey privateKey = (PrivateKey) ks.getKey(alias, keystorePassword);
-            PublicKey publicKey = ks.getCertificate(alias).getPublicKey();
+    /**
+     * 从已加载的密钥库读取账户密钥对
+     *
+     * @param ks 密钥库
+     * @return 密钥对
+     * @throws GeneralSecurityException 密钥读取失败
+     */
+    private KeyPair readKeyPair(KeyStore ks) throws GeneralSecurityException {
+        String alias = ks.containsAlias(KEYSTORE_ALIAS) ? KEYSTORE_ALIAS : ks.aliases().nextElement();
+        PrivateKey privateKey = (PrivateKey) ks.getKey(alias, keystorePassword);
+        PublicKey publicKey = ks.getCertificate(alias).getPublicKey();
 
-            return new KeyPair(publicKey, privateKey);
-        }
+        return new KeyPair(publicKey, privateKey);
     }
 
     /**
      * 尝试加载已有账户
      *
      * @param session ACME会话对象
-     * @param keyPair 账户密钥对
-     * @return 存在的账户对象，不存在返回null
+     * @param keyPair 账户密钥对（取自密钥库，无需再次读取校验）
+     * @return 存在的账户登录信息，不存在返回null
      */
-    private Account loadExistingAccount(Session session, KeyPair keyPair) {
+    private Login loadExistingAccount(Session session, KeyPair keyPair) {
         try {
             URL accountUrl = loadAccountUrl();
-            // 需要同时满足：账户URL存在且密钥对验证通过
-            if (accountUrl != null && validateKeyPair(keyPair)) {
-                return new Login(accountUrl, keyPair, session).getAccount();
+            if (accountUrl != null) {
+                return new Login(accountUrl, keyPair, session);
             }
             return null;
         } catch (Exception e) {
@@ -185,31 +246,31 @@ public class AccountSession {
      *
      * @param session ACME会话对象
      * @param keyPair 账户密钥对
-     * @return 新建的账户对象
+     * @return 新建的账户登录信息
      * @throws AcmeException 账户创建失败时抛出
      */
-    private Account createNewAccount(Session session, KeyPair keyPair) throws Exception {
-        Account account;
+    private Login createNewAccount(Session session, KeyPair keyPair) throws Exception {
+        Login login;
         // 使用ACME4J的建造者模式创建账户
         if (serverUri.contains("pki.goog")) {
-            account = new AccountBuilder()
+            login = new AccountBuilder()
                     .addContact("mailto:" + contactEmail) // 添加联系邮箱
                     .useKeyPair(keyPair)                // 绑定密钥对
                     .agreeToTermsOfService()             // 自动同意服务条款
                     .withKeyIdentifier(kid, macKey)
                     .withMacAlgorithm("HS256")
-                    .create(session);                    // 创建账户
+                    .createLogin(session);               // 创建账户
 
         } else {
-            account = new AccountBuilder()
+            login = new AccountBuilder()
                     .addContact("mailto:" + contactEmail) // 添加联系邮箱
                     .useKeyPair(keyPair)                // 绑定密钥对
                     .agreeToTermsOfService()             // 自动同意服务条款
-                    .create(session);                    // 创建账户
+                    .createLogin(session);               // 创建账户
         }
         // 持久化账户信息
-        saveAccountInfo(account.getLocation(), keyPair);
-        return account;
+        saveAccountInfo(login.getAccountLocation(), keyPair);
+        return login;
     }
 
     /**
@@ -220,10 +281,10 @@ public class AccountSession {
      * @throws MalformedURLException URL格式异常
      */
     private URL loadAccountUrl() throws IOException {
-        if (!Files.exists(Path.of(STORE_FILE))) return null;
+        if (!Files.exists(Path.of(accountFile))) return null;
 
         Properties props = new Properties();
-        try (InputStream in = Files.newInputStream(Path.of(STORE_FILE))) {
+        try (InputStream in = Files.newInputStream(Path.of(accountFile))) {
             props.load(in);
             String urlStr = props.getProperty(KEY_ACCOUNT_URL);
             return urlStr != null ? new URL(urlStr) : null;
@@ -254,7 +315,7 @@ public class AccountSession {
             String normalizedUrl = accountUrl.toURI()         // 转换为URI对象
                     .toASCIIString();
             props.setProperty(KEY_ACCOUNT_URL, normalizedUrl);
-            try (OutputStream out = Files.newOutputStream(Path.of(STORE_FILE))) {
+            try (OutputStream out = Files.newOutputStream(Path.of(accountFile))) {
                 props.store(out, "ACME Account Information");
             }
         } catch (URISyntaxException e) {
@@ -316,10 +377,11 @@ public class AccountSession {
         X500Name subject = new X500Name("CN=SSLFlux");
         // 使用SHA256withRSA签名算法
         ContentSigner signer = new JcaContentSignerBuilder("SHA256withRSA")
+                .setSecureRandom(CryptoServices.secureRandom())
                 .build(keyPair.getPrivate());
 
         // 证书有效期：当前时间 ~ 1年后
-        return new JcaX509CertificateConverter().getCertificate(
+        return CryptoServices.parseCertificate(
                 new JcaX509v3CertificateBuilder(
                         subject,
                         BigInteger.valueOf(System.currentTimeMillis()), // 唯一序列号
@@ -327,38 +389,7 @@ public class AccountSession {
                         new Date(System.currentTimeMillis() + 365L * 86400000), // 有效期1年
                         subject,
                         keyPair.getPublic()
-                ).build(signer)
+                ).build(signer).getEncoded()
         );
     }
-
-    /**
-     * 验证密钥对是否匹配存储的密钥
-     *
-     * @param keyPair 待验证的密钥对
-     * @return 验证结果
-     */
-    private boolean validateKeyPair(KeyPair keyPair) {
-        try {
-            Resource resource = resourceLoader.getResource(keystoreFile);
-            if (!resource.exists()) {
-                throw new FileNotFoundException("密钥库不存在");
-            }
-            try (InputStream is = resource.getInputStream()) {
-                KeyStore ks = KeyStore.getInstance("PKCS12");
-                ks.load(is, keystorePassword);
-                // 获取密钥库条目
-                KeyStore.Entry entry = ks.getEntry(KEYSTORE_ALIAS,
-                        new KeyStore.PasswordProtection(keystorePassword));
-                // 比较私钥字节编码
-                return Arrays.equals(
-                        ((PrivateKey) ((KeyStore.PrivateKeyEntry) entry).getPrivateKey()).getEncoded(),
-                        keyPair.getPrivate().getEncoded()
-                );
-            }
-
-        } catch (Exception e) {
-            log.error("Key validation failed", e);
-            return false;
-        }
-    }
 }
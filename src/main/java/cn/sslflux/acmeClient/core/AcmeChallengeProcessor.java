@@ -1,5 +1,8 @@
 package cn.sslflux.acmeClient.core;
 
+import cn.sslflux.metrics.RenewalMetrics;
+import cn.sslflux.metrics.RenewalMetrics.Stage;
+import cn.sslflux.rateLimit.RateLimiterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.shredzone.acme4j.Authorization;
 import org.shredzone.acme4j.Identifier;
@@ -7,7 +10,8 @@ import org.shredzone.acme4j.Status;
 import org.shredzone.acme4j.challenge.Challenge;
 import org.shredzone.acme4j.challenge.Dns01Challenge;
 import org.shredzone.acme4j.challenge.Http01Challenge;
-import org.shredzone.acme4j.exception.AcmeException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -15,10 +19,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author liuyg
@@ -31,14 +40,39 @@ import java.util.Optional;
 public class AcmeChallengeProcessor {
 
     private final DnsProvider dnsProvider;
+    private final ChallengePoller challengePoller;
+    private final RenewalMetrics metrics;
+    // 授权查询与挑战触发经共享ACME限流器发出，为空时不限流
+    private final RateLimiterRegistry rateLimiter;
 
-    // 通过构造函数注入DNS挑战处理器
-    public AcmeChallengeProcessor(DnsProvider dnsProvider) {
+    public AcmeChallengeProcessor(DnsProvider dnsProvider, ChallengePoller challengePoller) {
+        this(dnsProvider, challengePoller, RenewalMetrics.noop());
+    }
+
+    public AcmeChallengeProcessor(DnsProvider dnsProvider, ChallengePoller challengePoller, RenewalMetrics metrics) {
+        this(dnsProvider, challengePoller, metrics, null);
+    }
+
+    // 通过构造函数注入DNS挑战处理器、状态轮询器、续期观测和限流器
+    @Autowired
+    public AcmeChallengeProcessor(DnsProvider dnsProvider, ChallengePoller challengePoller, RenewalMetrics metrics,
+                                  RateLimiterRegistry rateLimiter) {
         this.dnsProvider = dnsProvider;
+        this.challengePoller = challengePoller;
+        this.metrics = metrics;
+        this.rateLimiter = rateLimiter;
     }
 
-    private static final int MAX_RETRIES = 5;
-    private static final Duration RETRY_INTERVAL = Duration.ofSeconds(10);
+    // DNS传播等待截止时间
+    @Value("${sslflux.dns.propagation.deadline:120s}")
+    private Duration propagationDeadline;
+
+    // 传播检查初始间隔，之后按1.5倍递增至上限
+    @Value("${sslflux.dns.propagation.initial-interval:500ms}")
+    private Duration propagationInitialInterval;
+
+    @Value("${sslflux.dns.propagation.max-interval:5s}")
+    private Duration propagationMaxInterval;
 
     /**
      * 处理域名授权挑战
@@ -48,23 +82,68 @@ public class AcmeChallengeProcessor {
      * @return 是否验证成功
      */
     public boolean processAuthorization(Authorization authorization, String preferredType) {
+        return processAuthorizations(List.of(authorization), preferredType);
+    }
+
+    /**
+     * 批量处理订单内全部授权：一次性准备所有记录，统一等待生效，同时触发并轮询
+     *
+     * @param authorizations 授权列表
+     * @param preferredType  优先挑战类型
+     * @return 是否全部验证成功
+     */
+    public boolean processAuthorizations(List<Authorization> authorizations, String preferredType) {
+        return validateAuthorizations(authorizations, preferredType).valid();
+    }
+
+    /**
+     * 批量处理订单内全部授权，并给出验证失败的标识
+     *
+     * @param authorizations 授权列表
+     * @param preferredType  优先挑战类型
+     * @return 验证结果；因异常或中断失败时无法确定具体标识，失败标识为空
+     */
+    public AuthorizationResult validateAuthorizations(List<Authorization> authorizations, String preferredType) {
+        List<PendingChallenge> pending = new ArrayList<>();
+        Set<String> failed = ConcurrentHashMap.newKeySet();
         try {
-            Challenge challenge = selectChallenge(authorization, preferredType);
-            if (challenge == null) {
-                log.error("没有支持的挑战类型 [Domain: {}]",
-                        authorization.getIdentifier().getDomain());
-                return false;
+            for (Authorization authorization : authorizations) {
+                // 授权对象首次读取状态时才向CA查询
+                if (limited("authorization", authorization::getStatus) == Status.VALID) {
+                    log.debug("授权已有效，跳过挑战 [Domain: {}]", authorization.getIdentifier().getDomain());
+                    continue;
+                }
+                Challenge challenge = selectChallenge(authorization, preferredType);
+                if (challenge == null) {
+                    log.error("没有支持的挑战类型 [Domain: {}]",
+                            authorization.getIdentifier().getDomain());
+                    failed.add(identifierOf(authorization));
+                    return new AuthorizationResult(false, Set.copyOf(failed));
+                }
+                pending.add(new PendingChallenge(authorization, challenge, createHandler(authorization, challenge)));
             }
-
-            ChallengeHandler handler = createHandler(authorization, challenge);
-            return handleChallenge(challenge, handler);
+            if (pending.isEmpty()) {
+                return new AuthorizationResult(true, Set.of());
+            }
+            boolean valid = handleChallenges(pending, failed);
+            return new AuthorizationResult(valid, valid ? Set.of() : Set.copyOf(failed));
         } catch (Exception ex) {
-            log.error("挑战处理失败 [Domain: {}]",
-                    authorization.getIdentifier().getDomain(), ex);
-            return false;
+            log.error("挑战处理失败 [Domains: {}]", domainsOf(authorizations), ex);
+            return new AuthorizationResult(false, Set.of());
+        } finally {
+            cleanupAll(pending);
         }
     }
 
+    /**
+     * 授权验证结果
+     *
+     * @param valid  是否全部验证成功
+     * @param failed CA判定验证失败的订单标识（通配符授权为 *.域名）
+     */
+    public record AuthorizationResult(boolean valid, Set<String> failed) {
+    }
+
     /**
      * 选择最佳挑战类型
      */
@@ -105,71 +184,214 @@ public class AcmeChallengeProcessor {
     /**
      * 执行挑战验证流程
      */
-    private boolean handleChallenge(Challenge challenge, ChallengeHandler handler) {
-        try {
+    private boolean handleChallenges(List<PendingChallenge> pending, Set<String> failed) throws Exception {
+        String domains = String.join(",", domainsOf(pending.stream().map(PendingChallenge::authorization).toList()));
+
+        // 准备阶段：一次性部署所有DNS/HTTP记录（DNS记录按区域批量提交）
+        metrics.observe(Stage.DNS_ADD, domains, () -> {
+            prepareAll(pending);
+            return null;
+        });
+
+        // 等待全部记录生效后立即触发（所有记录共用一个截止时间），超时仍触发，由CA做最终判断
+        Readiness readiness = metrics.observe(Stage.PROPAGATION_WAIT, domains, () -> awaitReady(pending),
+                Readiness::tag);
+        if (readiness == Readiness.INTERRUPTED) {
+            return false;
+        }
+
+        return metrics.observe(Stage.CHALLENGE_VALIDATION, domains, () -> validate(pending, failed),
+                valid -> valid ? "success" : "failure");
+    }
 
-            // 状态预检查
-            challenge.update(); // 首次刷新状态
-            if (challenge.getStatus() != Status.PENDING) {
-                log.warn("挑战状态异常，当前状态: {} [Type: {}]",
-                        challenge.getStatus(), challenge.getType());
-                return challenge.getStatus() == Status.VALID; // 如果已经是VALID则直接返回成功
+    /**
+     * 触发全部挑战并等待CA验证结果
+     *
+     * @param failed 输出参数，验证失败的订单标识
+     */
+    private boolean validate(List<PendingChallenge> pending, Set<String> failed) throws Exception {
+        // 同时触发全部挑战（已在处理中的挑战无需重复触发）
+        for (PendingChallenge p : pending) {
+            if (p.challenge().getStatus() == Status.PENDING) {
+                limited("challenge", () -> {
+                    p.challenge().trigger();
+                    return null;
+                });
             }
+        }
 
-            handler.prepare();
+        // 异步轮询：全部挑战共用调度线程，任一失败立即结束
+        CompletableFuture<Boolean> outcome = new CompletableFuture<>();
+        List<CompletableFuture<Status>> polls = new ArrayList<>();
+        for (PendingChallenge p : pending) {
+            String domain = p.authorization().getIdentifier().getDomain();
+            CompletableFuture<Status> poll = challengePoller.await(p.challenge());
+            poll.thenAccept(status -> {
+                if (status == Status.VALID) {
+                    log.info("挑战验证成功 [Domain: {}] [Type: {}]", domain, p.challenge().getType());
+                } else {
+                    log.error("挑战验证失败 [Domain: {}] [Error: {}]", domain, p.challenge().getError().orElse(null));
+                    failed.add(identifierOf(p.authorization()));
+                    outcome.complete(false);
+                }
+            });
+            polls.add(poll);
+        }
+        CompletableFuture.allOf(polls.toArray(new CompletableFuture[0])).whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                log.error("挑战验证未完成 [Domains: {}] [Error: {}]",
+                        domainsOf(pending.stream().map(PendingChallenge::authorization).toList()), ex.getMessage());
+            }
+            outcome.complete(ex == null && polls.stream().allMatch(f -> f.join() == Status.VALID));
+        });
+        try {
+            return outcome.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            // 提前结束时停止其余轮询
+            polls.forEach(f -> f.cancel(false));
+        }
+    }
 
-            // 触发前等待（建议）
+    /**
+     * 批量部署挑战记录：DNS记录合并为一次批量操作，其余逐个准备
+     */
+    private void prepareAll(List<PendingChallenge> pending) throws Exception {
+        List<DnsProvider.TxtRecord> txtRecords = new ArrayList<>();
+        for (PendingChallenge p : pending) {
+            if (p.handler() instanceof Dns01Handler dns) {
+                txtRecords.add(dns.record());
+            } else {
+                p.handler().prepare();
+            }
+        }
+        if (!txtRecords.isEmpty()) {
+            dnsProvider.addTxtRecords(txtRecords);
+        }
+    }
+
+    /**
+     * 批量清理挑战记录，只删除本次创建的记录
+     */
+    private void cleanupAll(List<PendingChallenge> pending) {
+        List<DnsProvider.TxtRecord> txtRecords = new ArrayList<>();
+        for (PendingChallenge p : pending) {
+            if (p.handler() instanceof Dns01Handler dns) {
+                txtRecords.add(dns.record());
+            } else {
+                p.handler().cleanup();
+            }
+        }
+        if (!txtRecords.isEmpty()) {
+            String domains = String.join(",", domainsOf(pending.stream().map(PendingChallenge::authorization).toList()));
             try {
-                Thread.sleep(3000L); // 等待DNS/HTTP配置生效
-            } catch (InterruptedException ex) {
-                Thread.currentThread().interrupt();
+                metrics.observe(Stage.DNS_CLEANUP, domains, () -> {
+                    dnsProvider.removeTxtRecords(txtRecords);
+                    return null;
+                });
+            } catch (Exception ex) {
+                log.warn("清理DNS记录失败", ex);
             }
-            challenge.trigger();
+        }
+    }
 
-            // 改进的重试机制（增加指数退避）
-            int attempts = 0;
-            long delay = RETRY_INTERVAL.toMillis();
-            while (attempts++ < MAX_RETRIES) {
+    /**
+     * 自适应轮询等待记录生效：生效即返回，超过截止时间后仍尝试触发由CA做最终判断
+     */
+    private Readiness awaitReady(List<PendingChallenge> pending) {
+        List<PendingChallenge> notReady = new ArrayList<>(pending);
+        long deadline = System.nanoTime() + propagationDeadline.toNanos();
+        long interval = propagationInitialInterval.toMillis();
+        while (true) {
+            notReady.removeIf(p -> {
                 try {
-                    challenge.update(); // 每次循环必须刷新状态
-                    Status status = challenge.getStatus();
-
-                    if (status == Status.VALID) {
-                        log.info("挑战验证成功 [Type: {}]", challenge.getType());
-                        return true;
-                    }
-
-                    if (status == Status.INVALID) {
-                        log.error("挑战验证失败 [Error: {}]", challenge.getError());
-                        return false;
-                    }
-
-                    // 改进的等待策略（指数退避）
-                    long sleepTime = (long) (delay * Math.pow(1.5, attempts));
-                    log.debug("等待挑战验证 ({}/{}), 下次等待: {}ms...",
-                            attempts, MAX_RETRIES, sleepTime);
-                    Thread.sleep(sleepTime);
-
-                } catch (AcmeException ex) {
-                    log.warn("挑战状态检查失败（{}）", ex.getMessage());
+                    return p.handler().isReady();
+                } catch (Exception ex) {
+                    log.debug("记录生效检查失败 [Domain: {}]", p.authorization().getIdentifier().getDomain(), ex);
+                    return false;
                 }
+            });
+            if (notReady.isEmpty()) {
+                log.debug("全部验证记录已生效 [Count: {}]", pending.size());
+                return Readiness.READY;
+            }
+            if (System.nanoTime() >= deadline) {
+                log.warn("验证记录传播等待超时，仍尝试触发挑战 [Pending: {}]",
+                        domainsOf(notReady.stream().map(PendingChallenge::authorization).toList()));
+                return Readiness.TIMEOUT;
+            }
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return Readiness.INTERRUPTED;
             }
+            interval = Math.min((long) (interval * 1.5), propagationMaxInterval.toMillis());
+        }
+    }
 
-            log.error("挑战验证超时");
-            return false;
-        } catch (Exception e) {
-            throw new RuntimeException("挑战处理异常", e);
-        } finally {
-            handler.cleanup();
+    /**
+     * 经共享ACME限流器发起请求，与下单、完成订单共用CA的请求配额
+     */
+    private <T> T limited(String endpoint, Callable<T> call) throws Exception {
+        return rateLimiter == null ? call.call() : rateLimiter.call(RateLimiterRegistry.ACME, endpoint, call);
+    }
+
+    /**
+     * 授权对应的订单标识，通配符授权的标识不含 *. 前缀
+     */
+    private static String identifierOf(Authorization authorization) {
+        String domain = authorization.getIdentifier().getDomain();
+        return authorization.isWildcard() ? "*." + domain : domain;
+    }
+
+    private static List<String> domainsOf(List<Authorization> authorizations) {
+        return authorizations.stream().map(a -> a.getIdentifier().getDomain()).toList();
+    }
+
+    /**
+     * 验证记录的生效情况
+     */
+    private enum Readiness {
+        // 全部生效
+        READY("success"),
+        // 超过截止时间仍有记录未生效
+        TIMEOUT("timeout"),
+        // 等待期间线程被中断
+        INTERRUPTED("interrupted");
+
+        private final String tag;
+
+        Readiness(String tag) {
+            this.tag = tag;
+        }
+
+        String tag() {
+            return tag;
         }
     }
 
+    /**
+     * 待验证的挑战
+     */
+    private record PendingChallenge(Authorization authorization, Challenge challenge, ChallengeHandler handler) {
+    }
+
     /**
      * 挑战处理器接口
      */
     public interface ChallengeHandler {
         void prepare() throws Exception;
 
+        /**
+         * 挑战记录是否已对外生效，默认部署后立即生效
+         */
+        default boolean isReady() throws Exception {
+            return true;
+        }
+
         void cleanup();
     }
 
@@ -231,10 +453,19 @@ public class AcmeChallengeProcessor {
             log.debug("DNS记录已添加: {}={}", recordName, recordValue);
         }
 
+        @Override
+        public boolean isReady() throws Exception {
+            return dnsProvider.checkPropagation(recordName, recordValue);
+        }
+
+        public DnsProvider.TxtRecord record() {
+            return new DnsProvider.TxtRecord(recordName, recordValue);
+        }
+
         @Override
         public void cleanup() {
             try {
-                dnsProvider.removeTxtRecord(recordName);
+                dnsProvider.removeTxtRecord(recordName, recordValue);
             } catch (Exception ex) {
                 log.warn("清理DNS记录失败", ex);
             }
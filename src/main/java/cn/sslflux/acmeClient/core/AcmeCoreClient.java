@@ -1,13 +1,14 @@
 package cn.sslflux.acmeClient.core;
 
+import cn.sslflux.rateLimit.RateLimiterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.shredzone.acme4j.*;
-import org.shredzone.acme4j.challenge.Challenge;
-import org.shredzone.acme4j.challenge.Http01Challenge;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.exception.AcmeServerException;
 import org.shredzone.acme4j.util.CSRBuilder;
 
+import java.io.IOException;
+import java.net.URL;
 import java.security.KeyPair;
 import java.time.Duration;
 import java.time.Instant;
@@ -23,9 +24,25 @@ import java.util.List;
 public class AcmeCoreClient {
 
     private final Account account;
+    // 账户登录信息，按URL重新绑定订单和证书时需要，为空时不支持恢复
+    private final Login login;
+    // 与其他组件共享的限流器，为空时不限流
+    private final RateLimiterRegistry rateLimiter;
 
     public AcmeCoreClient(Account account) {
+        this(account, null);
+    }
+
+    public AcmeCoreClient(Account account, RateLimiterRegistry rateLimiter) {
         this.account = account;
+        this.login = null;
+        this.rateLimiter = rateLimiter;
+    }
+
+    public AcmeCoreClient(Login login, RateLimiterRegistry rateLimiter) {
+        this.account = login.getAccount();
+        this.login = login;
+        this.rateLimiter = rateLimiter;
     }
 
     /**
@@ -44,19 +61,23 @@ public class AcmeCoreClient {
             if (validityDays != null && validityDays > 0) {
                 try {
                     orderBuilder.notAfter(Instant.now().plus(Duration.ofDays(validityDays)));
-                    return orderBuilder.create();
+                    return limited("new-order", orderBuilder::create);
                 } catch (AcmeServerException ex) {
                     if (ex.getMessage().contains("NotBefore and NotAfter")) {
                         log.warn("CA不支持自定义有效期，回退默认设置");
-                        return account.newOrder()  // 重新创建无参数构建器
-                                .domains(domains.toArray(new String[0]))
-                                .create();
+                        OrderBuilder fallback = account.newOrder()  // 重新创建无参数构建器
+                                .domains(domains.toArray(new String[0]));
+                        return limited("new-order", fallback::create);
                     }
                     throw ex;  // 其他类型异常继续抛出
                 }
             }
-            return orderBuilder.create();
+            return limited("new-order", orderBuilder::create);
         } catch (AcmeException ex) {
+            if (AccountSession.isAccountError(ex)) {
+                // 账户级错误交由调用方刷新账户缓存
+                throw new IllegalStateException("ACME账户不可用", ex);
+            }
             log.error("订单创建失败 [Domains: {}]", domains, ex);
             return null;
         }
@@ -64,49 +85,29 @@ public class AcmeCoreClient {
 
 
     /**
-     * 处理订单授权
+     * 按URL重新绑定已有订单并刷新状态，用于中断后恢复，不再新建订单
      *
-     * @param order            需要处理的订单
-     * @param challengeHandler 挑战处理器接口
-     * @return 是否所有授权处理成功
+     * @param orderUrl 订单URL
+     * @return 已刷新状态的订单
      */
-    public boolean processAuthorizations(Order order, ChallengeHandler challengeHandler) {
-        boolean allSuccess = true;
-
-        for (Authorization auth : order.getAuthorizations()) {
-            try {
-                if (auth.getStatus() == Status.PENDING) {
-                    log.debug("处理授权: {}", auth.getIdentifier().getDomain());
-
-                    Challenge challenge = selectChallenge(auth);
-                    challengeHandler.prepare(challenge);
-                    challenge.trigger();
-                    challengeHandler.validate(challenge);
-
-                    auth.update();
-                    if (auth.getStatus() != Status.VALID) {
-                        log.error("授权验证失败: {}", auth.getIdentifier().getDomain());
-                        allSuccess = false;
-                    }
-                }
-            } catch (Exception ex) {
-                log.error("授权处理异常 [Domain: {}]",
-                        auth.getIdentifier().getDomain(), ex);
-                allSuccess = false;
-            }
-        }
-
-        return allSuccess;
+    public Order bindOrder(URL orderUrl) throws AcmeException {
+        Order order = requireLogin().bindOrder(orderUrl);
+        limited("order", order::fetch);
+        return order;
     }
 
     /**
-     * 选择挑战类型 (默认选择HTTP-01)
+     * 按URL重新绑定已签发的证书，证书链在首次访问时下载
      */
-    private Challenge selectChallenge(Authorization auth) {
-        return auth.findChallenge(Http01Challenge.TYPE)
-                .orElseThrow(() -> new IllegalStateException(
-                        "No supported challenge found for domain: " +
-                                auth.getIdentifier().getDomain()));
+    public Certificate bindCertificate(URL certificateUrl) {
+        return requireLogin().bindCertificate(certificateUrl);
+    }
+
+    private Login requireLogin() {
+        if (login == null) {
+            throw new IllegalStateException("未提供账户登录信息，无法绑定已有资源");
+        }
+        return login;
     }
 
     /**
@@ -118,13 +119,17 @@ public class AcmeCoreClient {
      */
     public Certificate finalizeOrder(Order order, KeyPair keyPair) {
         try {
-            CSRBuilder csrBuilder = new CSRBuilder();
             List<String> domainList = order.getIdentifiers().stream()
                     .map(identifier -> identifier.getDomain())
                     .toList();
-            csrBuilder.addDomains(domainList.toArray(new String[0]));
-            csrBuilder.sign(keyPair);
-            order.execute(csrBuilder.getEncoded());
+            byte[] csr = buildCsr(domainList, keyPair);
+            // 恢复的订单可能已在中断前完成签发，此时直接下载证书
+            if (order.getStatus() != Status.VALID) {
+                limited("finalize", () -> {
+                    order.execute(csr);
+                    return null;
+                });
+            }
             Certificate certificate = order.getCertificate();
             log.info("证书签发成功 [Serial: {}]", certificate.getCertificate().getSerialNumber());
             return certificate;
@@ -135,11 +140,39 @@ public class AcmeCoreClient {
     }
 
     /**
-     * 挑战处理器接口
+     * 生成多SAN证书签名请求（DER编码）
+     *
+     * @param domains 证书包含的域名
+     * @param keyPair 域名密钥对
+     */
+    public static byte[] buildCsr(List<String> domains, KeyPair keyPair) throws IOException {
+        CSRBuilder csrBuilder = new CSRBuilder();
+        csrBuilder.addDomains(domains.toArray(new String[0]));
+        csrBuilder.sign(keyPair);
+        return csrBuilder.getEncoded();
+    }
+
+    /**
+     * 经共享限流器发起ACME请求，被CA限流时自动降低并发并按Retry-After退避
      */
-    public interface ChallengeHandler {
-        void prepare(Challenge challenge) throws Exception;
+    private <T> T limited(String endpoint, AcmeCall<T> call) throws AcmeException {
+        if (rateLimiter == null) {
+            return call.call();
+        }
+        try {
+            return rateLimiter.call(RateLimiterRegistry.ACME, endpoint, call::call);
+        } catch (AcmeException | RuntimeException ex) {
+            throw ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AcmeException("ACME请求被中断", ex);
+        } catch (Exception ex) {
+            throw new AcmeException("ACME请求失败", ex);
+        }
+    }
 
-        void validate(Challenge challenge) throws Exception;
+    @FunctionalInterface
+    private interface AcmeCall<T> {
+        T call() throws AcmeException;
     }
 }
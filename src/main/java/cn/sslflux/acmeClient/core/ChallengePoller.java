@@ -0,0 +1,193 @@
+package cn.sslflux.acmeClient.core;
+
+import cn.sslflux.rateLimit.RateLimiterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.shredzone.acme4j.Status;
+import org.shredzone.acme4j.challenge.Challenge;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeRateLimitedException;
+import org.shredzone.acme4j.exception.AcmeRetryAfterException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 挑战状态异步轮询器
+ * 所有待验证挑战共用一个调度线程池，等待期间不占用线程；
+ * 优先使用服务端返回的Retry-After，否则按带抖动的指数退避轮询，超过截止时间以超时结束；
+ * 状态查询经共享ACME限流器异步取得名额后在轮询线程上发出
+ * @date 2025/3/24 16:10
+ */
+@Slf4j
+@Component
+public class ChallengePoller {
+
+    private final ScheduledExecutorService scheduler;
+    private final Duration initialDelay;
+    private final Duration maxDelay;
+    private final double multiplier;
+    private final double jitter;
+    private final Duration deadline;
+    // 为空时不限流
+    private final RateLimiterRegistry rateLimiter;
+
+    public ChallengePoller(int threads, Duration initialDelay, Duration maxDelay,
+                           double multiplier, double jitter, Duration deadline) {
+        this(threads, initialDelay, maxDelay, multiplier, jitter, deadline, null);
+    }
+
+    @Autowired
+    public ChallengePoller(@Value("${sslflux.challenge.poll.threads:2}") int threads,
+                           @Value("${sslflux.challenge.poll.initial-delay:2s}") Duration initialDelay,
+                           @Value("${sslflux.challenge.poll.max-delay:30s}") Duration maxDelay,
+                           @Value("${sslflux.challenge.poll.multiplier:1.5}") double multiplier,
+                           @Value("${sslflux.challenge.poll.jitter:0.2}") double jitter,
+                           @Value("${sslflux.challenge.poll.deadline:5m}") Duration deadline,
+                           RateLimiterRegistry rateLimiter) {
+        AtomicInteger counter = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "challenge-poller-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.deadline = deadline;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * 异步等待挑战进入终态
+     *
+     * @param challenge 已触发的挑战
+     * @return 完成时为 VALID 或 INVALID；超过截止时间以 TimeoutException 异常结束
+     */
+    public CompletableFuture<Status> await(Challenge challenge) {
+        CompletableFuture<Status> result = new CompletableFuture<>();
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        schedule(new PollTask(challenge, result, deadlineNanos), initialDelay.toMillis());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void schedule(PollTask task, long delayMillis) {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(task.deadlineNanos - System.nanoTime());
+        if (remaining <= 0) {
+            task.result.completeExceptionally(new TimeoutException(
+                    "挑战验证超时 [Attempts: " + task.attempts + "] [Status: " + task.challenge.getStatus() + "]"));
+            return;
+        }
+        // 最后一次轮询落在截止时间点上，避免超时前白白等待
+        scheduler.schedule(task, Math.min(delayMillis, remaining), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 查询一次挑战状态，返回服务端建议的下次查询时间；查询在轮询线程上执行，限流名额异步等待
+     */
+    private CompletableFuture<Optional<Instant>> fetch(Challenge challenge) {
+        if (rateLimiter == null) {
+            return CompletableFuture.supplyAsync(() -> fetchNow(challenge), scheduler);
+        }
+        return rateLimiter.callAsync(RateLimiterRegistry.ACME, "challenge",
+                () -> CompletableFuture.supplyAsync(() -> fetchNow(challenge), scheduler));
+    }
+
+    private static Optional<Instant> fetchNow(Challenge challenge) {
+        try {
+            return challenge.fetch();
+        } catch (AcmeException ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    /**
+     * 计算下次轮询间隔：服务端提示优先，否则指数退避并叠加抖动
+     */
+    long nextDelay(int attempts, Optional<Instant> retryAfter) {
+        if (retryAfter.isPresent()) {
+            long hinted = Duration.between(Instant.now(), retryAfter.get()).toMillis();
+            return Math.max(hinted, 0L);
+        }
+        double base = Math.min(initialDelay.toMillis() * Math.pow(multiplier, attempts), maxDelay.toMillis());
+        double spread = base * jitter;
+        return (long) Math.max(0, base + ThreadLocalRandom.current().nextDouble(-spread, spread + 1));
+    }
+
+    /**
+     * 单个挑战的轮询任务，每次执行只刷新一次状态
+     */
+    private class PollTask implements Runnable {
+        private final Challenge challenge;
+        private final CompletableFuture<Status> result;
+        private final long deadlineNanos;
+        private int attempts;
+
+        PollTask(Challenge challenge, CompletableFuture<Status> result, long deadlineNanos) {
+            this.challenge = challenge;
+            this.result = result;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public void run() {
+            if (result.isDone()) {
+                // 调用方已放弃等待
+                return;
+            }
+            attempts++;
+            fetch(challenge).whenComplete(this::onFetched);
+        }
+
+        private void onFetched(Optional<Instant> fetched, Throwable error) {
+            if (result.isDone()) {
+                return;
+            }
+            Throwable ex = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            Optional<Instant> retryAfter;
+            if (ex == null) {
+                retryAfter = fetched;
+            } else if (ex instanceof AcmeRateLimitedException rateLimited) {
+                log.warn("挑战状态查询被限流 [Attempt: {}]", attempts);
+                retryAfter = rateLimited.getRetryAfter();
+            } else if (ex instanceof AcmeRetryAfterException retry) {
+                retryAfter = Optional.ofNullable(retry.getRetryAfter());
+            } else if (ex instanceof AcmeException) {
+                log.warn("挑战状态检查失败（{}）", ex.getMessage());
+                retryAfter = Optional.empty();
+            } else {
+                result.completeExceptionally(ex);
+                return;
+            }
+
+            Status status = challenge.getStatus();
+            if (status == Status.VALID || status == Status.INVALID) {
+                result.complete(status);
+                return;
+            }
+            long delay = nextDelay(attempts, retryAfter);
+            log.debug("等待挑战验证 [Attempt: {}] [Status: {}] [Next: {}ms]", attempts, status, delay);
+            schedule(this, delay);
+        }
+    }
+}
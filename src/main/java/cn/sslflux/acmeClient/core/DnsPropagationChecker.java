@@ -0,0 +1,170 @@
+package cn.sslflux.acmeClient.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: DNS记录传播检查
+ * 直接查询域名的权威DNS（以及可选的指定解析器）确认TXT记录已生效，
+ * 所有服务器都返回期望值才视为传播完成
+ * @date 2025/3/24 11:02
+ */
+@Slf4j
+@Component
+public class DnsPropagationChecker {
+
+    private static final String DNS_FACTORY = "com.sun.jndi.dns.DnsContextFactory";
+
+    // 额外校验的解析器，格式 host 或 host:port
+    private final List<String> resolvers;
+    // 是否查询权威DNS
+    private final boolean authoritative;
+    private final long queryTimeoutMillis;
+
+    // 区域 -> 权威DNS，运行期缓存
+    private final Map<String, List<String>> nameserverCache = new ConcurrentHashMap<>();
+    // 权威DNS查询失败、已告警过的区域
+    private final Set<String> fallbackZones = ConcurrentHashMap.newKeySet();
+
+    public DnsPropagationChecker(@Value("${sslflux.dns.propagation.resolvers:}") List<String> resolvers,
+                                 @Value("${sslflux.dns.propagation.authoritative:true}") boolean authoritative,
+                                 @Value("${sslflux.dns.propagation.query-timeout:2s}") Duration queryTimeout) {
+        this.resolvers = resolvers == null ? List.of() : resolvers.stream().filter(r -> !r.isBlank()).toList();
+        this.authoritative = authoritative;
+        this.queryTimeoutMillis = queryTimeout.toMillis();
+    }
+
+    /**
+     * 检查TXT记录是否已在全部目标DNS上生效
+     *
+     * @param recordName    记录全名，如 _acme-challenge.www.example.com
+     * @param expectedValue 期望的记录值
+     * @param zone          记录所在区域（根域名）
+     * @return 是否已生效
+     */
+    public boolean isPropagated(String recordName, String expectedValue, String zone) {
+        Set<String> servers = new LinkedHashSet<>(resolvers);
+        if (authoritative) {
+            servers.addAll(nameservers(zone));
+        }
+        if (servers.isEmpty()) {
+            // 未配置且无法获取权威DNS时退回系统解析器
+            return queryTxt(null, recordName).contains(expectedValue);
+        }
+        for (String server : servers) {
+            List<String> values = queryTxt(server, recordName);
+            if (!values.contains(expectedValue)) {
+                log.debug("TXT记录尚未生效 [Server: {}] [Name: {}] [Values: {}]", server, recordName, values);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 查询区域的权威DNS，成功的结果在运行期缓存；
+     * 查询失败或无结果时不缓存，下次检查重新查询，期间由调用方退回配置的解析器或系统解析器
+     */
+    public List<String> nameservers(String zone) {
+        List<String> cached = nameserverCache.get(zone);
+        if (cached != null) {
+            return cached;
+        }
+        List<String> servers = new ArrayList<>();
+        String error = null;
+        try {
+            Attribute ns = lookup(null, zone, "NS");
+            if (ns != null) {
+                NamingEnumeration<?> values = ns.getAll();
+                while (values.hasMore()) {
+                    servers.add(stripTrailingDot(values.next().toString()));
+                }
+            }
+        } catch (NamingException ex) {
+            error = ex.getMessage();
+        }
+        if (servers.isEmpty()) {
+            // 同一区域持续失败只告警一次，恢复后重新计
+            if (fallbackZones.add(zone)) {
+                log.warn("权威DNS查询失败，暂用配置的解析器或系统解析器 [Zone: {}] [Error: {}]", zone, error);
+            } else {
+                log.debug("权威DNS查询仍失败 [Zone: {}] [Error: {}]", zone, error);
+            }
+            return List.of();
+        }
+        if (fallbackZones.remove(zone)) {
+            log.info("权威DNS查询恢复 [Zone: {}] [Servers: {}]", zone, servers);
+        }
+        List<String> result = List.copyOf(servers);
+        nameserverCache.put(zone, result);
+        return result;
+    }
+
+    /**
+     * 查询TXT记录，不存在或查询失败返回空列表
+     *
+     * @param server 目标DNS，null表示系统解析器
+     */
+    List<String> queryTxt(String server, String recordName) {
+        List<String> result = new ArrayList<>();
+        try {
+            Attribute txt = lookup(server, recordName, "TXT");
+            if (txt != null) {
+                NamingEnumeration<?> values = txt.getAll();
+                while (values.hasMore()) {
+                    result.add(unquote(values.next().toString()));
+                }
+            }
+        } catch (NameNotFoundException ex) {
+            // 记录尚不存在
+        } catch (NamingException ex) {
+            log.debug("TXT记录查询失败 [Server: {}] [Name: {}] [Error: {}]", server, recordName, ex.getMessage());
+        }
+        return result;
+    }
+
+    private Attribute lookup(String server, String name, String type) throws NamingException {
+        Hashtable<String, String> env = new Hashtable<>();
+        env.put(DirContext.INITIAL_CONTEXT_FACTORY, DNS_FACTORY);
+        env.put(DirContext.PROVIDER_URL, server == null ? "dns:" : "dns://" + server);
+        env.put("com.sun.jndi.dns.timeout.initial", String.valueOf(queryTimeoutMillis));
+        env.put("com.sun.jndi.dns.timeout.retries", "1");
+        DirContext context = new InitialDirContext(env);
+        try {
+            Attributes attributes = context.getAttributes(name, new String[]{type});
+            return attributes.get(type);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static String stripTrailingDot(String host) {
+        return host.endsWith(".") ? host.substring(0, host.length() - 1) : host;
+    }
+}
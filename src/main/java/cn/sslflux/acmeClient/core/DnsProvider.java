@@ -1,5 +1,7 @@
 package cn.sslflux.acmeClient.core;
 
+import java.util.List;
+
 /**
  * @description: DNS挑战处理器
  * @author liuyg
@@ -10,7 +12,38 @@ public interface DnsProvider {
 
     void addTxtRecord(String name, String value) throws Exception;
 
-    void removeTxtRecord(String name) throws Exception;
+    /**
+     * 删除指定值的TXT记录，同名的其他记录（如通配符与主域名并行验证）不受影响
+     */
+    void removeTxtRecord(String name, String value) throws Exception;
 
     boolean checkPropagation(String name, String value) throws Exception;
+
+    /**
+     * 批量添加TXT记录，默认逐条添加，实现类可按区域合并
+     */
+    default void addTxtRecords(List<TxtRecord> records) throws Exception {
+        for (TxtRecord record : records) {
+            addTxtRecord(record.name(), record.value());
+        }
+    }
+
+    /**
+     * 批量删除TXT记录，单条失败不影响其余记录
+     */
+    default void removeTxtRecords(List<TxtRecord> records) {
+        for (TxtRecord record : records) {
+            try {
+                removeTxtRecord(record.name(), record.value());
+            } catch (Exception ignored) {
+                // 清理失败由实现类记录
+            }
+        }
+    }
+
+    /**
+     * TXT记录
+     */
+    record TxtRecord(String name, String value) {
+    }
 }
@@ -0,0 +1,150 @@
+package cn.sslflux.acmeClient.core;
+
+import cn.sslflux.Utils.CryptoServices;
+import cn.sslflux.acmeClient.model.CertificateValidityPeriod;
+import cn.sslflux.acmeClient.model.ProbeStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: TLS证书有效期探测器
+ * 1. 全局复用 CryptoServices 中跳过证书校验的SSLContext
+ * 2. 连接与握手均有超时，单个不可达节点不会阻塞整体扫描
+ * 3. 按配置的并发上限并行探测，并携带SNI
+ * @date 2025/3/22 16:10
+ */
+@Slf4j
+@Component
+public class TlsExpiryProber {
+
+    private static final int HTTPS_PORT = 443;
+
+    private final SSLSocketFactory socketFactory;
+    private final int connectTimeoutMillis;
+    private final int handshakeTimeoutMillis;
+    private final ExecutorService executor;
+
+    public TlsExpiryProber(@Value("${sslflux.probe.connect-timeout:5s}") Duration connectTimeout,
+                           @Value("${sslflux.probe.handshake-timeout:10s}") Duration handshakeTimeout,
+                           @Value("${sslflux.probe.concurrency:32}") int concurrency) {
+        this.socketFactory = CryptoServices.trustAllSocketFactory();
+        this.connectTimeoutMillis = (int) connectTimeout.toMillis();
+        this.handshakeTimeoutMillis = (int) handshakeTimeout.toMillis();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread thread = new Thread(r, "sslflux-probe-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 探测域名443端口的证书有效期
+     */
+    public CertificateValidityPeriod probe(String hostname) {
+        return probe(hostname, HTTPS_PORT);
+    }
+
+    /**
+     * 探测指定端口的证书有效期，失败时返回带状态的结果而非抛出异常
+     *
+     * @param hostname 域名（同时作为SNI）
+     * @param port     端口
+     * @return 探测结果
+     */
+    public CertificateValidityPeriod probe(String hostname, int port) {
+        CertificateValidityPeriod result = new CertificateValidityPeriod();
+        result.setHostname(hostname);
+        long start = System.nanoTime();
+        try (Socket raw = new Socket()) {
+            raw.connect(new InetSocketAddress(hostname, port), connectTimeoutMillis);
+            raw.setSoTimeout(handshakeTimeoutMillis);
+            try (SSLSocket socket = (SSLSocket) socketFactory.createSocket(raw, hostname, port, false)) {
+                applySni(socket, hostname);
+                socket.startHandshake();
+
+                Certificate[] certs = socket.getSession().getPeerCertificates();
+                X509Certificate x509 = (X509Certificate) certs[0];
+                result.setNotBefore(x509.getNotBefore());
+                result.setNotAfter(x509.getNotAfter());
+                result.setProbeStatus(ProbeStatus.SUCCESS);
+            }
+        } catch (SocketTimeoutException ex) {
+            fail(result, ProbeStatus.TIMEOUT, ex);
+        } catch (ConnectException ex) {
+            fail(result, ProbeStatus.REFUSED, ex);
+        } catch (UnknownHostException ex) {
+            fail(result, ProbeStatus.UNKNOWN_HOST, ex);
+        } catch (Exception ex) {
+            fail(result, ProbeStatus.FAILED, ex);
+        } finally {
+            result.setProbeMillis(Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+        return result;
+    }
+
+    /**
+     * 异步探测
+     */
+    public CompletableFuture<CertificateValidityPeriod> probeAsync(String hostname) {
+        return CompletableFuture.supplyAsync(() -> probe(hostname), executor);
+    }
+
+    /**
+     * 并发探测一批域名，结果顺序与入参一致
+     */
+    public List<CertificateValidityPeriod> probeAll(Collection<String> hostnames) {
+        List<CompletableFuture<CertificateValidityPeriod>> futures = new ArrayList<>(hostnames.size());
+        hostnames.forEach(hostname -> futures.add(probeAsync(hostname)));
+        List<CertificateValidityPeriod> results = new ArrayList<>(futures.size());
+        futures.forEach(future -> results.add(future.join()));
+        return results;
+    }
+
+    private void fail(CertificateValidityPeriod result, ProbeStatus status, Exception ex) {
+        result.setProbeStatus(status);
+        result.setProbeMessage(ex.getMessage());
+        log.warn("证书探测失败 [Domain: {}] [Status: {}] [Error: {}]",
+                result.getHostname(), status, ex.getMessage());
+    }
+
+    private void applySni(SSLSocket socket, String hostname) {
+        try {
+            SSLParameters params = socket.getSSLParameters();
+            params.setServerNames(List.of(new SNIHostName(hostname)));
+            socket.setSSLParameters(params);
+        } catch (IllegalArgumentException ex) {
+            // IP地址或非法主机名不发送SNI
+            log.debug("主机名不支持SNI [Host: {}]", hostname);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package cn.sslflux.acmeClient.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 证书签发计划，一张多SAN证书对应多个CDN域名
+ * @date 2025/3/23 15:10
+ */
+@Data
+public class CertificatePlan {
+
+    // 可注册域名（根域名），同一计划内的域名共享
+    private String registrableDomain;
+    // 订单标识（SAN），可能包含通配符
+    private List<String> identifiers = new ArrayList<>();
+    // 需要部署该证书的CDN域名
+    private List<String> targets = new ArrayList<>();
+}
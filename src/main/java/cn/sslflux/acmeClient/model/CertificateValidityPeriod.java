@@ -17,4 +17,10 @@ public class CertificateValidityPeriod {
     private  Date notBefore;
     private  Date notAfter;
     private  String hostname;
+    // 探测状态，未探测时为空
+    private  ProbeStatus probeStatus;
+    // 探测失败原因
+    private  String probeMessage;
+    // 探测耗时（毫秒）
+    private  long probeMillis;
 }
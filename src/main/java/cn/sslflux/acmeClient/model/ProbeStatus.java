@@ -0,0 +1,20 @@
+package cn.sslflux.acmeClient.model;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: TLS探测结果状态
+ * @date 2025/3/22 16:05
+ */
+public enum ProbeStatus {
+    // 握手成功并取得证书
+    SUCCESS,
+    // 连接或握手超时
+    TIMEOUT,
+    // 连接被拒绝（端口未开放）
+    REFUSED,
+    // 域名无法解析
+    UNKNOWN_HOST,
+    // 握手失败或其他异常
+    FAILED
+}
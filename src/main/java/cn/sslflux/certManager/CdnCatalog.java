@@ -0,0 +1,159 @@
+package cn.sslflux.certManager;
+
+import cn.sslflux.certManager.model.CatalogChange;
+import cn.sslflux.cloudAdapters.model.CdnDomainInfo;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: CDN域名目录快照
+ * 持久化上次枚举到的域名状态，每次巡检与之比对得出新增、变更、删除和未变化的域名；
+ * 配置变化的域名必须在线探测，只有证书状态已确认（探测成功或台账可直接使用）的域名才写入快照，
+ * 探测失败的域名保留旧状态，下一轮仍判定为变化并重新探测
+ * @date 2025/3/25 14:30
+ */
+@Slf4j
+@Component
+public class CdnCatalog {
+
+    @Value("${sslflux.inventory.catalog-file:certs/cdn-catalog.json}")
+    private String catalogFile;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Map<String, CdnDomainInfo> snapshot = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        Path path = Paths.get(catalogFile);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            List<CdnDomainInfo> loaded = objectMapper.readValue(path.toFile(),
+                    new TypeReference<List<CdnDomainInfo>>() {
+                    });
+            loaded.forEach(info -> snapshot.put(info.getDomainName(), info));
+            log.info("CDN域名快照已加载 [Domains: {}]", snapshot.size());
+        } catch (Exception ex) {
+            log.error("CDN域名快照加载失败，本次巡检视为全部新增 [Path: {}]", path, ex);
+        }
+    }
+
+    /**
+     * 开始一次同步，同步期间可在多个线程上调用 observe
+     */
+    public Sync begin() {
+        return new Sync();
+    }
+
+    /**
+     * 单次巡检的同步过程
+     */
+    public class Sync {
+        private final Map<String, CdnDomainInfo> seen = new ConcurrentHashMap<>();
+        // 证书状态已确认、可以写入快照的域名
+        private final Map<String, CdnDomainInfo> confirmed = new ConcurrentHashMap<>();
+        private final Map<CatalogChange, Integer> counts = new EnumMap<>(CatalogChange.class);
+
+        /**
+         * 记录本次枚举到的域名并返回其变化类型
+         */
+        public CatalogChange observe(CdnDomainInfo current) {
+            seen.put(current.getDomainName(), current);
+            CdnDomainInfo previous = snapshot.get(current.getDomainName());
+            CatalogChange change;
+            if (previous == null) {
+                change = CatalogChange.ADDED;
+            } else if (sameState(previous, current)) {
+                change = CatalogChange.UNCHANGED;
+            } else {
+                change = CatalogChange.CHANGED;
+            }
+            synchronized (counts) {
+                counts.merge(change, 1, Integer::sum);
+            }
+            return change;
+        }
+
+        /**
+         * 确认域名的证书状态（探测成功或直接使用台账），结束同步时其当前状态才写入快照
+         */
+        public void confirm(String domainName) {
+            CdnDomainInfo current = seen.get(domainName);
+            if (current != null) {
+                confirmed.put(domainName, current);
+            }
+        }
+
+        /**
+         * 结束同步并保存快照，未确认的域名保留上次的状态
+         *
+         * @param complete 是否完整枚举；不完整时保留未出现的旧记录，避免误判为删除
+         * @return 本次被删除的域名
+         */
+        public List<String> finish(boolean complete) {
+            List<String> removed = new ArrayList<>();
+            if (complete) {
+                snapshot.keySet().stream().filter(name -> !seen.containsKey(name)).forEach(removed::add);
+                removed.forEach(snapshot::remove);
+            }
+            snapshot.putAll(confirmed);
+            save();
+            log.info("CDN域名同步完成 [Added: {}] [Changed: {}] [Unchanged: {}] [Removed: {}] [Unconfirmed: {}]",
+                    counts.getOrDefault(CatalogChange.ADDED, 0),
+                    counts.getOrDefault(CatalogChange.CHANGED, 0),
+                    counts.getOrDefault(CatalogChange.UNCHANGED, 0),
+                    removed.size(),
+                    seen.size() - confirmed.size());
+            if (!removed.isEmpty()) {
+                log.info("CDN域名已删除 [Domains: {}]", removed);
+            }
+            return removed;
+        }
+    }
+
+    private static boolean sameState(CdnDomainInfo previous, CdnDomainInfo current) {
+        return Objects.equals(previous.getDomainStatus(), current.getDomainStatus())
+                && Objects.equals(previous.getSslProtocol(), current.getSslProtocol())
+                && Objects.equals(previous.getCname(), current.getCname())
+                && Objects.equals(previous.getGmtModified(), current.getGmtModified());
+    }
+
+    /**
+     * 原子写入快照文件
+     */
+    private synchronized void save() {
+        try {
+            Path path = Paths.get(catalogFile);
+            if (path.getParent() != null && !Files.exists(path.getParent())) {
+                Files.createDirectories(path.getParent());
+            }
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter()
+                    .writeValue(tmp.toFile(), List.copyOf(snapshot.values()));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.error("CDN域名快照保存失败 [Path: {}]", catalogFile, ex);
+        }
+    }
+}
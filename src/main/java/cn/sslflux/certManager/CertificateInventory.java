@@ -0,0 +1,314 @@
+package cn.sslflux.certManager;
+
+import cn.sslflux.Utils.CryptoServices;
+import cn.sslflux.acmeClient.model.CertificateValidityPeriod;
+import cn.sslflux.certManager.model.CatalogChange;
+import cn.sslflux.certManager.model.CertificateRecord;
+import cn.sslflux.certManager.model.DeployStatus;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 本地证书台账
+ * 签发时记录证书有效期、序列号、公钥指纹和部署状态，每日巡检直接读取台账判断是否续期，
+ * 仅在探测间隔到期或部署状态不确定时才在线探测以发现漂移；
+ * 变更只在内存中标记，每轮巡检、每批部署结束时及定期写入一次台账文件，避免每条变更都重写整个文件
+ * @date 2025/3/23 10:20
+ */
+@Slf4j
+@Component
+public class CertificateInventory {
+
+    private static final String CERT_SUFFIX = "_cert.pem";
+
+    @Value("${sslflux.inventory.file:certs/inventory.json}")
+    private String inventoryFile;
+
+    @Value("${sslflux.inventory.certs-dir:certs}")
+    private String certsDir;
+
+    // 台账命中时的在线探测间隔
+    @Value("${sslflux.inventory.probe-interval:7d}")
+    private Duration probeInterval;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Map<String, CertificateRecord> records = new ConcurrentHashMap<>();
+    // 内存中有尚未写入台账文件的变更
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    @PostConstruct
+    public void load() {
+        Path path = Paths.get(inventoryFile);
+        try {
+            if (Files.exists(path)) {
+                List<CertificateRecord> loaded = objectMapper.readValue(path.toFile(),
+                        new TypeReference<List<CertificateRecord>>() {
+                        });
+                loaded.forEach(record -> records.put(record.getHostname(), record));
+                log.info("证书台账已加载 [Records: {}]", records.size());
+            } else {
+                importFromCertsDir();
+            }
+        } catch (Exception ex) {
+            log.error("证书台账加载失败，将在本次巡检中全部在线探测 [Path: {}]", path, ex);
+        }
+    }
+
+    public Optional<CertificateRecord> get(String hostname) {
+        return Optional.ofNullable(records.get(hostname));
+    }
+
+    /**
+     * 判断是否需要在线探测：无记录、部署未确认或超过探测间隔；仅有探测结果的记录按探测间隔复查
+     */
+    public boolean needsProbe(String hostname) {
+        CertificateRecord record = records.get(hostname);
+        if (record == null || (record.getDeployStatus() != DeployStatus.DEPLOYED
+                && record.getDeployStatus() != DeployStatus.PROBED)) {
+            return true;
+        }
+        Date lastProbedAt = record.getLastProbedAt();
+        Date reference = lastProbedAt != null ? lastProbedAt : record.getIssuedAt();
+        return reference == null
+                || reference.toInstant().plus(probeInterval).isBefore(new Date().toInstant());
+    }
+
+    /**
+     * 结合CDN域名变化判断是否需要在线探测：配置变化的域名线上证书可能已被替换，立即探测；
+     * 其余域名按台账判断，探测间隔始终是复查的上限
+     */
+    public boolean needsProbe(String hostname, CatalogChange change) {
+        return change == CatalogChange.CHANGED || needsProbe(hostname);
+    }
+
+    /**
+     * 将台账记录转换为有效期对象，供续期判断使用
+     */
+    public CertificateValidityPeriod toValidityPeriod(CertificateRecord record) {
+        CertificateValidityPeriod period = new CertificateValidityPeriod();
+        period.setHostname(record.getHostname());
+        period.setNotBefore(record.getNotBefore());
+        period.setNotAfter(record.effectiveNotAfter());
+        return period;
+    }
+
+    /**
+     * 签发后登记证书
+     */
+    public synchronized void recordIssued(String hostname, X509Certificate leaf, Path certFile) {
+        CertificateRecord record = new CertificateRecord();
+        record.setHostname(hostname);
+        record.setNotBefore(leaf.getNotBefore());
+        record.setNotAfter(leaf.getNotAfter());
+        record.setSerial(leaf.getSerialNumber().toString(16));
+        record.setKeyFingerprint(keyFingerprint(leaf));
+        record.setCertFingerprint(certFingerprint(leaf));
+        record.setDeployStatus(DeployStatus.PENDING);
+        record.setCertFile(certFile != null ? certFile.toString() : null);
+        record.setIssuedAt(new Date());
+        records.put(hostname, record);
+        markDirty();
+    }
+
+    public synchronized void updateDeployStatus(String hostname, DeployStatus status) {
+        CertificateRecord record = records.get(hostname);
+        if (record != null) {
+            record.setDeployStatus(status);
+            markDirty();
+        }
+    }
+
+    /**
+     * 记录部署结果及CDN上使用的证书
+     */
+    public synchronized void recordDeployed(String hostname, DeployStatus status, String certName, Long certId) {
+        CertificateRecord record = records.get(hostname);
+        if (record != null) {
+            record.setDeployStatus(status);
+            if (status == DeployStatus.DEPLOYED) {
+                record.setCertName(certName);
+                record.setCertId(certId);
+            }
+            markDirty();
+        }
+    }
+
+    /**
+     * 查找已部署过指定证书的记录，用于其他域名直接引用
+     */
+    public Optional<CertificateRecord> findDeployedByFingerprint(String certFingerprint) {
+        return records.values().stream()
+                .filter(record -> certFingerprint.equals(record.getCertFingerprint()))
+                .filter(record -> record.getDeployStatus() == DeployStatus.DEPLOYED && record.getCertId() != null)
+                .findFirst();
+    }
+
+    /**
+     * 记录在线探测结果，并检测与台账不一致的漂移；台账中没有的域名保存为仅探测记录，
+     * 探测间隔内的巡检直接使用该结果
+     */
+    public synchronized void recordProbe(CertificateValidityPeriod probed) {
+        if (probed.getNotAfter() == null) {
+            return;
+        }
+        CertificateRecord record = records.get(probed.getHostname());
+        if (record == null || record.getDeployStatus() == DeployStatus.PROBED) {
+            if (record == null) {
+                record = new CertificateRecord();
+                record.setHostname(probed.getHostname());
+                record.setDeployStatus(DeployStatus.PROBED);
+                records.put(probed.getHostname(), record);
+            }
+            record.setNotBefore(probed.getNotBefore());
+            record.setNotAfter(probed.getNotAfter());
+            record.setLastProbedAt(new Date());
+            markDirty();
+            return;
+        }
+        if (!probed.getNotAfter().equals(record.getNotAfter())) {
+            log.warn("检测到证书漂移 [Domain: {}] [Inventory: {}] [Served: {}]",
+                    probed.getHostname(), record.getNotAfter(), probed.getNotAfter());
+            record.setServedNotAfter(probed.getNotAfter());
+        } else {
+            record.setServedNotAfter(null);
+            if (record.getDeployStatus() != DeployStatus.DEPLOYED) {
+                // 线上已是台账中的证书，说明部署实际已生效
+                record.setDeployStatus(DeployStatus.DEPLOYED);
+            }
+        }
+        record.setLastProbedAt(new Date());
+        markDirty();
+    }
+
+    /**
+     * 有未保存的变更时写入台账文件，定期执行并在退出时执行
+     */
+    @Scheduled(fixedDelayString = "${sslflux.inventory.flush-interval:30s}")
+    @PreDestroy
+    public void flush() {
+        if (dirty.get()) {
+            save();
+        }
+    }
+
+    private void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * 原子写入台账文件，写入失败时保留未保存标记，下次刷新时重试
+     */
+    public synchronized void save() {
+        dirty.set(false);
+        try {
+            Path path = Paths.get(inventoryFile);
+            if (path.getParent() != null && !Files.exists(path.getParent())) {
+                Files.createDirectories(path.getParent());
+            }
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter()
+                    .writeValue(tmp.toFile(), List.copyOf(records.values()));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            dirty.set(true);
+            log.error("证书台账保存失败 [Path: {}]", inventoryFile, ex);
+        }
+    }
+
+    /**
+     * 首次运行时从证书目录导入历史证书，文件名格式：域名_时间戳_cert.pem
+     */
+    private void importFromCertsDir() throws IOException {
+        Path dir = Paths.get(certsDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(CERT_SUFFIX))
+                    .forEach(this::importCertFile);
+        }
+        if (!records.isEmpty()) {
+            log.info("已从证书目录导入台账 [Records: {}]", records.size());
+            save();
+        }
+    }
+
+    private void importCertFile(Path file) {
+        String fileName = file.getFileName().toString();
+        int separator = fileName.indexOf('_');
+        if (separator <= 0) {
+            return;
+        }
+        String hostname = fileName.substring(0, separator);
+        try {
+            X509Certificate leaf;
+            try (InputStream in = Files.newInputStream(file)) {
+                // 证书链文件首个证书为叶子证书
+                leaf = CryptoServices.parseCertificate(in);
+            }
+            CertificateRecord existing = records.get(hostname);
+            if (existing != null && !leaf.getNotAfter().after(existing.getNotAfter())) {
+                return;
+            }
+            CertificateRecord record = new CertificateRecord();
+            record.setHostname(hostname);
+            record.setNotBefore(leaf.getNotBefore());
+            record.setNotAfter(leaf.getNotAfter());
+            record.setSerial(leaf.getSerialNumber().toString(16));
+            record.setKeyFingerprint(keyFingerprint(leaf));
+            record.setCertFingerprint(certFingerprint(leaf));
+            record.setDeployStatus(DeployStatus.UNKNOWN);
+            record.setCertFile(file.toString());
+            records.put(hostname, record);
+        } catch (Exception ex) {
+            log.warn("历史证书导入失败 [File: {}]", file, ex);
+        }
+    }
+
+    private static String keyFingerprint(X509Certificate cert) {
+        return sha256Hex(cert.getPublicKey().getEncoded());
+    }
+
+    /**
+     * 证书指纹：SHA-256(DER)
+     */
+    public static String certFingerprint(X509Certificate cert) {
+        try {
+            return sha256Hex(cert.getEncoded());
+        } catch (CertificateEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String sha256Hex(byte[] data) {
+        return HexFormat.of().formatHex(CryptoServices.sha256(data));
+    }
+}
@@ -0,0 +1,128 @@
+package cn.sslflux.certManager;
+
+import cn.sslflux.certManager.model.KeyAlgorithm;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.KeyPair;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 域名密钥池
+ * 后台线程预先生成域名密钥对，签发时直接取用，避免密钥生成（RSA尤其耗时且波动大）阻塞签发阶段；
+ * 续期批次开始前按订单数量扩充池容量，池空时退回同步生成
+ * @date 2025/3/25 09:55
+ */
+@Slf4j
+@Component
+public class DomainKeyPool {
+
+    // 密钥算法：RSA_2048 / RSA_3072 / RSA_4096 / EC_P256 / EC_P384
+    @Value("${sslflux.key.algorithm:RSA_2048}")
+    private KeyAlgorithm algorithm;
+
+    // 常驻池容量
+    @Value("${sslflux.key.pool-size:4}")
+    private int poolSize;
+
+    // 按批次扩充时的容量上限
+    @Value("${sslflux.key.max-pool-size:64}")
+    private int maxPoolSize;
+
+    @Value("${sslflux.key.generator-threads:1}")
+    private int generatorThreads;
+
+    private final BlockingQueue<KeyPair> pool = new LinkedBlockingQueue<>();
+    // 已提交但尚未完成的生成任务
+    private final AtomicInteger generating = new AtomicInteger();
+    // 当前期望的池内密钥数量
+    private final AtomicInteger target = new AtomicInteger();
+    private ExecutorService generator;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        generator = Executors.newFixedThreadPool(Math.max(1, generatorThreads), r -> {
+            Thread thread = new Thread(r, "key-pool-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            // 低优先级，避免与在线请求争抢CPU
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        target.set(Math.max(0, poolSize));
+        refill();
+        log.info("域名密钥池已启动 [Algorithm: {}] [PoolSize: {}]", algorithm, poolSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        generator.shutdownNow();
+    }
+
+    public KeyAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * 按即将签发的证书数量扩充池容量，在批次开始前调用使密钥提前就绪
+     *
+     * @param expected 预计需要的密钥数量
+     */
+    public void reserve(int expected) {
+        int desired = Math.min(Math.max(poolSize, expected), Math.max(poolSize, maxPoolSize));
+        target.accumulateAndGet(desired, Math::max);
+        refill();
+    }
+
+    /**
+     * 取出一个密钥对，池空时同步生成
+     */
+    public KeyPair take() {
+        KeyPair keyPair = pool.poll();
+        if (keyPair == null) {
+            log.debug("密钥池为空，同步生成密钥 [Algorithm: {}]", algorithm);
+            keyPair = algorithm.generate();
+        }
+        // 批次消耗后逐步回落到常驻容量
+        target.accumulateAndGet(poolSize, (current, floor) -> Math.max(floor, current - 1));
+        refill();
+        return keyPair;
+    }
+
+    public int available() {
+        return pool.size();
+    }
+
+    /**
+     * 补充后台生成任务直到池内（含生成中）数量达到期望值
+     */
+    private void refill() {
+        while (pool.size() + generating.get() < target.get()) {
+            generating.incrementAndGet();
+            try {
+                generator.execute(() -> {
+                    try {
+                        pool.offer(algorithm.generate());
+                    } catch (RuntimeException ex) {
+                        log.error("后台密钥生成失败 [Algorithm: {}]", algorithm, ex);
+                    } finally {
+                        generating.decrementAndGet();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                // 线程池已关闭
+                generating.decrementAndGet();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package cn.sslflux.certManager.model;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: CDN域名相对上次快照的变化
+ * @date 2025/3/25 14:20
+ */
+public enum CatalogChange {
+    // 新增域名
+    ADDED,
+    // 状态、HTTPS开关、CNAME或配置修改时间发生变化
+    CHANGED,
+    // 与上次快照一致
+    UNCHANGED
+}
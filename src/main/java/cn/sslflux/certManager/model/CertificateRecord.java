@@ -0,0 +1,43 @@
+package cn.sslflux.certManager.model;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 证书台账记录，按域名保存签发信息与部署状态
+ * @date 2025/3/23 10:05
+ */
+@Data
+public class CertificateRecord {
+
+    private String hostname;
+    private Date notBefore;
+    private Date notAfter;
+    // 证书序列号（十六进制）
+    private String serial;
+    // 公钥指纹 SHA-256(SubjectPublicKeyInfo)
+    private String keyFingerprint;
+    // 叶子证书指纹 SHA-256(DER)，用于判断线上是否已是同一张证书
+    private String certFingerprint;
+    private DeployStatus deployStatus;
+    // CDN上使用的证书名称与证书管理服务中的ID，多个域名共享同一张证书时复用
+    private String certName;
+    private Long certId;
+    // 本地证书文件路径
+    private String certFile;
+    private Date issuedAt;
+    // 最近一次在线探测时间
+    private Date lastProbedAt;
+    // 最近一次在线探测到的到期时间，与台账不一致时说明证书被外部替换
+    private Date servedNotAfter;
+
+    /**
+     * 判断续期时采用的到期时间：探测到漂移时以线上实际证书为准
+     */
+    public Date effectiveNotAfter() {
+        return servedNotAfter != null ? servedNotAfter : notAfter;
+    }
+}
@@ -0,0 +1,20 @@
+package cn.sslflux.certManager.model;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 证书部署状态
+ * @date 2025/3/23 10:02
+ */
+public enum DeployStatus {
+    // 已签发，尚未部署
+    PENDING,
+    // 已部署到CDN
+    DEPLOYED,
+    // 部署失败
+    FAILED,
+    // 从历史证书文件导入，部署情况未知
+    UNKNOWN,
+    // 非本系统签发，仅记录在线探测到的证书
+    PROBED
+}
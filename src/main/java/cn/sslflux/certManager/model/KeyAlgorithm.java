@@ -0,0 +1,34 @@
+package cn.sslflux.certManager.model;
+
+import cn.sslflux.Utils.CryptoServices;
+
+import java.security.KeyPair;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 域名证书密钥算法
+ * EC密钥生成和签名开销远低于RSA，证书体积也更小；RSA用于兼容老旧客户端
+ * @date 2025/3/25 09:40
+ */
+public enum KeyAlgorithm {
+
+    RSA_2048,
+    RSA_3072,
+    RSA_4096,
+    EC_P256,
+    EC_P384;
+
+    /**
+     * 生成该算法的密钥对
+     */
+    public KeyPair generate() {
+        return switch (this) {
+            case RSA_2048 -> CryptoServices.generateRsaKeyPair(2048);
+            case RSA_3072 -> CryptoServices.generateRsaKeyPair(3072);
+            case RSA_4096 -> CryptoServices.generateRsaKeyPair(4096);
+            case EC_P256 -> CryptoServices.generateEcKeyPair("secp256r1");
+            case EC_P384 -> CryptoServices.generateEcKeyPair("secp384r1");
+        };
+    }
+}
@@ -1,22 +1,27 @@
 package cn.sslflux.cloudAdapters;
 
-import cn.sslflux.acmeClient.core.CertificateExpirationChecker;
-import cn.sslflux.acmeClient.model.CertificateValidityPeriod;
-import com.aliyun.auth.credentials.Credential;
-import com.aliyun.auth.credentials.provider.StaticCredentialProvider;
-import com.aliyun.sdk.service.cdn20180510.AsyncClient;
+import cn.sslflux.cloudAdapters.model.CdnDomainInfo;
+import cn.sslflux.rateLimit.RateLimiterRegistry;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeDomainCertificateInfoRequest;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeDomainCertificateInfoResponse;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeDomainCertificateInfoResponseBody;
 import com.aliyun.sdk.service.cdn20180510.models.DescribeUserDomainsRequest;
 import com.aliyun.sdk.service.cdn20180510.models.DescribeUserDomainsResponse;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeUserDomainsResponseBody;
 import com.aliyun.sdk.service.cdn20180510.models.SetCdnDomainSSLCertificateRequest;
 import com.aliyun.sdk.service.cdn20180510.models.SetCdnDomainSSLCertificateResponse;
-import darabonba.core.client.ClientOverrideConfiguration;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * @author liuyg
@@ -28,50 +33,121 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public class AliyunCDN {
 
-    @Value("${sslflux.cloud.aliyun.access-key}")
-    private String ACCESS_KEY;
-    @Value("${sslflux.cloud.aliyun.secret-key}")
-    private String SECRET_KEY;
-
-    public List<CertificateValidityPeriod> getDomainList() {
-
-        StaticCredentialProvider provider = StaticCredentialProvider.create(Credential.builder()
-                .accessKeyId(ACCESS_KEY)
-                .accessKeySecret(SECRET_KEY)
-                .build());
-        AsyncClient client = AsyncClient.builder()
-                .region("cn-beijing") // Region ID
-                .credentialsProvider(provider)
-                .overrideConfiguration(ClientOverrideConfiguration.create().setEndpointOverride("cdn.aliyuncs.com"))
-                .build();
-        DescribeUserDomainsRequest describeUserDomainsRequest = DescribeUserDomainsRequest.builder().pageSize(500).build();
-        CompletableFuture<DescribeUserDomainsResponse> response = client.describeUserDomains(describeUserDomainsRequest);
-        DescribeUserDomainsResponse resp = null;
+    @Autowired
+    private AliyunClientRegistry clientRegistry;
+
+    @Autowired
+    private RateLimiterRegistry rateLimiter;
+
+    // 单页域名数量（接口上限500）
+    @Value("${sslflux.cloud.aliyun.cdn-page-size:500}")
+    private int pageSize;
+
+    // 证书管理服务所在地域，引用已上传证书时使用
+    @Value("${sslflux.cloud.aliyun.cas-region:cn-hangzhou}")
+    private String casRegion;
+
+    // 已知总数后并发拉取的页数
+    @Value("${sslflux.cloud.aliyun.cdn-page-concurrency:4}")
+    private int pageConcurrency;
+
+    /**
+     * 获取全部CDN加速域名列表
+     */
+    public List<String> listDomainNames() {
+        List<String> hostnames = Collections.synchronizedList(new ArrayList<>());
+        streamDomains(info -> hostnames.add(info.getDomainName()));
+        return new ArrayList<>(hostnames);
+    }
+
+    /**
+     * 分页枚举CDN加速域名，每页到达即推送给消费者，便于下游与枚举并行处理
+     * 先同步拉取第一页获得总数，其余页并发拉取，消费者可能在多个线程上被调用
+     *
+     * @param consumer 域名消费者，需线程安全
+     * @return 是否完整枚举了全部域名
+     */
+    public boolean streamDomains(Consumer<CdnDomainInfo> consumer) {
+        DescribeUserDomainsResponseBody first;
         try {
-            resp = response.get();
+            first = fetchPage(1).get().getBody();
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("获取CDN域名列表失败，错误信息：", e);
+            return false;
+        }
+        AtomicInteger emitted = new AtomicInteger(emit(first, consumer));
+
+        long total = first.getTotalCount() == null ? 0 : first.getTotalCount();
+        int pages = (int) ((total + pageSize - 1) / pageSize);
+        if (pages > 1) {
+            // 多条并发通道按页号依次领取剩余页
+            AtomicInteger nextPage = new AtomicInteger(2);
+            List<CompletableFuture<Void>> lanes = new ArrayList<>();
+            for (int i = 0; i < Math.min(Math.max(1, pageConcurrency), pages - 1); i++) {
+                lanes.add(drainPages(nextPage, pages, consumer, emitted));
+            }
+            CompletableFuture.allOf(lanes.toArray(new CompletableFuture[0])).join();
+        }
+        if (emitted.get() < total) {
+            log.warn("CDN域名枚举不完整 [Total: {}] [Fetched: {}]", total, emitted.get());
+            return false;
         }
+        log.info("CDN域名枚举完成 [Total: {}] [Pages: {}]", emitted.get(), Math.max(pages, 1));
+        return true;
+    }
 
-        // 创建一个List来存储域名
-        List<CertificateValidityPeriod> domainList = new ArrayList<>();
-        resp.getBody().getDomains().getPageData().forEach(domain -> {
-            domainList.add(CertificateExpirationChecker.checkDomainCertificateExpiration(domain.getDomainName()));
-        });
-        client.close();
-        return domainList;
+    /**
+     * 单条通道：领取下一页，完成后继续领取，直到全部页领取完毕
+     */
+    private CompletableFuture<Void> drainPages(AtomicInteger nextPage, int pages,
+                                               Consumer<CdnDomainInfo> consumer, AtomicInteger emitted) {
+        int page = nextPage.getAndIncrement();
+        if (page > pages) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return fetchPage(page)
+                // 单页失败重试一次，避免整页域名被遗漏
+                .exceptionallyComposeAsync(ex -> {
+                    log.warn("CDN域名分页拉取失败，重试 [Page: {}] [Error: {}]", page, ex.getMessage());
+                    return fetchPage(page);
+                })
+                .thenAccept(resp -> emitted.addAndGet(emit(resp.getBody(), consumer)))
+                .exceptionally(ex -> {
+                    log.error("CDN域名分页拉取失败 [Page: {}]", page, ex);
+                    return null;
+                })
+                // 限流名额异步发放，回调线程领取下一页时不会被阻塞
+                .thenCompose(ignored -> drainPages(nextPage, pages, consumer, emitted));
     }
 
-    public boolean setCdnDomainSSLCertificate(String domainName, String certName, String sslpub, String sslpri) {
-        StaticCredentialProvider provider = StaticCredentialProvider.create(Credential.builder()
-                .accessKeyId(ACCESS_KEY)
-                .accessKeySecret(SECRET_KEY)
-                .build());
-        AsyncClient client = AsyncClient.builder()
-                .region("cn-beijing") // Region ID
-                .credentialsProvider(provider)
-                .overrideConfiguration(ClientOverrideConfiguration.create().setEndpointOverride("cdn.aliyuncs.com"))
+    private CompletableFuture<DescribeUserDomainsResponse> fetchPage(int page) {
+        DescribeUserDomainsRequest request = DescribeUserDomainsRequest.builder()
+                .pageSize(pageSize)
+                .pageNumber(page)
                 .build();
+        return rateLimiter.callAsync(RateLimiterRegistry.ALIYUN_CDN, "DescribeUserDomains",
+                () -> clientRegistry.cdnAsync(client -> client.describeUserDomains(request)));
+    }
+
+    private int emit(DescribeUserDomainsResponseBody body, Consumer<CdnDomainInfo> consumer) {
+        if (body == null || body.getDomains() == null || body.getDomains().getPageData() == null) {
+            return 0;
+        }
+        int count = 0;
+        for (DescribeUserDomainsResponseBody.PageData domain : body.getDomains().getPageData()) {
+            CdnDomainInfo info = new CdnDomainInfo();
+            info.setDomainName(domain.getDomainName());
+            info.setDomainStatus(domain.getDomainStatus());
+            info.setSslProtocol(domain.getSslProtocol());
+            info.setCname(domain.getCname());
+            info.setGmtModified(domain.getGmtModified());
+            consumer.accept(info);
+            count++;
+        }
+        return count;
+    }
+
+    public boolean setCdnDomainSSLCertificate(String domainName, String certName, String sslpub, String sslpri) {
         SetCdnDomainSSLCertificateRequest setCdnDomainSSLCertificateRequest = SetCdnDomainSSLCertificateRequest.builder()
                 .domainName(domainName)
                 .certName(certName)
@@ -82,16 +158,67 @@ public class AliyunCDN {
                 //证书私钥
                 .SSLPri(sslpri)
                 .build();
-        CompletableFuture<SetCdnDomainSSLCertificateResponse> response = client.setCdnDomainSSLCertificate(setCdnDomainSSLCertificateRequest);
-        SetCdnDomainSSLCertificateResponse resp = null;
+        SetCdnDomainSSLCertificateResponse resp;
         try {
-            resp = response.get();
+            resp = rateLimiter.call(RateLimiterRegistry.ALIYUN_CDN, "SetCdnDomainSSLCertificate",
+                    () -> clientRegistry.cdn(client -> client.setCdnDomainSSLCertificate(setCdnDomainSSLCertificateRequest)));
         } catch (Exception e) {
             log.error("证书上传失败，错误信息：", e);
             return false;
         }
-        client.close();
         return resp.getStatusCode() == 200;
     }
 
+    /**
+     * 引用证书管理服务中已有的证书，无需再次上传证书内容
+     *
+     * @param certId   证书ID
+     * @param certName 证书名称
+     */
+    public boolean setCdnDomainCasCertificate(String domainName, Long certId, String certName) {
+        SetCdnDomainSSLCertificateRequest request = SetCdnDomainSSLCertificateRequest.builder()
+                .domainName(domainName)
+                .certType("cas")
+                .certId(certId)
+                .certName(certName)
+                .certRegion(casRegion)
+                .SSLProtocol("on")
+                .build();
+        SetCdnDomainSSLCertificateResponse resp;
+        try {
+            resp = rateLimiter.call(RateLimiterRegistry.ALIYUN_CDN, "SetCdnDomainSSLCertificate",
+                    () -> clientRegistry.cdn(client -> client.setCdnDomainSSLCertificate(request)));
+        } catch (Exception e) {
+            log.warn("引用已上传证书失败 [Domain: {}] [CertId: {}] [Error: {}]", domainName, certId, e.getMessage());
+            return false;
+        }
+        return resp.getStatusCode() == 200;
+    }
+
+    /**
+     * 查询域名当前绑定证书在证书管理服务中的ID
+     */
+    public Optional<Long> findCertId(String domainName, String certName) {
+        DescribeDomainCertificateInfoRequest request = DescribeDomainCertificateInfoRequest.builder()
+                .domainName(domainName)
+                .build();
+        try {
+            DescribeDomainCertificateInfoResponse resp = rateLimiter.call(RateLimiterRegistry.ALIYUN_CDN,
+                    "DescribeDomainCertificateInfo",
+                    () -> clientRegistry.cdn(client -> client.describeDomainCertificateInfo(request)));
+            if (resp.getBody() == null || resp.getBody().getCertInfos() == null
+                    || resp.getBody().getCertInfos().getCertInfo() == null) {
+                return Optional.empty();
+            }
+            return resp.getBody().getCertInfos().getCertInfo().stream()
+                    .filter(info -> certName.equals(info.getCertName()))
+                    .map(DescribeDomainCertificateInfoResponseBody.CertInfo::getCertId)
+                    .filter(id -> id != null && !id.isBlank())
+                    .map(Long::valueOf)
+                    .findFirst();
+        } catch (Exception e) {
+            log.warn("查询域名证书信息失败 [Domain: {}] [Error: {}]", domainName, e.getMessage());
+            return Optional.empty();
+        }
+    }
 }
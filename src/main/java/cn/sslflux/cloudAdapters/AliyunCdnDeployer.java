@@ -0,0 +1,117 @@
+package cn.sslflux.cloudAdapters;
+
+import cn.sslflux.Utils.CertUtils;
+import cn.sslflux.certManager.CertificateInventory;
+import cn.sslflux.certManager.model.CertificateRecord;
+import cn.sslflux.certManager.model.DeployStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 阿里云CDN证书幂等部署
+ * 以叶子证书指纹识别证书：域名已在使用同一张证书时跳过；多SAN证书只上传一次，
+ * 其余域名通过证书ID引用，引用失败时回退为完整上传
+ * @date 2025/3/25 16:20
+ */
+@Slf4j
+@Component
+public class AliyunCdnDeployer {
+
+    private static final String CERT_NAME_PREFIX = "sslflux-";
+
+    @Autowired
+    private AliyunCDN aliyunCDN;
+
+    @Autowired
+    private CertificateInventory certificateInventory;
+
+    /**
+     * 将证书部署到一组CDN域名
+     *
+     * @param targets    CDN域名
+     * @param chain      证书链，首个为叶子证书
+     * @param privateKey 证书私钥
+     * @param certFile   本地证书文件
+     * @return 各域名的部署结果
+     */
+    public Map<String, DeployStatus> deploy(List<String> targets, List<X509Certificate> chain,
+                                            PrivateKey privateKey, Path certFile) {
+        if (chain == null || chain.isEmpty()) {
+            throw new IllegalStateException("证书链为空");
+        }
+        X509Certificate leaf = chain.get(0);
+        String fingerprint = CertificateInventory.certFingerprint(leaf);
+        String certName = CERT_NAME_PREFIX + fingerprint.substring(0, 16);
+        // 证书管理服务中的ID，首次上传后查询，供其余域名引用
+        Long certId = certificateInventory.findDeployedByFingerprint(fingerprint)
+                .map(CertificateRecord::getCertId)
+                .orElse(null);
+        String[] pems = null;
+
+        Map<String, DeployStatus> results = new LinkedHashMap<>();
+        for (String target : targets) {
+            Optional<CertificateRecord> existing = certificateInventory.get(target);
+            if (existing.isPresent() && fingerprint.equals(existing.get().getCertFingerprint())
+                    && existing.get().getDeployStatus() == DeployStatus.DEPLOYED) {
+                log.info("域名已部署该证书，跳过 [Domain: {}] [CertName: {}]", target, certName);
+                results.put(target, DeployStatus.DEPLOYED);
+                continue;
+            }
+            if (existing.isEmpty() || !fingerprint.equals(existing.get().getCertFingerprint())) {
+                certificateInventory.recordIssued(target, leaf, certFile);
+            }
+
+            boolean success = false;
+            if (certId != null) {
+                success = aliyunCDN.setCdnDomainCasCertificate(target, certId, certName);
+                if (success) {
+                    log.info("已引用已上传证书 [Domain: {}] [CertId: {}]", target, certId);
+                }
+            }
+            if (!success) {
+                if (pems == null) {
+                    pems = toPem(chain, privateKey);
+                }
+                // 同名证书已存在时（引用失败后的回退）使用带时间戳的名称避免冲突
+                String uploadName = certId == null ? certName : certName + "-" + System.currentTimeMillis();
+                success = pems != null && aliyunCDN.setCdnDomainSSLCertificate(target, uploadName, pems[0], pems[1]);
+                if (success) {
+                    log.info("证书已更新到阿里云CDN [Domain: {}] [CertName: {}]", target, uploadName);
+                    certName = uploadName;
+                    certId = aliyunCDN.findCertId(target, uploadName).orElse(null);
+                } else {
+                    log.error("证书上传失败 [Domain: {}]", target);
+                }
+            }
+            DeployStatus status = success ? DeployStatus.DEPLOYED : DeployStatus.FAILED;
+            certificateInventory.recordDeployed(target, status, certName, certId);
+            results.put(target, status);
+        }
+        // 整批部署结果一次写入台账
+        certificateInventory.flush();
+        return results;
+    }
+
+    /**
+     * 生成完整证书链与私钥PEM，仅在需要上传时生成一次
+     */
+    private static String[] toPem(List<X509Certificate> chain, PrivateKey privateKey) {
+        try {
+            return new String[]{CertUtils.generateFullChainPem(chain), CertUtils.generatePrivateKeyPem(privateKey)};
+        } catch (Exception ex) {
+            log.error("证书PEM生成失败", ex);
+            return null;
+        }
+    }
+}
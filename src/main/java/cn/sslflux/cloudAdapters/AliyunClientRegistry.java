@@ -0,0 +1,232 @@
+package cn.sslflux.cloudAdapters;
+
+import com.aliyun.auth.credentials.Credential;
+import com.aliyun.auth.credentials.provider.StaticCredentialProvider;
+import darabonba.core.client.ClientOverrideConfiguration;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 阿里云SDK客户端注册中心
+ * 按 服务+地域+接入点 缓存长生命周期的 AsyncClient，复用HTTP连接池与事件循环，容器关闭时统一释放；
+ * 客户端数量与调用计数注册为 sslflux.aliyun.* 指标，经 actuator/prometheus 暴露
+ * @date 2025/3/22 14:30
+ */
+@Slf4j
+@Component
+public class AliyunClientRegistry implements MeterBinder {
+
+    public static final String SERVICE_CDN = "cdn";
+    public static final String SERVICE_DNS = "alidns";
+
+    @Value("${sslflux.cloud.aliyun.access-key}")
+    private String ACCESS_KEY;
+    @Value("${sslflux.cloud.aliyun.secret-key}")
+    private String SECRET_KEY;
+    @Value("${sslflux.cloud.aliyun.region:cn-beijing}")
+    private String region;
+    @Value("${sslflux.cloud.aliyun.cdn-endpoint:cdn.aliyuncs.com}")
+    private String cdnEndpoint;
+    @Value("${sslflux.cloud.aliyun.dns-endpoint:alidns.cn-beijing.aliyuncs.com}")
+    private String dnsEndpoint;
+    @Value("${sslflux.cloud.aliyun.connect-timeout:10s}")
+    private Duration connectTimeout;
+    @Value("${sslflux.cloud.aliyun.response-timeout:30s}")
+    private Duration responseTimeout;
+
+    private final Map<ClientKey, AutoCloseable> clients = new ConcurrentHashMap<>();
+    private volatile StaticCredentialProvider credentialProvider;
+
+    private final AtomicLong clientsCreated = new AtomicLong();
+    private final AtomicLong clientReuses = new AtomicLong();
+    private final AtomicLong inFlightCalls = new AtomicLong();
+    private final AtomicLong completedCalls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+
+    /**
+     * 客户端缓存键
+     */
+    private record ClientKey(String service, String region, String endpoint) {
+    }
+
+    /**
+     * 获取CDN客户端
+     */
+    public com.aliyun.sdk.service.cdn20180510.AsyncClient cdnClient() {
+        return (com.aliyun.sdk.service.cdn20180510.AsyncClient) lookup(
+                new ClientKey(SERVICE_CDN, region, cdnEndpoint),
+                key -> com.aliyun.sdk.service.cdn20180510.AsyncClient.builder()
+                        .region(key.region())
+                        .credentialsProvider(credentialProvider())
+                        .overrideConfiguration(overrideConfiguration(key.endpoint()))
+                        .build());
+    }
+
+    /**
+     * 获取云解析DNS客户端
+     */
+    public com.aliyun.sdk.service.alidns20150109.AsyncClient dnsClient() {
+        return (com.aliyun.sdk.service.alidns20150109.AsyncClient) lookup(
+                new ClientKey(SERVICE_DNS, region, dnsEndpoint),
+                key -> com.aliyun.sdk.service.alidns20150109.AsyncClient.builder()
+                        .region(key.region())
+                        .credentialsProvider(credentialProvider())
+                        .overrideConfiguration(overrideConfiguration(key.endpoint()))
+                        .build());
+    }
+
+    /**
+     * 通过CDN客户端发起调用并等待结果
+     */
+    public <R> R cdn(Function<com.aliyun.sdk.service.cdn20180510.AsyncClient, CompletableFuture<R>> call)
+            throws Exception {
+        return await(call.apply(cdnClient()));
+    }
+
+    /**
+     * 通过DNS客户端发起调用并等待结果
+     */
+    public <R> R dns(Function<com.aliyun.sdk.service.alidns20150109.AsyncClient, CompletableFuture<R>> call)
+            throws Exception {
+        return await(call.apply(dnsClient()));
+    }
+
+    /**
+     * 通过CDN客户端发起异步调用，不阻塞调用线程
+     */
+    public <R> CompletableFuture<R> cdnAsync(
+            Function<com.aliyun.sdk.service.cdn20180510.AsyncClient, CompletableFuture<R>> call) {
+        return track(call.apply(cdnClient()));
+    }
+
+    /**
+     * 通过DNS客户端发起异步调用，不阻塞调用线程
+     */
+    public <R> CompletableFuture<R> dnsAsync(
+            Function<com.aliyun.sdk.service.alidns20150109.AsyncClient, CompletableFuture<R>> call) {
+        return track(call.apply(dnsClient()));
+    }
+
+    /**
+     * 注册连接池指标，由Spring Boot在创建MeterRegistry时调用
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sslflux.aliyun.clients.active", clients, Map::size)
+                .description("当前缓存的阿里云客户端数量")
+                .register(registry);
+        FunctionCounter.builder("sslflux.aliyun.clients.created", clientsCreated, AtomicLong::get)
+                .description("累计创建的阿里云客户端数量")
+                .register(registry);
+        FunctionCounter.builder("sslflux.aliyun.clients.reused", clientReuses, AtomicLong::get)
+                .description("命中缓存复用客户端的次数")
+                .register(registry);
+        Gauge.builder("sslflux.aliyun.calls.inflight", inFlightCalls, AtomicLong::get)
+                .description("正在进行的阿里云接口调用数")
+                .register(registry);
+        FunctionCounter.builder("sslflux.aliyun.calls", completedCalls, AtomicLong::get)
+                .description("已完成的阿里云接口调用数")
+                .tag("outcome", "success")
+                .register(registry);
+        FunctionCounter.builder("sslflux.aliyun.calls", failedCalls, AtomicLong::get)
+                .description("已完成的阿里云接口调用数")
+                .tag("outcome", "failure")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clients.forEach((key, client) -> {
+            try {
+                client.close();
+                log.info("阿里云客户端已关闭 [Service: {}] [Endpoint: {}]", key.service(), key.endpoint());
+            } catch (Exception ex) {
+                log.warn("阿里云客户端关闭失败 [Service: {}]", key.service(), ex);
+            }
+        });
+        clients.clear();
+    }
+
+    private AutoCloseable lookup(ClientKey key, Function<ClientKey, AutoCloseable> factory) {
+        AutoCloseable client = clients.get(key);
+        if (client != null) {
+            clientReuses.incrementAndGet();
+            return client;
+        }
+        return clients.computeIfAbsent(key, k -> {
+            clientsCreated.incrementAndGet();
+            log.info("创建阿里云客户端 [Service: {}] [Region: {}] [Endpoint: {}]",
+                    k.service(), k.region(), k.endpoint());
+            return factory.apply(k);
+        });
+    }
+
+    /**
+     * 统计异步调用结果
+     */
+    private <R> CompletableFuture<R> track(CompletableFuture<R> future) {
+        inFlightCalls.incrementAndGet();
+        return future.whenComplete((result, ex) -> {
+            inFlightCalls.decrementAndGet();
+            if (ex == null) {
+                completedCalls.incrementAndGet();
+            } else {
+                failedCalls.incrementAndGet();
+            }
+        });
+    }
+
+    private <R> R await(CompletableFuture<R> future) throws Exception {
+        inFlightCalls.incrementAndGet();
+        try {
+            R result = future.get();
+            completedCalls.incrementAndGet();
+            return result;
+        } catch (ExecutionException ex) {
+            failedCalls.incrementAndGet();
+            throw ex.getCause() instanceof Exception cause ? cause : ex;
+        } catch (Exception ex) {
+            failedCalls.incrementAndGet();
+            throw ex;
+        } finally {
+            inFlightCalls.decrementAndGet();
+        }
+    }
+
+    private StaticCredentialProvider credentialProvider() {
+        if (credentialProvider == null) {
+            synchronized (this) {
+                if (credentialProvider == null) {
+                    credentialProvider = StaticCredentialProvider.create(Credential.builder()
+                            .accessKeyId(ACCESS_KEY)
+                            .accessKeySecret(SECRET_KEY)
+                            .build());
+                }
+            }
+        }
+        return credentialProvider;
+    }
+
+    private ClientOverrideConfiguration overrideConfiguration(String endpoint) {
+        return ClientOverrideConfiguration.create()
+                .setEndpointOverride(endpoint)
+                .setConnectTimeout(connectTimeout)
+                .setResponseTimeout(responseTimeout);
+    }
+}
@@ -1,38 +1,124 @@
 package cn.sslflux.cloudAdapters;
 
 import cn.sslflux.Utils.DomainUtils;
+import cn.sslflux.acmeClient.core.DnsPropagationChecker;
 import cn.sslflux.acmeClient.core.DnsProvider;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * @author liuyg
  * @version 1.0
  * @description: 阿里云DNS挑战处理器
+ * 记录本处理器创建的TXT记录ID，清理时只删除这些记录；批量操作按区域分组并发提交。
+ * 记录ID只保存在内存中，进程重启或由其他节点接管任务后ID丢失，清理时改为按主机名与记录值查询后删除，
+ * 挑战记录值为本次授权的摘要，不会误删他人的同名记录
  * @date 2025/3/21 12:37
  */
+@Slf4j
 @Component
 public class AliyunDnsProvider implements DnsProvider {
 
     @Autowired
     private AliyunDomain aliyunDomain;
 
+    @Autowired
+    private DnsPropagationChecker propagationChecker;
+
+    // TXT记录 -> 阿里云记录ID
+    private final Map<TxtRecord, String> createdRecords = new ConcurrentHashMap<>();
+
 
     @Override
-    public void addTxtRecord(String name, String value) {
-        aliyunDomain.AddDomainRecord(DomainUtils.extractRootDomain(name), DomainUtils.extractSubDomain(name), "TXT", value);
+    public void addTxtRecord(String name, String value) throws Exception {
+        addTxtRecords(List.of(new TxtRecord(name, value)));
     }
 
     @Override
-    public void removeTxtRecord(String name) {
-        aliyunDomain.DeleteDomainRecord(DomainUtils.extractRootDomain(name), DomainUtils.extractSubDomain(name));
+    public void removeTxtRecord(String name, String value) {
+        removeTxtRecords(List.of(new TxtRecord(name, value)));
     }
 
     @Override
     public boolean checkPropagation(String name, String value) {
-        // 实现DNS记录传播检查
-        return true; // 简化示例
+        // 查询权威DNS确认TXT记录已生效
+        return propagationChecker.isPropagated(name, value, aliyunDomain.resolveZone(name));
+    }
+
+    /**
+     * 按区域分组并发添加，全部完成后返回；任一失败时抛出异常，已成功的记录仍会登记以便清理
+     */
+    @Override
+    public void addTxtRecords(List<TxtRecord> records) throws Exception {
+        Map<String, List<TxtRecord>> byZone = groupByZone(records);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        byZone.forEach((zone, zoneRecords) -> {
+            for (TxtRecord record : zoneRecords) {
+                String rr = DomainUtils.extractSubDomain(record.name(), zone);
+                futures.add(aliyunDomain.addRecordAsync(zone, rr, "TXT", record.value())
+                        .thenAccept(recordId -> {
+                            createdRecords.put(record, recordId);
+                            log.debug("DNS记录已添加 [Zone: {}] [RR: {}] [RecordId: {}]", zone, rr, recordId);
+                        }));
+            }
+        });
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof Exception cause ? cause : ex;
+        }
+        log.info("DNS记录批量添加完成 [Records: {}] [Zones: {}]", records.size(), byZone.size());
     }
 
+    /**
+     * 按记录ID并发删除；未登记ID的记录按主机名与记录值查询，只删除值完全一致的记录
+     */
+    @Override
+    public void removeTxtRecords(List<TxtRecord> records) {
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (TxtRecord record : records) {
+            String recordId = createdRecords.remove(record);
+            if (recordId != null) {
+                futures.add(delete(record, recordId));
+                continue;
+            }
+            log.info("未登记DNS记录ID，按记录值查询后删除 [Name: {}]", record.name());
+            futures.add(aliyunDomain.findRecordIdsAsync(aliyunDomain.resolveZone(record.name()), record.name(),
+                            "TXT", record.value())
+                    .thenCompose(recordIds -> CompletableFuture.allOf(recordIds.stream()
+                            .map(id -> delete(record, id))
+                            .toArray(CompletableFuture[]::new)))
+                    .exceptionally(ex -> {
+                        log.warn("查询待清理的DNS记录失败 [Name: {}] [Error: {}]", record.name(), ex.getMessage());
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+
+    private CompletableFuture<Boolean> delete(TxtRecord record, String recordId) {
+        return aliyunDomain.deleteRecordAsync(recordId).exceptionally(ex -> {
+            log.warn("清理DNS记录失败 [Name: {}] [RecordId: {}] [Error: {}]",
+                    record.name(), recordId, ex.getMessage());
+            return false;
+        });
+    }
+
+    private Map<String, List<TxtRecord>> groupByZone(List<TxtRecord> records) {
+        Map<String, List<TxtRecord>> byZone = new LinkedHashMap<>();
+        for (TxtRecord record : records) {
+            byZone.computeIfAbsent(aliyunDomain.resolveZone(record.name()), k -> new ArrayList<>()).add(record);
+        }
+        return byZone;
+    }
 
 }
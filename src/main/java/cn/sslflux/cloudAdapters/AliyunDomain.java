@@ -1,23 +1,31 @@
 package cn.sslflux.cloudAdapters;
 
-import com.aliyun.auth.credentials.Credential;
-import com.aliyun.auth.credentials.provider.StaticCredentialProvider;
-import com.aliyun.sdk.service.alidns20150109.AsyncClient;
+import cn.sslflux.Utils.DomainUtils;
+import cn.sslflux.rateLimit.RateLimiterRegistry;
 import com.aliyun.sdk.service.alidns20150109.models.AddDomainRecordRequest;
 import com.aliyun.sdk.service.alidns20150109.models.AddDomainRecordResponse;
-import com.aliyun.sdk.service.alidns20150109.models.DeleteSubDomainRecordsRequest;
-import com.aliyun.sdk.service.alidns20150109.models.DeleteSubDomainRecordsResponse;
-import darabonba.core.client.ClientOverrideConfiguration;
+import com.aliyun.sdk.service.alidns20150109.models.DeleteDomainRecordRequest;
+import com.aliyun.sdk.service.alidns20150109.models.DescribeSubDomainRecordsRequest;
+import com.aliyun.sdk.service.alidns20150109.models.DescribeSubDomainRecordsResponse;
+import com.aliyun.sdk.service.alidns20150109.models.DescribeSubDomainRecordsResponseBody;
+import com.aliyun.sdk.service.alidns20150109.models.GetMainDomainNameRequest;
+import com.aliyun.sdk.service.alidns20150109.models.GetMainDomainNameResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author liuyg
  * @version 1.0
  * @description: 阿里云DNS添加解析记录
+ * 添加记录返回记录ID，删除时按ID精确删除，不影响同名的其他记录；记录ID丢失时可按主机名与记录值找回；
+ * 主域名查询结果在运行期缓存，同一区域只查询一次
  * @date 2025/3/21 12:43
  */
 
@@ -25,10 +33,21 @@ import java.util.concurrent.CompletableFuture;
 @Component
 public class AliyunDomain {
 
-    @Value("${sslflux.cloud.aliyun.access-key}")
-    private String ACCESS_KEY;
-    @Value("${sslflux.cloud.aliyun.secret-key}")
-    private String SECRET_KEY;
+    @Autowired
+    private AliyunClientRegistry clientRegistry;
+
+    @Autowired
+    private RateLimiterRegistry rateLimiter;
+
+    // 是否通过 GetMainDomainName 查询权威区域，关闭时仅按公共后缀列表推断
+    @Value("${sslflux.dns.zone-lookup:true}")
+    private boolean zoneLookup;
+
+    // 按主机名查询记录时的单页条数，同一主机名下的记录通常很少
+    private static final long SUB_DOMAIN_PAGE_SIZE = 100L;
+
+    // 已查询到的主域名，运行期缓存
+    private final Set<String> knownZones = ConcurrentHashMap.newKeySet();
 
     /**
      * @description: 添加DNS记录
@@ -37,59 +56,111 @@ public class AliyunDomain {
      * @version 1.0
      */
     public boolean AddDomainRecord(String domainName, String rr, String type, String value) {
-        StaticCredentialProvider provider = StaticCredentialProvider.create(Credential.builder()
-                .accessKeyId(ACCESS_KEY)
-                .accessKeySecret(SECRET_KEY)
-                .build());
-        AsyncClient client = AsyncClient.builder()
-                .region("cn-beijing") // Region ID
-                .credentialsProvider(provider)
-                .overrideConfiguration(
-                        ClientOverrideConfiguration.create()
-                                .setEndpointOverride("alidns.cn-beijing.aliyuncs.com")
-                )
-                .build();
+        try {
+            return addRecordAsync(domainName, rr, type, value).join() != null;
+        } catch (Exception e) {
+            log.error("域名添加dns记录失败，报错信息", e);
+            return false;
+        }
+    }
+
+    /**
+     * 异步添加DNS记录
+     *
+     * @return 新记录ID
+     */
+    public CompletableFuture<String> addRecordAsync(String domainName, String rr, String type, String value) {
         AddDomainRecordRequest addDomainRecordRequest = AddDomainRecordRequest.builder()
                 .domainName(domainName)
                 .rr(rr)
                 .type(type)
                 .value(value)
                 .build();
-        CompletableFuture<AddDomainRecordResponse> response = client.addDomainRecord(addDomainRecordRequest);
-        AddDomainRecordResponse resp = null;
-        try {
-            resp = response.get();
-        } catch (Exception e) {
-            log.error("域名添加dns记录失败，报错信息", e);
-            return false;
-        }
-        return resp.getStatusCode() == 200;
+        return rateLimiter.callAsync(RateLimiterRegistry.ALIYUN_DNS, "AddDomainRecord",
+                        () -> clientRegistry.dnsAsync(client -> client.addDomainRecord(addDomainRecordRequest)))
+                .thenApply(AliyunDomain::recordIdOf);
     }
 
-    public boolean DeleteDomainRecord(String domainName, String rr) {
-        StaticCredentialProvider provider = StaticCredentialProvider.create(Credential.builder()
-                .accessKeyId(ACCESS_KEY)
-                .accessKeySecret(SECRET_KEY)
-                .build());
-        AsyncClient client = AsyncClient.builder()
-                .region("cn-beijing")
-                .credentialsProvider(provider)
-                .overrideConfiguration(ClientOverrideConfiguration.create().setEndpointOverride("alidns.cn-beijing.aliyuncs.com"))
+    /**
+     * 按记录ID异步删除DNS记录
+     */
+    public CompletableFuture<Boolean> deleteRecordAsync(String recordId) {
+        DeleteDomainRecordRequest request = DeleteDomainRecordRequest.builder()
+                .recordId(recordId)
                 .build();
-        DeleteSubDomainRecordsRequest deleteSubDomainRecordsRequest = DeleteSubDomainRecordsRequest.builder()
+        return rateLimiter.callAsync(RateLimiterRegistry.ALIYUN_DNS, "DeleteDomainRecord",
+                        () -> clientRegistry.dnsAsync(client -> client.deleteDomainRecord(request)))
+                .thenApply(resp -> resp.getStatusCode() == 200);
+    }
+
+    /**
+     * 按主机记录与记录值异步查询记录ID，用于找回未登记ID的记录
+     *
+     * @param domainName 解析区域
+     * @param subDomain  完整主机名，如 _acme-challenge.www.example.com
+     * @return 类型与记录值都一致的记录ID
+     */
+    public CompletableFuture<List<String>> findRecordIdsAsync(String domainName, String subDomain,
+                                                              String type, String value) {
+        DescribeSubDomainRecordsRequest request = DescribeSubDomainRecordsRequest.builder()
                 .domainName(domainName)
-                .rr(rr)
+                .subDomain(subDomain)
+                .type(type)
+                .pageSize(SUB_DOMAIN_PAGE_SIZE)
+                .build();
+        return rateLimiter.callAsync(RateLimiterRegistry.ALIYUN_DNS, "DescribeSubDomainRecords",
+                        () -> clientRegistry.dnsAsync(client -> client.describeSubDomainRecords(request)))
+                .thenApply(resp -> recordIdsOf(resp, type, value));
+    }
+
+    /**
+     * 查询主机名所属的主域名（解析区域），已知区域的子域名不再查询；
+     * 未开启在线查询或查询失败时按公共后缀列表推断
+     */
+    public String resolveZone(String hostname) {
+        String known = DomainUtils.findZone(hostname, knownZones);
+        if (known != null) {
+            return known;
+        }
+        if (!zoneLookup) {
+            return DomainUtils.extractRootDomain(hostname);
+        }
+        GetMainDomainNameRequest request = GetMainDomainNameRequest.builder()
+                .inputString(hostname)
                 .build();
-        CompletableFuture<DeleteSubDomainRecordsResponse> response = client.deleteSubDomainRecords(deleteSubDomainRecordsRequest);
-        DeleteSubDomainRecordsResponse resp = null;
         try {
-            resp = response.get();
+            GetMainDomainNameResponse resp = rateLimiter.call(RateLimiterRegistry.ALIYUN_DNS, "GetMainDomainName",
+                    () -> clientRegistry.dns(client -> client.getMainDomainName(request)));
+            if (resp.getBody() != null && resp.getBody().getDomainName() != null) {
+                knownZones.add(resp.getBody().getDomainName());
+                return resp.getBody().getDomainName();
+            }
         } catch (Exception e) {
-            log.error("域名删除dns记录失败，报错信息", e);
-            return false;
+            log.warn("主域名查询失败，按公共后缀列表推断 [Host: {}] [Error: {}]", hostname, e.getMessage());
+        }
+        // 推断结果不缓存，下次仍尝试查询
+        return DomainUtils.extractRootDomain(hostname);
+    }
+
+    private static List<String> recordIdsOf(DescribeSubDomainRecordsResponse resp, String type, String value) {
+        if (resp.getStatusCode() != 200 || resp.getBody() == null) {
+            throw new IllegalStateException("查询DNS记录失败 [Status: " + resp.getStatusCode() + "]");
+        }
+        DescribeSubDomainRecordsResponseBody.DomainRecords records = resp.getBody().getDomainRecords();
+        if (records == null || records.getRecord() == null) {
+            return List.of();
+        }
+        return records.getRecord().stream()
+                .filter(record -> type.equalsIgnoreCase(record.getType()) && value.equals(record.getValue()))
+                .map(DescribeSubDomainRecordsResponseBody.Record::getRecordId)
+                .toList();
+    }
+
+    private static String recordIdOf(AddDomainRecordResponse resp) {
+        if (resp.getStatusCode() != 200 || resp.getBody() == null) {
+            throw new IllegalStateException("添加DNS记录失败 [Status: " + resp.getStatusCode() + "]");
         }
-        client.close();
-        return resp.getStatusCode() == 200;
+        return resp.getBody().getRecordId();
     }
 
 }
@@ -0,0 +1,22 @@
+package cn.sslflux.cloudAdapters.model;
+
+import lombok.Data;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: CDN加速域名概要信息（DescribeUserDomains返回字段）
+ * @date 2025/3/25 14:10
+ */
+@Data
+public class CdnDomainInfo {
+
+    private String domainName;
+    // 域名状态：online / offline / configuring 等
+    private String domainStatus;
+    // HTTPS开关：on / off
+    private String sslProtocol;
+    private String cname;
+    // 域名配置最后修改时间，更换证书也会更新该值
+    private String gmtModified;
+}
@@ -0,0 +1,234 @@
+package cn.sslflux.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 集群协调
+ * 1. 各节点定期续约心跳租约，有效心跳的节点组成一致性哈希环，按域名划分续期任务
+ * 2. 持有协调者租约的节点负责枚举域名和生成任务，协调者宕机后租约过期由其他节点接任；
+ *    待续期队列只在协调者内存中，接任时发布 CoordinatorElectedEvent 重新排期
+ * 3. 任务执行期间持有任务锁并随心跳续约，节点宕机后锁过期，任务由环上新的负责节点接管；
+ *    续约失败或超过租约时长未能续约的锁视为已丢失，执行方据此中止任务
+ * 心跳使用独立线程，不受耗时数小时的续期任务占用定时任务线程池的影响；
+ * 未开启集群时当前节点即为协调者并负责全部任务
+ * @date 2025/3/27 16:00
+ */
+@Slf4j
+@Component
+public class ClusterCoordinator {
+
+    private static final String NODE_PREFIX = "node:";
+    private static final String COORDINATOR_LEASE = "coordinator";
+    // 过期租约保留时长，之后由协调者清理
+    private static final Duration LEASE_RETENTION = Duration.ofDays(1);
+
+    @Value("${sslflux.cluster.enabled:false}")
+    private boolean enabled;
+
+    // 节点标识，留空时使用 主机名-进程号
+    @Value("${sslflux.cluster.node-id:}")
+    private String nodeId;
+
+    @Value("${sslflux.cluster.lease-ttl:30s}")
+    private Duration leaseTtl;
+
+    @Value("${sslflux.cluster.heartbeat-interval:10s}")
+    private Duration heartbeatInterval;
+
+    @Value("${sslflux.cluster.virtual-nodes:64}")
+    private int virtualNodes;
+
+    @Autowired
+    private LeaseManager leaseManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // 本节点持有的任务锁 -> 按本地时钟计算的租约到期时间，心跳时一并续约；同时防止同一节点重复执行同一任务
+    private final Map<String, Instant> heldLocks = new ConcurrentHashMap<>();
+    private volatile boolean coordinator;
+    private volatile ConsistentHashRing ring;
+    private ScheduledExecutorService heartbeatExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = defaultNodeId();
+        }
+        if (enabled) {
+            log.info("集群模式已开启 [Node: {}] [LeaseTtl: {}]", nodeId, leaseTtl);
+            heartbeat();
+            heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "sslflux-cluster-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = heartbeatInterval.toMillis();
+            heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 续约心跳与任务锁、竞选协调者并刷新成员列表
+     */
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            leaseManager.tryAcquire(NODE_PREFIX + nodeId, nodeId, leaseTtl);
+            for (String lock : heldLocks.keySet()) {
+                Instant expiresAt = Instant.now().plus(leaseTtl);
+                if (leaseManager.tryAcquire(lock, nodeId, leaseTtl)) {
+                    heldLocks.computeIfPresent(lock, (name, previous) -> previous == Instant.MIN ? previous : expiresAt);
+                } else {
+                    // 标记为已丢失但保留条目，直到执行方 unlock，期间本节点不会重复执行该任务
+                    Instant previous = heldLocks.get(lock);
+                    if (previous != null && previous != Instant.MIN && heldLocks.replace(lock, previous, Instant.MIN)) {
+                        log.warn("任务锁已被其他节点接管，中止执行 [Lock: {}] [Node: {}]", lock, nodeId);
+                    }
+                }
+            }
+
+            boolean elected = leaseManager.tryAcquire(COORDINATOR_LEASE, nodeId, leaseTtl);
+            boolean takeover = elected && !coordinator;
+            if (elected != coordinator) {
+                log.info(elected ? "当前节点成为协调者 [Node: {}]" : "当前节点不再是协调者 [Node: {}]", nodeId);
+            }
+            coordinator = elected;
+            // 启动时的首次心跳在心跳线程创建之前执行，此时当选由启动预热排期
+            if (takeover && heartbeatExecutor != null) {
+                eventPublisher.publishEvent(new CoordinatorElectedEvent(nodeId));
+            }
+
+            List<String> members = leaseManager.liveOwners(NODE_PREFIX);
+            ConsistentHashRing current = ring;
+            if (current == null || !current.nodes().equals(Set.copyOf(members))) {
+                ring = new ConsistentHashRing(members, virtualNodes);
+                log.info("集群成员变更 [Members: {}]", members);
+            }
+            if (elected) {
+                leaseManager.purgeExpired(LEASE_RETENTION);
+            }
+        } catch (Exception ex) {
+            // 无法访问共享存储时放弃协调者身份，避免多个节点同时生成任务
+            coordinator = false;
+            log.error("集群心跳失败 [Node: {}]", nodeId, ex);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isCoordinator() {
+        return !enabled || coordinator;
+    }
+
+    /**
+     * 该键（可注册域名）是否由当前节点负责
+     */
+    public boolean owns(String key) {
+        if (!enabled) {
+            return true;
+        }
+        ConsistentHashRing current = ring;
+        return current != null && nodeId.equals(current.nodeFor(key));
+    }
+
+    /**
+     * 获取任务锁，本节点已持有（正在执行）时同样返回 false
+     */
+    public boolean tryLock(String name) {
+        Instant expiresAt = enabled ? Instant.now().plus(leaseTtl) : Instant.MAX;
+        if (heldLocks.putIfAbsent(name, expiresAt) != null) {
+            return false;
+        }
+        if (!enabled) {
+            return true;
+        }
+        try {
+            if (leaseManager.tryAcquire(name, nodeId, leaseTtl)) {
+                return true;
+            }
+        } catch (Exception ex) {
+            log.error("任务锁获取失败 [Lock: {}]", name, ex);
+        }
+        heldLocks.remove(name);
+        return false;
+    }
+
+    /**
+     * 任务锁是否仍由本节点持有：已被其他节点接管，或心跳未能在租约到期前续约时返回 false
+     */
+    public boolean isLockHeld(String name) {
+        Instant expiresAt = heldLocks.get(name);
+        return expiresAt != null && expiresAt.isAfter(Instant.now());
+    }
+
+    public void unlock(String name) {
+        heldLocks.remove(name);
+        if (enabled) {
+            try {
+                leaseManager.release(name, nodeId);
+            } catch (Exception ex) {
+                // 释放失败时租约会自然过期
+                log.warn("任务锁释放失败 [Lock: {}] [Error: {}]", name, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 正常退出时主动释放租约，其他节点无需等待过期即可接管
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+        }
+        try {
+            heldLocks.keySet().forEach(lock -> leaseManager.release(lock, nodeId));
+            leaseManager.release(COORDINATOR_LEASE, nodeId);
+            leaseManager.release(NODE_PREFIX + nodeId, nodeId);
+        } catch (Exception ex) {
+            log.warn("退出时释放租约失败 [Node: {}] [Error: {}]", nodeId, ex.getMessage());
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception ex) {
+            host = "node";
+        }
+        return host + "-" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+}
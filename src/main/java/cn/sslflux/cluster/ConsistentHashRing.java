@@ -0,0 +1,55 @@
+package cn.sslflux.cluster;
+
+import cn.sslflux.Utils.CryptoServices;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 一致性哈希环
+ * 每个节点在环上放置多个虚拟节点，增删节点时只有相邻区间的域名需要迁移
+ * @date 2025/3/27 15:40
+ */
+public final class ConsistentHashRing {
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> nodes;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = Collections.unmodifiableSet(new TreeSet<>(nodes));
+        int replicas = Math.max(1, virtualNodes);
+        for (String node : this.nodes) {
+            for (int i = 0; i < replicas; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * 负责该键的节点，环为空时返回 null
+     */
+    public String nodeFor(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    public Set<String> nodes() {
+        return nodes;
+    }
+
+    private static long hash(String key) {
+        byte[] digest = CryptoServices.sha256(key.getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(digest).getLong();
+    }
+}
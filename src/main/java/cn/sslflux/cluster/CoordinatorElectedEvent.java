@@ -0,0 +1,10 @@
+package cn.sslflux.cluster;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 节点运行期间接任协调者的事件，启动时首次当选不发布（由启动预热负责首轮续期）
+ * @date 2025/3/29 10:30
+ */
+public record CoordinatorElectedEvent(String nodeId) {
+}
@@ -0,0 +1,88 @@
+package cn.sslflux.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 基于共享数据库的租约
+ * 租约在到期前由持有者续约，持有者宕机后租约自然过期，其他节点即可接管；
+ * 到期时间按各节点本地时钟计算，节点之间需保持时钟同步（偏差远小于租约时长）
+ * @date 2025/3/27 15:20
+ */
+@Component
+public class LeaseManager {
+
+    private final LeaseMapper mapper;
+    private final Clock clock;
+
+    @Autowired
+    public LeaseManager(LeaseMapper mapper) {
+        this(mapper, Clock.systemUTC());
+    }
+
+    public LeaseManager(LeaseMapper mapper, Clock clock) {
+        this.mapper = mapper;
+        this.clock = clock;
+    }
+
+    /**
+     * 获取或续约租约
+     *
+     * @param name  租约名称
+     * @param owner 持有者
+     * @param ttl   租约时长
+     * @return 是否持有该租约
+     */
+    public boolean tryAcquire(String name, String owner, Duration ttl) {
+        Instant now = clock.instant();
+        Date expiresAt = Date.from(now.plus(ttl));
+        if (mapper.renewOrTakeOver(name, owner, expiresAt, Date.from(now)) > 0) {
+            return true;
+        }
+        try {
+            return mapper.insert(name, owner, expiresAt, Date.from(now)) > 0;
+        } catch (RuntimeException ex) {
+            // 其他节点同时创建了该租约
+            if (isConstraintViolation(ex)) {
+                return false;
+            }
+            throw ex;
+        }
+    }
+
+    public void release(String name, String owner) {
+        mapper.release(name, owner);
+    }
+
+    /**
+     * 指定前缀下仍然有效的租约持有者
+     */
+    public List<String> liveOwners(String prefix) {
+        return mapper.findLiveOwners(prefix, Date.from(clock.instant()));
+    }
+
+    /**
+     * 清理过期超过指定时长的租约
+     */
+    public int purgeExpired(Duration retention) {
+        return mapper.purgeExpired(Date.from(clock.instant().minus(retention)));
+    }
+
+    private static boolean isConstraintViolation(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
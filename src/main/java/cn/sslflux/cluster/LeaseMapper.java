@@ -0,0 +1,44 @@
+package cn.sslflux.cluster;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 集群租约表访问
+ * @date 2025/3/27 15:10
+ */
+@Mapper
+public interface LeaseMapper {
+
+    /**
+     * 续约自己持有的租约，或接管已过期的租约
+     */
+    @Update("UPDATE cluster_lease SET owner = #{owner}, expires_at = #{expiresAt}, updated_at = #{now} "
+            + "WHERE name = #{name} AND (owner = #{owner} OR expires_at <= #{now})")
+    int renewOrTakeOver(@Param("name") String name, @Param("owner") String owner,
+                        @Param("expiresAt") Date expiresAt, @Param("now") Date now);
+
+    @Insert("INSERT INTO cluster_lease (name, owner, expires_at, updated_at) "
+            + "VALUES (#{name}, #{owner}, #{expiresAt}, #{now})")
+    int insert(@Param("name") String name, @Param("owner") String owner,
+               @Param("expiresAt") Date expiresAt, @Param("now") Date now);
+
+    @Delete("DELETE FROM cluster_lease WHERE name = #{name} AND owner = #{owner}")
+    int release(@Param("name") String name, @Param("owner") String owner);
+
+    @Select("SELECT owner FROM cluster_lease WHERE name LIKE CONCAT(#{prefix}, '%') AND expires_at > #{now} "
+            + "ORDER BY owner")
+    List<String> findLiveOwners(@Param("prefix") String prefix, @Param("now") Date now);
+
+    @Delete("DELETE FROM cluster_lease WHERE expires_at < #{before}")
+    int purgeExpired(@Param("before") Date before);
+}
@@ -0,0 +1,27 @@
+package cn.sslflux.controller;
+
+import cn.sslflux.scheduler.RenewalRunTracker;
+import cn.sslflux.scheduler.model.RenewalStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期运行状态查询
+ * @date 2025/3/28 11:10
+ */
+@RestController
+@RequestMapping("/api/renewal")
+public class RenewalStatusController {
+
+    @Autowired
+    private RenewalRunTracker runTracker;
+
+    @GetMapping("/status")
+    public RenewalStatus status() {
+        return runTracker.snapshot();
+    }
+}
@@ -0,0 +1,134 @@
+package cn.sslflux.jobStore;
+
+import cn.sslflux.Utils.CryptoServices;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 任务库中域名私钥的加密
+ * 使用AES-256-GCM，以任务ID作为附加认证数据，密文不能挪用到其他任务；
+ * 未配置密钥时首次启动生成并保存到本地密钥文件（仅适用于单实例），集群部署需为各节点配置同一密钥
+ * @date 2025/3/27 10:00
+ */
+@Slf4j
+@Component
+public class KeyPairCipher {
+
+    // 密文格式版本前缀，旧版本写入的明文PEM以 -----BEGIN 开头
+    private static final String PREFIX = "v1:";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int KEY_BYTES = 32;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKey key;
+
+    @Autowired
+    public KeyPairCipher(@Value("${sslflux.job.key-encryption-key:}") String encodedKey,
+                         @Value("${sslflux.job.key-file:certs/job.key}") String keyFile) throws IOException {
+        this(new SecretKeySpec(encodedKey == null || encodedKey.isBlank()
+                ? loadOrCreate(Paths.get(keyFile))
+                : decodeKey(encodedKey.trim(), "sslflux.job.key-encryption-key"), "AES"));
+    }
+
+    public KeyPairCipher(SecretKey key) {
+        this.key = key;
+    }
+
+    /**
+     * 加密私钥PEM
+     */
+    public String encrypt(String pem, long jobId) {
+        byte[] iv = new byte[IV_BYTES];
+        CryptoServices.secureRandom().nextBytes(iv);
+        try {
+            Cipher cipher = init(Cipher.ENCRYPT_MODE, iv, jobId);
+            byte[] sealed = cipher.doFinal(pem.getBytes(StandardCharsets.US_ASCII));
+            byte[] out = new byte[IV_BYTES + sealed.length];
+            System.arraycopy(iv, 0, out, 0, IV_BYTES);
+            System.arraycopy(sealed, 0, out, IV_BYTES, sealed.length);
+            return PREFIX + Base64.getEncoder().encodeToString(out);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("域名私钥加密失败 [JobId: " + jobId + "]", ex);
+        }
+    }
+
+    /**
+     * 解密私钥PEM，兼容旧版本保存的明文
+     *
+     * @throws IOException 密钥不一致或密文被篡改
+     */
+    public String decrypt(String stored, long jobId) throws IOException {
+        if (!stored.startsWith(PREFIX)) {
+            return stored;
+        }
+        byte[] in = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+        if (in.length <= IV_BYTES) {
+            throw new IOException("域名私钥密文不完整 [JobId: " + jobId + "]");
+        }
+        try {
+            Cipher cipher = init(Cipher.DECRYPT_MODE, Arrays.copyOf(in, IV_BYTES), jobId);
+            return new String(cipher.doFinal(in, IV_BYTES, in.length - IV_BYTES), StandardCharsets.US_ASCII);
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("域名私钥解密失败，请确认各节点配置了同一加密密钥 [JobId: " + jobId + "]", ex);
+        }
+    }
+
+    private Cipher init(int mode, byte[] iv, long jobId) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(ByteBuffer.allocate(Long.BYTES).putLong(jobId).array());
+        return cipher;
+    }
+
+    /**
+     * 读取本地密钥文件，不存在时生成
+     */
+    private static byte[] loadOrCreate(Path keyFile) throws IOException {
+        if (Files.exists(keyFile)) {
+            return decodeKey(Files.readString(keyFile, StandardCharsets.US_ASCII).trim(), keyFile.toString());
+        }
+        byte[] generated = new byte[KEY_BYTES];
+        CryptoServices.secureRandom().nextBytes(generated);
+        Path parent = keyFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        // 创建时即限制为仅属主可读写
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(keyFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        Files.writeString(keyFile, Base64.getEncoder().encodeToString(generated), StandardCharsets.US_ASCII);
+        log.warn("未配置任务私钥加密密钥，已生成本地密钥文件，集群部署需改为配置同一密钥 [Path: {}]",
+                keyFile.toAbsolutePath());
+        return generated;
+    }
+
+    private static byte[] decodeKey(String encoded, String source) {
+        byte[] decoded = Base64.getDecoder().decode(encoded);
+        if (decoded.length != KEY_BYTES) {
+            throw new IllegalArgumentException("任务私钥加密密钥须为Base64编码的32字节 [Source: " + source + "]");
+        }
+        return decoded;
+    }
+}
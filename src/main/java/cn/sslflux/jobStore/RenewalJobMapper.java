@@ -0,0 +1,71 @@
+package cn.sslflux.jobStore;
+
+import cn.sslflux.jobStore.model.JobState;
+import cn.sslflux.jobStore.model.RenewalJob;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期任务表访问
+ * @date 2025/3/27 09:50
+ */
+@Mapper
+public interface RenewalJobMapper {
+
+    @Insert("INSERT INTO renewal_job (plan_key, registrable_domain, identifiers, targets, state, attempts, created_at, updated_at) "
+            + "VALUES (#{planKey}, #{registrableDomain}, #{identifiers}, #{targets}, #{state}, 0, #{createdAt}, #{updatedAt})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insert(RenewalJob job);
+
+    @Select("SELECT * FROM renewal_job WHERE id = #{id}")
+    RenewalJob findById(@Param("id") long id);
+
+    @Select("SELECT * FROM renewal_job WHERE plan_key = #{planKey} AND state NOT IN ('DEPLOYED', 'FAILED') "
+            + "ORDER BY id DESC LIMIT 1")
+    RenewalJob findActiveByPlanKey(@Param("planKey") String planKey);
+
+    @Select("SELECT * FROM renewal_job WHERE registrable_domain = #{registrableDomain} "
+            + "AND state NOT IN ('DEPLOYED', 'FAILED') ORDER BY id")
+    List<RenewalJob> findActiveByRegistrableDomain(@Param("registrableDomain") String registrableDomain);
+
+    @Select("SELECT * FROM renewal_job WHERE state NOT IN ('DEPLOYED', 'FAILED') ORDER BY id")
+    List<RenewalJob> findUnfinished();
+
+    @Update("UPDATE renewal_job SET key_pair_pem = NULL WHERE state IN ('DEPLOYED', 'FAILED') AND key_pair_pem IS NOT NULL")
+    int clearFinishedKeyPairs();
+
+    /**
+     * 以新的标识集合退回下单步骤，条件同 transition
+     */
+    @Update("<script>UPDATE renewal_job SET plan_key = #{job.planKey}, identifiers = #{job.identifiers}, "
+            + "targets = #{job.targets}, state = 'PENDING', order_url = NULL, key_pair_pem = NULL, "
+            + "updated_at = #{job.updatedAt} WHERE id = #{job.id} AND state = #{from} "
+            + "<choose><when test='job.lockOwner != null'>AND lock_owner = #{job.lockOwner}</when>"
+            + "<otherwise>AND lock_owner IS NULL</otherwise></choose></script>")
+    int replan(@Param("job") RenewalJob job, @Param("from") JobState from);
+
+    /**
+     * 登记执行节点，任务已结束时返回0
+     */
+    @Update("UPDATE renewal_job SET lock_owner = #{owner} WHERE id = #{id} AND state NOT IN ('DEPLOYED', 'FAILED')")
+    int claim(@Param("id") long id, @Param("owner") String owner);
+
+    /**
+     * 以当前状态和执行节点为条件更新，状态已被其他流程修改或任务已被其他节点认领时返回0
+     */
+    @Update("<script>UPDATE renewal_job SET state = #{to}, order_url = #{job.orderUrl}, certificate_url = #{job.certificateUrl}, "
+            + "key_pair_pem = #{job.keyPairPem}, cert_file = #{job.certFile}, deploy_result = #{job.deployResult}, "
+            + "attempts = #{job.attempts}, last_error = #{job.lastError}, updated_at = #{job.updatedAt} "
+            + "WHERE id = #{job.id} AND state = #{from} "
+            + "<choose><when test='job.lockOwner != null'>AND lock_owner = #{job.lockOwner}</when>"
+            + "<otherwise>AND lock_owner IS NULL</otherwise></choose></script>")
+    int transition(@Param("job") RenewalJob job, @Param("from") JobState from, @Param("to") JobState to);
+}
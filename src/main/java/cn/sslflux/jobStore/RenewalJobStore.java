@@ -0,0 +1,276 @@
+package cn.sslflux.jobStore;
+
+import cn.sslflux.Utils.CertUtils;
+import cn.sslflux.Utils.CryptoServices;
+import cn.sslflux.acmeClient.model.CertificatePlan;
+import cn.sslflux.jobStore.model.JobState;
+import cn.sslflux.jobStore.model.RenewalJob;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期任务存储
+ * 每完成一步即持久化并转换状态，状态转换以当前状态和执行节点为条件更新，
+ * 防止并发流程或任务锁已被接管的节点覆盖彼此的进度；
+ * 域名私钥加密后保存，任务结束（已部署或失败）时清除
+ * @date 2025/3/27 10:05
+ */
+@Slf4j
+@Component
+public class RenewalJobStore {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final RenewalJobMapper mapper;
+    private final KeyPairCipher keyPairCipher;
+    // 同一任务累计失败达到该次数后标记为失败，不再自动恢复
+    private final int maxAttempts;
+    // 失败后至少间隔该时长才会被其他节点重新认领
+    private final Duration retryDelay;
+
+    public RenewalJobStore(RenewalJobMapper mapper, KeyPairCipher keyPairCipher,
+                           @Value("${sslflux.job.max-attempts:5}") int maxAttempts,
+                           @Value("${sslflux.job.retry-delay:30m}") Duration retryDelay) {
+        this.mapper = mapper;
+        this.keyPairCipher = keyPairCipher;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * 清除已结束任务遗留的私钥（含旧版本以明文保存的）
+     */
+    @PostConstruct
+    public void purgeFinishedKeys() {
+        int cleared = mapper.clearFinishedKeyPairs();
+        if (cleared > 0) {
+            log.info("已清除结束任务的域名私钥 [Jobs: {}]", cleared);
+        }
+    }
+
+    /**
+     * 获取计划对应的未结束任务，不存在时新建
+     *
+     * @throws IllegalStateException 计划的部署目标与其他未结束的任务重叠（如域名被重新分组），
+     *                               同一域名同时只能由一个任务签发和部署
+     */
+    public RenewalJob open(CertificatePlan plan) {
+        String planKey = planKey(plan.getIdentifiers());
+        RenewalJob existing = mapper.findActiveByPlanKey(planKey);
+        if (existing != null) {
+            log.info("沿用未完成的续期任务 [JobId: {}] [State: {}]", existing.getId(), existing.getState());
+            return existing;
+        }
+        Set<String> targets = new HashSet<>(plan.getTargets());
+        for (RenewalJob active : mapper.findActiveByRegistrableDomain(plan.getRegistrableDomain())) {
+            List<String> overlap = split(active.getTargets()).stream().filter(targets::contains).toList();
+            if (!overlap.isEmpty()) {
+                throw new IllegalStateException("续期计划与未结束的任务重叠 [JobId: " + active.getId()
+                        + "] [Domains: " + overlap + "]");
+            }
+        }
+        Date now = new Date();
+        RenewalJob job = new RenewalJob();
+        job.setPlanKey(planKey);
+        job.setRegistrableDomain(plan.getRegistrableDomain());
+        job.setIdentifiers(String.join(",", plan.getIdentifiers()));
+        job.setTargets(String.join(",", plan.getTargets()));
+        job.setState(JobState.PENDING);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        mapper.insert(job);
+        return job;
+    }
+
+    public List<RenewalJob> findUnfinished() {
+        return mapper.findUnfinished();
+    }
+
+    /**
+     * 部署目标 -> 覆盖该域名的未结束任务
+     */
+    public Map<String, RenewalJob> findUnfinishedByTarget() {
+        Map<String, RenewalJob> byTarget = new HashMap<>();
+        for (RenewalJob job : mapper.findUnfinished()) {
+            split(job.getTargets()).forEach(target -> byTarget.putIfAbsent(target, job));
+        }
+        return byTarget;
+    }
+
+    /**
+     * 可被认领的未结束任务：从未失败过，或距上次失败已超过重试间隔
+     */
+    public List<RenewalJob> findClaimable() {
+        Date retryBefore = new Date(System.currentTimeMillis() - retryDelay.toMillis());
+        return mapper.findUnfinished().stream()
+                .filter(job -> job.getAttempts() == 0 || job.getUpdatedAt().before(retryBefore))
+                .toList();
+    }
+
+    /**
+     * 重新读取任务的最新状态
+     */
+    public Optional<RenewalJob> find(long id) {
+        return Optional.ofNullable(mapper.findById(id));
+    }
+
+    /**
+     * 登记当前节点为任务的执行节点，之后的状态变更只对该节点生效
+     *
+     * @return 任务已结束时返回 false
+     */
+    public boolean claim(RenewalJob job, String owner) {
+        if (mapper.claim(job.getId(), owner) == 0) {
+            return false;
+        }
+        job.setLockOwner(owner);
+        return true;
+    }
+
+    /**
+     * 保存当前字段并转换到目标状态
+     *
+     * @throws IllegalStateException 转换不合法、任务状态已被修改或已被其他节点认领
+     */
+    public void advance(RenewalJob job, JobState to) {
+        JobState from = job.getState();
+        if (!from.canTransitionTo(to)) {
+            throw new IllegalStateException("续期任务状态转换不合法 [JobId: " + job.getId() + "] " + from + " -> " + to);
+        }
+        job.setUpdatedAt(new Date());
+        if (to != from) {
+            job.setLastError(null);
+        }
+        if (to.isTerminal()) {
+            job.setKeyPairPem(null);
+        }
+        if (mapper.transition(job, from, to) == 0) {
+            throw new IllegalStateException("续期任务状态已被修改或已被其他节点认领 [JobId: " + job.getId()
+                    + "] [Expected: " + from + "] [Owner: " + job.getLockOwner() + "]");
+        }
+        job.setState(to);
+        if (to != from) {
+            log.info("续期任务状态变更 [JobId: {}] [{} -> {}]", job.getId(), from, to);
+        }
+    }
+
+    /**
+     * 记录一次失败，超过重试次数时标记为失败；未超过时保持当前状态，下次从该步骤继续
+     */
+    public void recordFailure(RenewalJob job, String error) {
+        if (job.getState().isTerminal()) {
+            return;
+        }
+        job.setAttempts(job.getAttempts() + 1);
+        JobState to = job.getAttempts() >= maxAttempts ? JobState.FAILED : job.getState();
+        String message = error == null ? "unknown" : error;
+        job.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        if (to.isTerminal()) {
+            job.setKeyPairPem(null);
+        }
+        try {
+            JobState from = job.getState();
+            job.setUpdatedAt(new Date());
+            if (mapper.transition(job, from, to) > 0) {
+                job.setState(to);
+            }
+            if (to == JobState.FAILED) {
+                log.error("续期任务多次失败，停止重试 [JobId: {}] [Attempts: {}] [Error: {}]",
+                        job.getId(), job.getAttempts(), job.getLastError());
+            }
+        } catch (Exception ex) {
+            log.error("续期任务失败状态保存失败 [JobId: {}]", job.getId(), ex);
+        }
+    }
+
+    /**
+     * 订单在CA侧已失效，退回下单步骤
+     */
+    public void resetOrder(RenewalJob job) {
+        job.setOrderUrl(null);
+        job.setKeyPairPem(null);
+        advance(job, JobState.PENDING);
+    }
+
+    /**
+     * 缩小任务的标识与部署目标并退回下单步骤（部分标识授权失败后重新下单）
+     *
+     * @throws IllegalStateException 当前状态不能退回或任务状态已被修改
+     */
+    public void replan(RenewalJob job, CertificatePlan plan) {
+        JobState from = job.getState();
+        if (!from.canTransitionTo(JobState.PENDING)) {
+            throw new IllegalStateException("续期任务状态转换不合法 [JobId: " + job.getId() + "] " + from + " -> PENDING");
+        }
+        job.setPlanKey(planKey(plan.getIdentifiers()));
+        job.setIdentifiers(String.join(",", plan.getIdentifiers()));
+        job.setTargets(String.join(",", plan.getTargets()));
+        job.setOrderUrl(null);
+        job.setKeyPairPem(null);
+        job.setUpdatedAt(new Date());
+        if (mapper.replan(job, from) == 0) {
+            throw new IllegalStateException("续期任务状态已被修改或已被其他节点认领 [JobId: " + job.getId()
+                    + "] [Expected: " + from + "] [Owner: " + job.getLockOwner() + "]");
+        }
+        job.setState(JobState.PENDING);
+        log.info("续期任务重新规划 [JobId: {}] [{} -> PENDING] [Identifiers: {}]", job.getId(), from, job.getIdentifiers());
+    }
+
+    /**
+     * 签发前加密保存域名密钥对，恢复时使用同一密钥
+     */
+    public void saveKeyPair(RenewalJob job, KeyPair keyPair) throws IOException {
+        job.setKeyPairPem(keyPairCipher.encrypt(CertUtils.generateKeyPairPem(keyPair), job.getId()));
+        advance(job, job.getState());
+    }
+
+    public Optional<KeyPair> loadKeyPair(RenewalJob job) throws IOException {
+        if (job.getKeyPairPem() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(CertUtils.parseKeyPair(keyPairCipher.decrypt(job.getKeyPairPem(), job.getId())));
+    }
+
+    /**
+     * 由任务还原签发计划
+     */
+    public static CertificatePlan toPlan(RenewalJob job) {
+        CertificatePlan plan = new CertificatePlan();
+        plan.setRegistrableDomain(job.getRegistrableDomain());
+        plan.getIdentifiers().addAll(split(job.getIdentifiers()));
+        plan.getTargets().addAll(split(job.getTargets()));
+        return plan;
+    }
+
+    /**
+     * 标识集合摘要，与顺序无关
+     */
+    public static String planKey(List<String> identifiers) {
+        String[] sorted = identifiers.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return HexFormat.of().formatHex(
+                CryptoServices.sha256(String.join(",", sorted).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> split(String joined) {
+        return joined == null || joined.isEmpty() ? List.of() : List.of(joined.split(","));
+    }
+}
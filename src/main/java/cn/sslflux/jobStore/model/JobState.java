@@ -0,0 +1,47 @@
+package cn.sslflux.jobStore.model;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期任务状态
+ * PENDING -> ORDERED -> AUTHORIZED -> ISSUED -> DEPLOYED，任一未结束状态可转为 FAILED；
+ * 订单在CA侧失效时从 ORDERED/AUTHORIZED 退回 PENDING 重新下单
+ * @date 2025/3/27 09:30
+ */
+public enum JobState {
+    // 已创建，尚未下单
+    PENDING,
+    // 已下单，订单URL已保存
+    ORDERED,
+    // 授权全部通过，等待签发
+    AUTHORIZED,
+    // 证书已签发并保存
+    ISSUED,
+    // 已部署到全部目标域名
+    DEPLOYED,
+    // 超过重试次数或不可恢复的错误
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == DEPLOYED || this == FAILED;
+    }
+
+    /**
+     * 是否允许转换到目标状态，同一状态之间的转换用于记录重试信息
+     */
+    public boolean canTransitionTo(JobState next) {
+        if (isTerminal()) {
+            return false;
+        }
+        if (next == this || next == FAILED) {
+            return true;
+        }
+        return switch (this) {
+            case PENDING -> next == ORDERED;
+            case ORDERED -> next == AUTHORIZED || next == PENDING;
+            case AUTHORIZED -> next == ISSUED || next == PENDING;
+            case ISSUED -> next == DEPLOYED;
+            default -> false;
+        };
+    }
+}
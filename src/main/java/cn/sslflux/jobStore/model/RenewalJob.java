@@ -0,0 +1,39 @@
+package cn.sslflux.jobStore.model;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期任务，记录每一步完成后的状态，重启后从最后完成的步骤继续
+ * @date 2025/3/27 09:40
+ */
+@Data
+public class RenewalJob {
+
+    private Long id;
+    // 标识集合的摘要，同一组标识同时只有一个未结束的任务
+    private String planKey;
+    private String registrableDomain;
+    // 订单标识与部署目标，逗号分隔
+    private String identifiers;
+    private String targets;
+    private JobState state;
+    // ACME订单URL，恢复时重新绑定，不再新建订单
+    private String orderUrl;
+    // 签发后的证书URL
+    private String certificateUrl;
+    // 域名密钥对（PEM，AES-GCM加密），签发前保存，保证恢复后CSR与已签发证书一致；任务结束后清除
+    private String keyPairPem;
+    private String certFile;
+    // 各目标域名的部署结果
+    private String deployResult;
+    private int attempts;
+    private String lastError;
+    // 当前执行该任务的节点，状态变更以此为条件，任务锁被接管后原节点的写入不再生效
+    private String lockOwner;
+    private Date createdAt;
+    private Date updatedAt;
+}
@@ -0,0 +1,183 @@
+package cn.sslflux.metrics;
+
+import cn.sslflux.acmeClient.model.CertificateValidityPeriod;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期全流程观测
+ * 1. 每个阶段记录为一次 Observation：指标为 sslflux.renewal.stage 计时器（按 stage、outcome 区分），
+ * 接入链路追踪时同时生成 span，并以域名、订单URL关联到所属续期任务
+ * 2. 各域名证书到期时间以 sslflux.certificate.not.after 仪表暴露
+ * @date 2025/3/29 10:10
+ */
+@Component
+public class RenewalMetrics {
+
+    public static final String STAGE_OBSERVATION = "sslflux.renewal.stage";
+    public static final String RENEWAL_OBSERVATION = "sslflux.renewal";
+
+    /**
+     * 续期流程阶段
+     */
+    public enum Stage {
+        ENUMERATE, PROBE, ORDER_CREATE, DNS_ADD, PROPAGATION_WAIT, CHALLENGE_VALIDATION, FINALIZE, DEPLOY, DNS_CLEANUP;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private final ObservationRegistry observationRegistry;
+    private final MultiGauge expiryGauge;
+
+    public RenewalMetrics(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry = observationRegistry;
+        this.expiryGauge = meterRegistry == null ? null : MultiGauge.builder("sslflux.certificate.not.after")
+                .description("证书到期时间（Unix秒），同一域名取最早到期的证书")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 不记录任何数据，供未接入Spring的场景使用
+     */
+    public static RenewalMetrics noop() {
+        return new RenewalMetrics(ObservationRegistry.NOOP, null);
+    }
+
+    /**
+     * 观测一个同步阶段
+     *
+     * @param domain 所属域名，可为空
+     */
+    public <T, E extends Throwable> T observe(Stage stage, String domain,
+                                              Observation.CheckedCallable<T, E> action) throws E {
+        return observe(stage, domain, action, result -> "success");
+    }
+
+    /**
+     * 观测一个同步阶段，以返回值表示失败的阶段（如返回 false 或 null）由结果得出 outcome 标签
+     *
+     * @param outcome 由结果得出的 outcome 标签
+     */
+    public <T, E extends Throwable> T observe(Stage stage, String domain, Observation.CheckedCallable<T, E> action,
+                                              Function<T, String> outcome) throws E {
+        Observation observation = stageObservation(stage, domain);
+        observation.start();
+        try (Observation.Scope scope = observation.openScope()) {
+            T result = action.call();
+            observation.lowCardinalityKeyValue("outcome", outcome.apply(result));
+            return result;
+        } catch (Throwable ex) {
+            observation.lowCardinalityKeyValue("outcome", "error");
+            observation.error(ex);
+            throw ex;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * 以 null 表示失败的阶段结果（如订单创建、订单完成）对应的 outcome 标签
+     */
+    public static String outcomeOf(Object result) {
+        return result != null ? "success" : "failure";
+    }
+
+    /**
+     * 观测一个异步阶段，结果完成时结束
+     *
+     * @param outcome 由结果得出的 outcome 标签
+     */
+    public <T> CompletableFuture<T> observeAsync(Stage stage, String domain, Supplier<CompletableFuture<T>> action,
+                                                 Function<T, String> outcome) {
+        Observation observation = stageObservation(stage, domain);
+        observation.start();
+        CompletableFuture<T> future;
+        try (Observation.Scope scope = observation.openScope()) {
+            future = action.get();
+        } catch (RuntimeException ex) {
+            observation.lowCardinalityKeyValue("outcome", "error");
+            observation.error(ex);
+            observation.stop();
+            throw ex;
+        }
+        return future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                observation.lowCardinalityKeyValue("outcome", "error");
+                observation.error(ex);
+            } else {
+                observation.lowCardinalityKeyValue("outcome", outcome.apply(result));
+            }
+            observation.stop();
+        });
+    }
+
+    /**
+     * 开始一个续期任务的观测，调用方负责打开作用域并在结束时调用 stop
+     */
+    public Observation startRenewal(String domain, Long jobId) {
+        return Observation.createNotStarted(RENEWAL_OBSERVATION, observationRegistry)
+                .contextualName("renewal " + domain)
+                .highCardinalityKeyValue("domain", domain)
+                .highCardinalityKeyValue("job.id", String.valueOf(jobId))
+                .start();
+    }
+
+    /**
+     * 将订单URL关联到当前观测（续期任务）
+     */
+    public void tagOrder(String orderUrl) {
+        Observation current = observationRegistry.getCurrentObservation();
+        if (current != null && orderUrl != null) {
+            current.highCardinalityKeyValue("order", orderUrl);
+        }
+    }
+
+    /**
+     * 更新各域名证书到期时间，本轮未出现的域名随之移除
+     */
+    public void recordExpiries(Collection<CertificateValidityPeriod> periods) {
+        if (expiryGauge == null) {
+            return;
+        }
+        Map<String, Date> soonest = new HashMap<>();
+        for (CertificateValidityPeriod period : periods) {
+            if (period.getNotAfter() != null) {
+                soonest.merge(period.getHostname(), period.getNotAfter(), (a, b) -> a.before(b) ? a : b);
+            }
+        }
+        List<MultiGauge.Row<?>> rows = soonest.entrySet().stream()
+                .<MultiGauge.Row<?>>map(entry -> MultiGauge.Row.of(Tags.of("domain", entry.getKey()),
+                        entry.getValue().getTime() / 1000))
+                .toList();
+        expiryGauge.register(rows, true);
+    }
+
+    private Observation stageObservation(Stage stage, String domain) {
+        Observation observation = Observation.createNotStarted(STAGE_OBSERVATION, observationRegistry)
+                .contextualName(stage.tag())
+                .lowCardinalityKeyValue("stage", stage.tag());
+        if (domain != null) {
+            observation.highCardinalityKeyValue("domain", domain);
+        }
+        return observation;
+    }
+}
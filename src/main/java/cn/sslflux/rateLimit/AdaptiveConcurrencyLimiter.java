@@ -0,0 +1,102 @@
+package cn.sslflux.rateLimit;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: AIMD自适应并发控制
+ * 调用成功时并发上限缓慢增加（每个完整窗口+1），被限流时减半，始终处于[下限, 上限]之间；
+ * 异步获取的名额排队等待，由释放名额的线程依次交接，不占用线程
+ * @date 2025/3/26 09:50
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = this.maxLimit;
+    }
+
+    /**
+     * 占用一个并发名额，达到当前上限时阻塞
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * 异步占用一个并发名额，达到当前上限时排队，名额释放后完成
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        synchronized (this) {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+    }
+
+    /**
+     * 释放名额并根据调用结果调整上限
+     *
+     * @param throttled 是否被服务端限流
+     */
+    public void release(boolean throttled) {
+        synchronized (this) {
+            inFlight--;
+            if (throttled) {
+                limit = Math.max(minLimit, limit / 2);
+            } else {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            notifyAll();
+        }
+        handOff();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * 把空出的名额交给排队的异步请求，在锁外完成以免回调持有锁
+     */
+    private void handOff() {
+        while (true) {
+            CompletableFuture<Void> waiter;
+            synchronized (this) {
+                if (waiters.isEmpty() || inFlight >= (int) limit) {
+                    return;
+                }
+                waiter = waiters.poll();
+                inFlight++;
+            }
+            if (!waiter.complete(null)) {
+                // 等待方已取消，名额退回
+                synchronized (this) {
+                    inFlight--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package cn.sslflux.rateLimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 限流配置
+ * 按 服务商 -> 接口 逐级覆盖，未配置的字段依次回退到服务商配置和全局默认值
+ * @date 2025/3/26 09:30
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sslflux.rate-limit")
+public class RateLimitProperties {
+
+    // 全局默认值
+    private Limit defaults = new Limit(10.0, 10, 16, 1, new HashMap<>());
+    // 服务商配置，如 aliyun-dns / aliyun-cdn / acme
+    private Map<String, Limit> providers = new HashMap<>();
+
+    /**
+     * 解析指定接口的最终配置
+     */
+    public Limit resolve(String provider, String endpoint) {
+        Limit providerLimit = lookup(providers, provider);
+        Limit endpointLimit = providerLimit == null ? null : lookup(providerLimit.getEndpoints(), endpoint);
+        Limit resolved = new Limit();
+        resolved.setQps(first(endpointLimit == null ? null : endpointLimit.getQps(),
+                providerLimit == null ? null : providerLimit.getQps(), defaults.getQps()));
+        resolved.setBurst(first(endpointLimit == null ? null : endpointLimit.getBurst(),
+                providerLimit == null ? null : providerLimit.getBurst(), defaults.getBurst()));
+        resolved.setMaxConcurrency(first(endpointLimit == null ? null : endpointLimit.getMaxConcurrency(),
+                providerLimit == null ? null : providerLimit.getMaxConcurrency(), defaults.getMaxConcurrency()));
+        resolved.setMinConcurrency(first(endpointLimit == null ? null : endpointLimit.getMinConcurrency(),
+                providerLimit == null ? null : providerLimit.getMinConcurrency(), defaults.getMinConcurrency()));
+        return resolved;
+    }
+
+    /**
+     * 忽略大小写查找，兼容配置键的各种写法
+     */
+    private static Limit lookup(Map<String, Limit> limits, String key) {
+        if (limits == null || key == null) {
+            return null;
+        }
+        Limit exact = limits.get(key);
+        if (exact != null) {
+            return exact;
+        }
+        return limits.entrySet().stream()
+                .filter(entry -> entry.getKey().equalsIgnoreCase(key))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    @SafeVarargs
+    private static <T> T first(T... values) {
+        for (T value : values) {
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 单项限流配置
+     */
+    @Data
+    public static class Limit {
+        // 每秒允许的请求数
+        private Double qps;
+        // 令牌桶容量（允许的突发请求数）
+        private Integer burst;
+        // 自适应并发上限与下限
+        private Integer maxConcurrency;
+        private Integer minConcurrency;
+        // 接口级覆盖
+        private Map<String, Limit> endpoints = new HashMap<>();
+
+        public Limit() {
+        }
+
+        public Limit(Double qps, Integer burst, Integer maxConcurrency, Integer minConcurrency,
+                     Map<String, Limit> endpoints) {
+            this.qps = qps;
+            this.burst = burst;
+            this.maxConcurrency = maxConcurrency;
+            this.minConcurrency = minConcurrency;
+            this.endpoints = endpoints;
+        }
+    }
+}
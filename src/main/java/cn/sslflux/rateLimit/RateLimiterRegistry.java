@@ -0,0 +1,222 @@
+package cn.sslflux.rateLimit;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 限流器注册中心
+ * 每个 服务商+接口 拥有独立的令牌桶和自适应并发控制，被限流时并发减半并短暂暂停发放令牌；
+ * 每次调用记录为 sslflux.provider.call 观测（provider、endpoint、outcome，失败时附带异常类型）；
+ * 异步调用不阻塞调用线程：并发名额排队交接，令牌不足时由调度线程按预计等待时间重试
+ * @date 2025/3/26 10:10
+ */
+@Slf4j
+@Component
+public class RateLimiterRegistry {
+
+    public static final String ALIYUN_DNS = "aliyun-dns";
+    public static final String ALIYUN_CDN = "aliyun-cdn";
+    public static final String ACME = "acme";
+
+    // 被限流但服务端未给出退避时间时的默认暂停时长
+    private static final Duration DEFAULT_BACKOFF = Duration.ofSeconds(1);
+
+    public static final String CALL_OBSERVATION = "sslflux.provider.call";
+
+    private final RateLimitProperties properties;
+    private final ObservationRegistry observationRegistry;
+    private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+    // 异步调用等待令牌的定时重试，只做计时与发起调用，不执行阻塞操作
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sslflux-rate-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RateLimiterRegistry(RateLimitProperties properties) {
+        this(properties, ObservationRegistry.NOOP);
+    }
+
+    @Autowired
+    public RateLimiterRegistry(RateLimitProperties properties, ObservationRegistry observationRegistry) {
+        this.properties = properties;
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * 限流执行同步调用
+     *
+     * @param provider 服务商
+     * @param endpoint 接口名称
+     */
+    public <T> T call(String provider, String endpoint, Callable<T> call) throws Exception {
+        Limiter limiter = limiter(provider, endpoint);
+        limiter.acquire();
+        Observation observation = startObservation(provider, endpoint);
+        boolean throttled = false;
+        try (Observation.Scope scope = observation.openScope()) {
+            T result = call.call();
+            observation.lowCardinalityKeyValue("outcome", "success");
+            return result;
+        } catch (Exception ex) {
+            throttled = onError(limiter, provider, endpoint, ex);
+            failObservation(observation, ex, throttled);
+            throw ex;
+        } finally {
+            observation.stop();
+            limiter.concurrency.release(throttled);
+        }
+    }
+
+    /**
+     * 限流执行异步调用，不阻塞调用线程：取得名额与令牌后发起调用，调用完成后释放名额；
+     * 发起调用时抛出的异常同样通过返回的Future传递，不向调用方直接抛出
+     */
+    public <T> CompletableFuture<T> callAsync(String provider, String endpoint, Supplier<CompletableFuture<T>> call) {
+        Limiter limiter;
+        try {
+            limiter = limiter(provider, endpoint);
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return limiter.acquireAsync(scheduler).thenCompose(ignored -> start(limiter, provider, endpoint, call));
+    }
+
+    private <T> CompletableFuture<T> start(Limiter limiter, String provider, String endpoint,
+                                           Supplier<CompletableFuture<T>> call) {
+        Observation observation = startObservation(provider, endpoint);
+        CompletableFuture<T> future;
+        try (Observation.Scope scope = observation.openScope()) {
+            future = Objects.requireNonNull(call.get(), "异步调用未返回Future");
+        } catch (RuntimeException ex) {
+            boolean throttled = onError(limiter, provider, endpoint, ex);
+            failObservation(observation, ex, throttled);
+            observation.stop();
+            limiter.concurrency.release(throttled);
+            return CompletableFuture.failedFuture(ex);
+        }
+        return future.whenComplete((result, ex) -> {
+            boolean throttled = false;
+            if (ex == null) {
+                observation.lowCardinalityKeyValue("outcome", "success");
+            } else {
+                throttled = onError(limiter, provider, endpoint, ex);
+                failObservation(observation, ex, throttled);
+            }
+            observation.stop();
+            limiter.concurrency.release(throttled);
+        });
+    }
+
+    /**
+     * 当前并发上限，便于观察退避效果
+     */
+    public int currentLimit(String provider, String endpoint) {
+        return limiter(provider, endpoint).concurrency.getLimit();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private Observation startObservation(String provider, String endpoint) {
+        return Observation.createNotStarted(CALL_OBSERVATION, observationRegistry)
+                .contextualName(provider + " " + endpoint)
+                .lowCardinalityKeyValue("provider", provider)
+                .lowCardinalityKeyValue("endpoint", endpoint)
+                .start();
+    }
+
+    private static void failObservation(Observation observation, Throwable ex, boolean throttled) {
+        observation.lowCardinalityKeyValue("outcome", throttled ? "throttled" : "error");
+        observation.error(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+    }
+
+    private boolean onError(Limiter limiter, String provider, String endpoint, Throwable ex) {
+        if (!ThrottleDetector.isThrottled(ex)) {
+            return false;
+        }
+        Duration backoff = ThrottleDetector.retryAfter(ex).orElse(DEFAULT_BACKOFF);
+        limiter.bucket.pause(backoff);
+        log.warn("接口被限流，降低并发并退避 [Provider: {}] [Endpoint: {}] [Backoff: {}ms] [Limit: {}]",
+                provider, endpoint, backoff.toMillis(), limiter.concurrency.getLimit());
+        return true;
+    }
+
+    private Limiter limiter(String provider, String endpoint) {
+        return limiters.computeIfAbsent(provider + "/" + endpoint, key -> {
+            RateLimitProperties.Limit limit = properties.resolve(provider, endpoint);
+            log.debug("创建限流器 [Provider: {}] [Endpoint: {}] [QPS: {}] [Burst: {}] [Concurrency: {}-{}]",
+                    provider, endpoint, limit.getQps(), limit.getBurst(),
+                    limit.getMinConcurrency(), limit.getMaxConcurrency());
+            return new Limiter(new TokenBucket(limit.getQps(), limit.getBurst()),
+                    new AdaptiveConcurrencyLimiter(limit.getMinConcurrency(), limit.getMaxConcurrency()));
+        });
+    }
+
+    /**
+     * 单个接口的限流器：先取并发名额再取令牌
+     */
+    private record Limiter(TokenBucket bucket, AdaptiveConcurrencyLimiter concurrency) {
+        void acquire() throws InterruptedException {
+            concurrency.acquire();
+            try {
+                bucket.acquire();
+            } catch (InterruptedException ex) {
+                concurrency.release(false);
+                throw ex;
+            }
+        }
+
+        /**
+         * 异步获取名额与令牌；排队等到的名额在调度线程上继续，避免在释放名额的回调里层层嵌套
+         */
+        CompletableFuture<Void> acquireAsync(ScheduledExecutorService scheduler) {
+            CompletableFuture<Void> slot = concurrency.acquireAsync();
+            if (slot.isDone()) {
+                return takeToken(scheduler);
+            }
+            return slot.thenComposeAsync(ignored -> takeToken(scheduler), scheduler);
+        }
+
+        private CompletableFuture<Void> takeToken(ScheduledExecutorService scheduler) {
+            CompletableFuture<Void> token = new CompletableFuture<>();
+            pollToken(token, scheduler);
+            return token;
+        }
+
+        private void pollToken(CompletableFuture<Void> token, ScheduledExecutorService scheduler) {
+            long waitNanos = bucket.tryAcquire();
+            if (waitNanos == 0) {
+                token.complete(null);
+                return;
+            }
+            try {
+                scheduler.schedule(() -> pollToken(token, scheduler), waitNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException ex) {
+                concurrency.release(false);
+                token.completeExceptionally(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package cn.sslflux.rateLimit;
+
+import com.aliyun.sdk.gateway.pop.exception.PopClientException;
+import com.aliyun.sdk.gateway.pop.exception.PopServerException;
+import org.shredzone.acme4j.exception.AcmeRateLimitedException;
+import org.shredzone.acme4j.exception.AcmeServerException;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 识别服务端限流错误
+ * 只按结构化字段判断，不匹配异常文本（请求ID、域名、记录值中可能出现 429、Throttling 等字样）：
+ * 阿里云：SDK异常的错误码 Throttling / Throttling.User / Throttling.Api 等；ACME：rateLimited 问题类型
+ * @date 2025/3/26 10:00
+ */
+public final class ThrottleDetector {
+
+    private static final String ALIYUN_THROTTLING = "Throttling";
+    private static final URI ACME_RATE_LIMITED = URI.create("urn:ietf:params:acme:error:rateLimited");
+
+    private ThrottleDetector() {
+    }
+
+    public static boolean isThrottled(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof AcmeRateLimitedException) {
+                return true;
+            }
+            if (t instanceof AcmeServerException server && ACME_RATE_LIMITED.equals(server.getType())) {
+                return true;
+            }
+            String errorCode = aliyunErrorCode(t);
+            if (errorCode != null && errorCode.startsWith(ALIYUN_THROTTLING)) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 服务端建议的退避时长（仅ACME提供）
+     */
+    public static Optional<Duration> retryAfter(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof AcmeRateLimitedException rateLimited) {
+                return rateLimited.getRetryAfter()
+                        .map(instant -> Duration.between(Instant.now(), instant))
+                        .filter(duration -> !duration.isNegative());
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 阿里云SDK异常的错误码，非阿里云异常返回 null
+     */
+    private static String aliyunErrorCode(Throwable t) {
+        if (t instanceof PopClientException client) {
+            return client.getErrCode();
+        }
+        if (t instanceof PopServerException server) {
+            return server.getErrCode();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,78 @@
+package cn.sslflux.rateLimit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 令牌桶，按固定速率补充令牌，允许不超过容量的突发请求
+ * @date 2025/3/26 09:40
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    // 纳秒时钟，测试时可替换
+    private final LongSupplier ticker;
+    private double tokens;
+    private long lastRefill;
+    // 被限流后暂停发放令牌直到该时间点；纳秒时钟的起点任意（可能为负），只能比较差值
+    private long pausedUntil;
+
+    public TokenBucket(double qps, int burst) {
+        this(qps, burst, System::nanoTime);
+    }
+
+    public TokenBucket(double qps, int burst, LongSupplier ticker) {
+        this.permitsPerNano = qps / 1_000_000_000d;
+        this.capacity = Math.max(1, burst);
+        this.ticker = ticker;
+        this.tokens = capacity;
+        this.lastRefill = ticker.getAsLong();
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * 获取一个令牌，不足时阻塞等待
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            Thread.sleep(Math.max(1, waitNanos / 1_000_000));
+        }
+    }
+
+    /**
+     * 尝试获取一个令牌，不阻塞
+     *
+     * @return 0 表示已获取；否则为预计还需等待的纳秒数
+     */
+    public synchronized long tryAcquire() {
+        long now = ticker.getAsLong();
+        refill(now);
+        long pauseWait = pausedUntil - now;
+        if (pauseWait <= 0 && tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long refillWait = (long) Math.ceil((1 - tokens) / permitsPerNano);
+        return Math.max(1, Math.max(pauseWait, refillWait));
+    }
+
+    /**
+     * 暂停发放令牌，用于服务端明确要求退避的场景
+     */
+    public synchronized void pause(Duration duration) {
+        long until = ticker.getAsLong() + duration.toNanos();
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+        tokens = 0;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
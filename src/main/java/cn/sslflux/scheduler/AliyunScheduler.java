@@ -1,33 +1,59 @@
 package cn.sslflux.scheduler;
 
 import cn.sslflux.Utils.CertUtils;
-import cn.sslflux.Utils.DomainUtils;
 import cn.sslflux.acmeClient.core.AccountSession;
 import cn.sslflux.acmeClient.core.AcmeChallengeProcessor;
+import cn.sslflux.acmeClient.core.AcmeChallengeProcessor.AuthorizationResult;
 import cn.sslflux.acmeClient.core.AcmeCoreClient;
 import cn.sslflux.acmeClient.core.DnsProvider;
+import cn.sslflux.acmeClient.core.TlsExpiryProber;
+import cn.sslflux.acmeClient.model.CertificatePlan;
 import cn.sslflux.acmeClient.model.CertificateValidityPeriod;
+import cn.sslflux.acmeClient.model.ProbeStatus;
+import cn.sslflux.cluster.ClusterCoordinator;
+import cn.sslflux.certManager.CdnCatalog;
+import cn.sslflux.certManager.CertificateInventory;
+import cn.sslflux.certManager.DomainKeyPool;
+import cn.sslflux.certManager.model.CatalogChange;
+import cn.sslflux.certManager.model.CertificateRecord;
+import cn.sslflux.certManager.model.DeployStatus;
 import cn.sslflux.cloudAdapters.AliyunCDN;
-import jakarta.annotation.PostConstruct;
+import cn.sslflux.cloudAdapters.AliyunCdnDeployer;
+import cn.sslflux.jobStore.RenewalJobStore;
+import cn.sslflux.jobStore.model.JobState;
+import cn.sslflux.jobStore.model.RenewalJob;
+import cn.sslflux.metrics.RenewalMetrics;
+import cn.sslflux.rateLimit.RateLimiterRegistry;
+import cn.sslflux.scheduler.RenewalPipeline.Stage;
+import io.micrometer.observation.Observation;
 import lombok.extern.slf4j.Slf4j;
-import org.shredzone.acme4j.Account;
 import org.shredzone.acme4j.Certificate;
+import org.shredzone.acme4j.Login;
 import org.shredzone.acme4j.Order;
+import org.shredzone.acme4j.Status;
 import org.shredzone.acme4j.challenge.Dns01Challenge;
-import org.shredzone.acme4j.util.KeyPairUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.KeyPair;
-import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author liuyg
@@ -50,82 +76,569 @@ public class AliyunScheduler {
     @Autowired
     private AccountSession accountSession;
 
-    // 每天凌晨1点执行
+    @Autowired
+    private RenewalPipeline renewalPipeline;
+
+    @Autowired
+    private CertificateInventory certificateInventory;
+
+    @Autowired
+    private TlsExpiryProber tlsExpiryProber;
+
+    @Autowired
+    private OrderPlanner orderPlanner;
+
+    @Autowired
+    private DomainKeyPool domainKeyPool;
+
+    @Autowired
+    private CdnCatalog cdnCatalog;
+
+    @Autowired
+    private AliyunCdnDeployer cdnDeployer;
+
+    @Autowired
+    private RateLimiterRegistry rateLimiter;
+
+    @Autowired
+    private RenewalJobStore jobStore;
+
+    @Autowired
+    private ClusterCoordinator cluster;
+
+    @Autowired
+    private RenewalRunTracker runTracker;
+
+    @Autowired
+    private RenewalPlanner renewalPlanner;
+
+    @Autowired
+    private RenewalQueue renewalQueue;
+
+    @Autowired
+    private RenewalMetrics metrics;
+
+    // 签发的证书与私钥保存目录
+    @Value("${sslflux.inventory.certs-dir:certs}")
+    private String certsDir;
+
+    // 续期排期覆盖的时长，应不短于两次巡检的间隔
+    @Value("${sslflux.renewal.planning-horizon:24h}")
+    private Duration planningHorizon;
+
+    // 每天凌晨1点执行；启动后的首轮由 RenewalWarmup 在后台触发
     @Scheduled(cron = "0 0 1 * * ?")
-    @PostConstruct
     public void autoRenewCertificates() {
-        List<CertificateValidityPeriod> domains = aliyunCDN.getDomainList();
-        domains.forEach(this::processDomainCertificate);
+        runRenewalPass("cron");
     }
 
-    private void processDomainCertificate(CertificateValidityPeriod domainCert) {
+    /**
+     * 执行一轮续期，上一轮尚未结束时跳过；异常只记录，不向调用方抛出，
+     * Error 记入本轮结果后继续抛出
+     *
+     * @param trigger 触发来源
+     */
+    public void runRenewalPass(String trigger) {
+        // 集群部署时仅由协调者枚举域名并排期，其他节点按一致性哈希认领任务
+        if (!cluster.isCoordinator()) {
+            log.info("当前节点不是协调者，跳过域名枚举 [Node: {}] [Trigger: {}]", cluster.getNodeId(), trigger);
+            runTracker.standby();
+            return;
+        }
+        if (!runTracker.tryStart(trigger)) {
+            log.warn("上一轮续期尚未结束，跳过本次触发 [Trigger: {}]", trigger);
+            return;
+        }
+        Throwable error = null;
         try {
-            if (domainCert.getNotAfter() == null) {
-                log.info("检测到域名没有证书 [Domain: {}] ",
-                        domainCert.getHostname());
-                renewCertificate(domainCert.getHostname());
-            } else if (isCertExpiringSoon(domainCert.getNotAfter())) {
-                log.info("检测到证书即将过期 [Domain: {}] [Expire: {}]",
-                        domainCert.getHostname(), domainCert.getNotAfter());
-                renewCertificate(domainCert.getHostname());
+            renewAll();
+        } catch (Throwable ex) {
+            error = ex;
+            log.error("续期运行异常 [Trigger: {}]", trigger, ex);
+            if (ex instanceof Error fatal) {
+                throw fatal;
             }
-        } catch (Exception ex) {
-            log.error("证书续期处理失败 [Domain: {}]", domainCert.getHostname(), ex);
+        } finally {
+            // 任何失败都要结束本轮，否则后续触发会一直被当作上一轮未结束而跳过
+            runTracker.finish(error);
+        }
+    }
+
+    private void renewAll() {
+        // 先恢复上次中断的任务；其目标域名本轮不再排期，仍未完成的由任务认领或下一轮恢复继续，不在同一轮重复执行
+        Set<String> resumed = resumeUnfinishedJobs();
+
+        List<CertificateValidityPeriod> domains = resolveValidity();
+        scheduleRenewals(domains, resumed);
+    }
+
+    /**
+     * 计算每个域名的续期时间，在下一轮巡检前到期的按时间排入队列，由 dispatchDue 分批执行
+     *
+     * @param resumed 本轮已恢复的任务覆盖的域名，跳过排期
+     */
+    private void scheduleRenewals(List<CertificateValidityPeriod> domains, Set<String> resumed) {
+        Instant now = Instant.now();
+        Instant horizon = now.plus(planningHorizon);
+        int immediate = 0;
+        int later = 0;
+        int skipped = 0;
+        for (CertificateValidityPeriod domain : domains) {
+            if (resumed.contains(domain.getHostname())) {
+                // 上一轮排入队列、尚未派发的同样撤销，避免派发时再次打开同一任务
+                renewalQueue.cancel(domain.getHostname());
+                skipped++;
+                continue;
+            }
+            Instant at = renewalPlanner.scheduleTime(domain, now);
+            if (at.isAfter(horizon)) {
+                renewalQueue.cancel(domain.getHostname());
+                continue;
+            }
+            if (domain.getNotAfter() == null) {
+                log.info("检测到域名没有证书 [Domain: {}] [Probe: {}]",
+                        domain.getHostname(), domain.getProbeStatus());
+            } else {
+                log.info("证书进入续期队列 [Domain: {}] [Expire: {}] [RenewAt: {}]",
+                        domain.getHostname(), domain.getNotAfter(), at);
+            }
+            renewalQueue.schedule(domain.getHostname(), at);
+            if (at.isAfter(now)) {
+                later++;
+            } else {
+                immediate++;
+            }
+        }
+        if (skipped > 0) {
+            log.info("域名已有恢复中的续期任务，本轮不再排期 [Domains: {}]", skipped);
+        }
+        if (immediate + later == 0) {
+            log.info("没有需要续期的证书");
+            return;
+        }
+        log.info("续期已排期 [Immediate: {}] [Later: {}] [Queued: {}]", immediate, later, renewalQueue.size());
+    }
+
+    /**
+     * 定期取出到期的域名，合并为多SAN订单并执行，使续期分散在一天之内；
+     * 执行完毕后据队列剩余情况更新首轮续期是否完成
+     */
+    @Scheduled(fixedDelayString = "${sslflux.renewal.dispatch-interval:1m}",
+            initialDelayString = "${sslflux.renewal.dispatch-interval:1m}")
+    public void dispatchDue() {
+        if (!cluster.isCoordinator()) {
+            runTracker.standby();
+            return;
+        }
+        dispatch(renewalQueue.pollDue(Instant.now()));
+        runTracker.dispatchSettled(renewalQueue.nextDueAt());
+    }
+
+    private void dispatch(List<String> dueDomains) {
+        if (dueDomains.isEmpty()) {
+            return;
+        }
+        // 已有未结束任务的域名沿用原任务，不因重新分组产生覆盖同一域名的新任务
+        Map<String, RenewalJob> liveByTarget = jobStore.findUnfinishedByTarget();
+        Map<Long, RenewalJob> jobs = new LinkedHashMap<>();
+        List<String> toPlan = new ArrayList<>();
+        for (String domain : dueDomains) {
+            RenewalJob live = liveByTarget.get(domain);
+            if (live != null) {
+                jobs.putIfAbsent(live.getId(), live);
+            } else {
+                toPlan.add(domain);
+            }
+        }
+        // 同一根域名下的域名合并为多SAN证书
+        List<CertificatePlan> plans = toPlan.isEmpty() ? List.of() : orderPlanner.plan(toPlan);
+        log.info("执行到期续期 [Domains: {}] [Orders: {}] [Resumed: {}] [Remaining: {}]",
+                dueDomains.size(), plans.size(), jobs.size(), renewalQueue.size());
+        // 按订单数量预生成密钥，签发时无需等待
+        domainKeyPool.reserve(plans.size());
+        for (CertificatePlan plan : plans) {
+            try {
+                RenewalJob job = jobStore.open(plan);
+                jobs.putIfAbsent(job.getId(), job);
+            } catch (IllegalStateException ex) {
+                log.warn("续期计划未创建任务 [Domains: {}] [Reason: {}]", plan.getTargets(), ex.getMessage());
+            }
+        }
+        runOwnedJobs(new ArrayList<>(jobs.values()));
+    }
+
+    /**
+     * 集群模式下定期认领由本节点负责的任务，包括宕机节点遗留、锁已过期的任务
+     */
+    @Scheduled(fixedDelayString = "${sslflux.cluster.claim-interval:60s}",
+            initialDelayString = "${sslflux.cluster.claim-interval:60s}")
+    public void claimJobs() {
+        if (!cluster.isEnabled()) {
+            return;
+        }
+        runOwnedJobs(jobStore.findClaimable());
+    }
+
+    /**
+     * 恢复未完成的任务
+     *
+     * @return 这些任务的目标域名
+     */
+    private Set<String> resumeUnfinishedJobs() {
+        List<RenewalJob> unfinished = jobStore.findUnfinished();
+        if (unfinished.isEmpty()) {
+            return Set.of();
+        }
+        log.info("恢复未完成的续期任务 [Jobs: {}]", unfinished.size());
+        runOwnedJobs(unfinished);
+        Set<String> targets = new HashSet<>();
+        unfinished.forEach(job -> targets.addAll(RenewalJobStore.toPlan(job).getTargets()));
+        return targets;
+    }
+
+    /**
+     * 执行按一致性哈希（可注册域名）划分给本节点的任务
+     */
+    private void runOwnedJobs(List<RenewalJob> jobs) {
+        List<RenewalJob> owned = jobs.stream()
+                .filter(job -> cluster.owns(partitionKey(job)))
+                .toList();
+        if (owned.size() < jobs.size()) {
+            log.info("按节点划分续期任务 [Node: {}] [Owned: {}] [Total: {}]",
+                    cluster.getNodeId(), owned.size(), jobs.size());
+        }
+        renewalPipeline.runAll(owned, this::runLocked);
+    }
+
+    /**
+     * 持有任务锁执行，锁被其他节点持有或任务已结束时跳过
+     */
+    private void runLocked(RenewalJob job) {
+        String lock = lockName(job);
+        if (!cluster.tryLock(lock)) {
+            log.debug("续期任务正在其他流程中执行 [JobId: {}]", job.getId());
+            return;
+        }
+        try {
+            // 等待锁期间任务可能已被推进，以库中最新状态为准；登记执行节点后，锁被接管时本节点的状态变更不再生效
+            jobStore.find(job.getId())
+                    .filter(current -> !current.getState().isTerminal())
+                    .filter(current -> jobStore.claim(current, cluster.getNodeId()))
+                    // 登记期间锁可能已过期并被其他节点认领
+                    .filter(this::holdsLock)
+                    .ifPresent(this::runObserved);
+        } finally {
+            cluster.unlock(lock);
         }
     }
 
-    private boolean isCertExpiringSoon(Date expireDate) {
-        Instant expireInstant = expireDate.toInstant();
-        return Instant.now().plus(15, ChronoUnit.DAYS).isAfter(expireInstant);
+    /**
+     * 在续期观测内执行任务，各阶段的观测以此为父级，按域名和订单关联
+     */
+    private void runObserved(RenewalJob job) {
+        Observation observation = metrics.startRenewal(partitionKey(job), job.getId());
+        try (Observation.Scope scope = observation.openScope()) {
+            runJob(job);
+        } finally {
+            observation.lowCardinalityKeyValue("state", String.valueOf(job.getState()));
+            observation.stop();
+        }
     }
 
-    private void renewCertificate(String domain) {
+    private static String lockName(RenewalJob job) {
+        return "job:" + job.getId();
+    }
+
+    /**
+     * 每一步开始前确认任务锁仍由本节点持有，锁已丢失时中止，由接管的节点继续
+     */
+    private boolean holdsLock(RenewalJob job) {
+        if (cluster.isLockHeld(lockName(job))) {
+            return true;
+        }
+        log.warn("续期任务锁已丢失，中止执行 [JobId: {}] [State: {}] [Node: {}]",
+                job.getId(), job.getState(), cluster.getNodeId());
+        return false;
+    }
+
+    private static String partitionKey(RenewalJob job) {
+        return job.getRegistrableDomain() != null ? job.getRegistrableDomain() : job.getPlanKey();
+    }
+
+    /**
+     * 边枚举CDN域名边确定有效期：与上次域名快照比对，配置变化或台账无法确认（含超过探测间隔）的域名在线探测，
+     * 其余直接读取证书台账，探测与后续分页拉取并行进行；
+     * 域名快照在探测结束后保存，只记录证书状态已确认的域名
+     */
+    private List<CertificateValidityPeriod> resolveValidity() {
+        List<CertificateValidityPeriod> fromInventory = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<CertificateValidityPeriod>> probes = Collections.synchronizedList(new ArrayList<>());
+        CdnCatalog.Sync sync = cdnCatalog.begin();
+        boolean complete = metrics.observe(RenewalMetrics.Stage.ENUMERATE, null, () -> aliyunCDN.streamDomains(info -> {
+            String hostname = info.getDomainName();
+            CatalogChange change = sync.observe(info);
+            Optional<CertificateRecord> record = certificateInventory.get(hostname);
+            if (record.isPresent() && !certificateInventory.needsProbe(hostname, change)) {
+                sync.confirm(hostname);
+                fromInventory.add(certificateInventory.toValidityPeriod(record.get()));
+            } else {
+                // 按探测状态计数，探测失败不再被静默吞掉
+                probes.add(metrics.observeAsync(RenewalMetrics.Stage.PROBE, hostname,
+                                () -> tlsExpiryProber.probeAsync(hostname),
+                                probed -> String.valueOf(probed.getProbeStatus()).toLowerCase(Locale.ROOT))
+                        .thenApply(probed -> {
+                            // 探测失败的域名不更新快照，下一轮仍会探测
+                            if (probed.getProbeStatus() == ProbeStatus.SUCCESS) {
+                                sync.confirm(hostname);
+                            }
+                            return reconcileProbe(probed);
+                        }));
+            }
+        }));
+        log.info("证书有效期来源 [Inventory: {}] [Probe: {}]", fromInventory.size(), probes.size());
+
+        // 规划订单需要完整的域名集合，在此等待剩余探测完成
+        List<CertificateValidityPeriod> domains = new ArrayList<>(fromInventory);
         try {
-            // 创建或绑定账户
-            Account account = accountSession.initializeAccount();
-            if (account == null) {
-                throw new IllegalStateException("ACME账户创建失败");
+            synchronized (probes) {
+                probes.forEach(probe -> domains.add(probe.join()));
             }
+        } finally {
+            sync.finish(complete);
+        }
+        // 本轮探测结果一次写入台账
+        certificateInventory.flush();
+        metrics.recordExpiries(domains);
+        return domains;
+    }
+
+    /**
+     * 登记探测结果；探测失败时回退到台账记录，避免网络抖动触发无谓的续期
+     */
+    private CertificateValidityPeriod reconcileProbe(CertificateValidityPeriod probed) {
+        certificateInventory.recordProbe(probed);
+        Optional<CertificateRecord> record = certificateInventory.get(probed.getHostname());
+        if (probed.getNotAfter() == null && record.isPresent()) {
+            return certificateInventory.toValidityPeriod(record.get());
+        }
+        return probed;
+    }
+
+    /**
+     * 按任务状态推进续期流程，每完成一步即持久化，中断后从最后完成的步骤继续
+     */
+    private void runJob(RenewalJob job) {
+        CertificatePlan plan = RenewalJobStore.toPlan(job);
+        List<String> identifiers = plan.getIdentifiers();
+        try {
+            // 获取缓存的账户登录（整个运行期只登录一次），恢复订单时需要按URL绑定
+            Login login = accountSession.getLogin();
             // 创建核心客户端
-            AcmeCoreClient client = new AcmeCoreClient(account);
-            // 创建证书订单
-            if (domain.startsWith(".")) {
-                domain = DomainUtils.extractRootDomain(domain);
-            }
-            Order order = client.createOrder(List.of(domain), 90);
-            if (order == null) return;
-            // 处理授权挑战
-            boolean authSuccess = challengeProcessor.processAuthorization(
-                    order.getAuthorizations().get(0),
-                    Dns01Challenge.TYPE
-            );
-            if (authSuccess) {
-                // 生成域名密钥对
-                KeyPair domainKeyPair = KeyPairUtils.createKeyPair(2048);
+            AcmeCoreClient client = new AcmeCoreClient(login, rateLimiter);
 
+            Order order = resumeOrder(client, job);
+            if (job.getState() == JobState.PENDING) {
+                if (!holdsLock(job)) {
+                    return;
+                }
+                // 创建证书订单（多SAN）
+                order = renewalPipeline.stage(Stage.ORDER,
+                        () -> metrics.observe(RenewalMetrics.Stage.ORDER_CREATE, job.getRegistrableDomain(),
+                                () -> client.createOrder(identifiers, 90), RenewalMetrics::outcomeOf));
+                if (order == null) {
+                    jobStore.recordFailure(job, "订单创建失败");
+                    return;
+                }
+                job.setOrderUrl(order.getLocation().toString());
+                jobStore.advance(job, JobState.ORDERED);
+            }
+            metrics.tagOrder(job.getOrderUrl());
+
+            if (job.getState() == JobState.ORDERED) {
+                if (!holdsLock(job)) {
+                    return;
+                }
+                // 处理授权挑战，订单内全部标识一次性准备、统一触发并并行轮询；已有效的授权自动跳过
+                Order current = order;
+                AuthorizationResult auth = renewalPipeline.stage(Stage.CHALLENGE,
+                        () -> challengeProcessor.validateAuthorizations(
+                                current.getAuthorizations(),
+                                Dns01Challenge.TYPE
+                        ));
+                if (!auth.valid()) {
+                    // 部分标识失败时拆出失败的域名，其余域名立即重新下单
+                    if (splitFailed(job, plan, auth.failed())) {
+                        runJob(job);
+                    } else {
+                        jobStore.recordFailure(job, "授权验证失败");
+                    }
+                    return;
+                }
+                jobStore.advance(job, JobState.AUTHORIZED);
+            }
+
+            Certificate certificate = null;
+            KeyPair domainKeyPair = jobStore.loadKeyPair(job).orElse(null);
+            if (job.getState() == JobState.AUTHORIZED) {
+                if (!holdsLock(job)) {
+                    return;
+                }
+                // 从密钥池取出预生成的域名密钥对，签发前保存以便恢复时复用
+                if (domainKeyPair == null) {
+                    domainKeyPair = domainKeyPool.take();
+                    jobStore.saveKeyPair(job, domainKeyPair);
+                }
                 // 完成订单获取证书
-                Certificate certificate = client.finalizeOrder(order, domainKeyPair);
-                // 新增证书保存逻辑
-                if (certificate != null) {
-                    saveCertificateToFile(domain, certificate, domainKeyPair); // 新增保存方法
-                    deployToAliyunCDN(domain, certificate, domainKeyPair);
+                Order current = order;
+                KeyPair keyPair = domainKeyPair;
+                certificate = renewalPipeline.stage(Stage.FINALIZE,
+                        () -> metrics.observe(RenewalMetrics.Stage.FINALIZE, job.getRegistrableDomain(),
+                                () -> client.finalizeOrder(current, keyPair), RenewalMetrics::outcomeOf));
+                if (certificate == null) {
+                    jobStore.recordFailure(job, "订单完成失败");
+                    return;
                 }
+                Path certFile = saveCertificateToFile(certificateBaseName(plan), certificate, domainKeyPair); // 新增保存方法
+                job.setCertificateUrl(certificate.getLocation().toString());
+                job.setCertFile(certFile == null ? null : certFile.toString());
+                jobStore.advance(job, JobState.ISSUED);
+            }
+
+            if (job.getState() == JobState.ISSUED) {
+                if (!holdsLock(job)) {
+                    return;
+                }
+                if (certificate == null) {
+                    certificate = client.bindCertificate(new URL(job.getCertificateUrl()));
+                }
+                if (domainKeyPair == null) {
+                    throw new IllegalStateException("续期任务缺少域名密钥 [JobId: " + job.getId() + "]");
+                }
+                deploy(job, plan, certificate, domainKeyPair);
             }
         } catch (Exception ex) {
-            log.error("证书续期流程异常 [Domain: {}]", domain, ex);
+            if (!cluster.isLockHeld(lockName(job))) {
+                // 任务已由其他节点接管，失败不计入本任务
+                log.warn("续期任务锁已丢失，放弃本次执行 [JobId: {}] [Error: {}]", job.getId(), ex.getMessage());
+                return;
+            }
+            log.error("证书续期流程异常 [JobId: {}] [Domains: {}]", job.getId(), identifiers, ex);
+            jobStore.recordFailure(job, ex.getMessage());
+            if (AccountSession.isAccountError(ex)) {
+                accountSession.invalidate();
+            }
         }
     }
 
+    /**
+     * 部分标识授权失败时拆分任务：失败的标识各自成为单独的任务并记录失败，按重试间隔独立退避；
+     * 其余标识与其覆盖的域名留在原任务并退回下单步骤（授权失败后原订单已失效）
+     *
+     * @return 未能拆分（全部失败或无法确定失败的标识）时返回 false
+     */
+    private boolean splitFailed(RenewalJob job, CertificatePlan plan, Set<String> failed) {
+        if (failed.isEmpty() || !plan.getIdentifiers().containsAll(failed) || failed.size() >= plan.getIdentifiers().size()) {
+            return false;
+        }
+        String registrable = plan.getRegistrableDomain();
+        CertificatePlan remaining = new CertificatePlan();
+        remaining.setRegistrableDomain(registrable);
+        Map<String, CertificatePlan> failedPlans = new LinkedHashMap<>();
+        for (String identifier : plan.getIdentifiers()) {
+            if (failed.contains(identifier)) {
+                CertificatePlan single = new CertificatePlan();
+                single.setRegistrableDomain(registrable);
+                single.getIdentifiers().add(identifier);
+                failedPlans.put(identifier, single);
+            } else {
+                remaining.getIdentifiers().add(identifier);
+            }
+        }
+        for (String target : plan.getTargets()) {
+            String identifier = plan.getIdentifiers().stream()
+                    .filter(candidate -> OrderPlanner.covers(candidate, target, registrable))
+                    .findFirst()
+                    .orElse(null);
+            failedPlans.getOrDefault(identifier, remaining).getTargets().add(target);
+        }
+        if (remaining.getTargets().isEmpty()) {
+            return false;
+        }
+        log.warn("部分标识授权失败，拆分续期任务 [JobId: {}] [Failed: {}] [Remaining: {}]",
+                job.getId(), failed, remaining.getIdentifiers());
+        jobStore.replan(job, remaining);
+        for (CertificatePlan single : failedPlans.values()) {
+            if (single.getTargets().isEmpty()) {
+                continue;
+            }
+            try {
+                jobStore.recordFailure(jobStore.open(single), "授权验证失败");
+            } catch (IllegalStateException ex) {
+                log.warn("失败域名未能单独建立任务 [Domains: {}] [Reason: {}]", single.getTargets(), ex.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 恢复已下单任务的订单；订单已失效或过期时退回下单步骤
+     */
+    private Order resumeOrder(AcmeCoreClient client, RenewalJob job) throws Exception {
+        if (job.getState() != JobState.ORDERED && job.getState() != JobState.AUTHORIZED) {
+            return null;
+        }
+        Order order = client.bindOrder(new URL(job.getOrderUrl()));
+        boolean expired = order.getExpires().map(expires -> expires.isBefore(Instant.now())).orElse(false);
+        if (order.getStatus() == Status.INVALID || expired) {
+            log.warn("订单已失效，重新下单 [JobId: {}] [Order: {}] [Status: {}]",
+                    job.getId(), job.getOrderUrl(), order.getStatus());
+            jobStore.resetOrder(job);
+            return null;
+        }
+        log.info("已恢复订单 [JobId: {}] [Order: {}] [Status: {}]", job.getId(), job.getOrderUrl(), order.getStatus());
+        return order;
+    }
+
+    /**
+     * 证书部署到计划内的每个CDN域名（同一张证书只上传一次），全部成功后任务结束
+     */
+    private void deploy(RenewalJob job, CertificatePlan plan, Certificate certificate, KeyPair domainKeyPair)
+            throws Exception {
+        Path certFile = job.getCertFile() == null ? null : Paths.get(job.getCertFile());
+        Map<String, DeployStatus> results = renewalPipeline.stage(Stage.DEPLOY,
+                () -> metrics.observe(RenewalMetrics.Stage.DEPLOY, job.getRegistrableDomain(),
+                        () -> cdnDeployer.deploy(plan.getTargets(), certificate.getCertificateChain(),
+                                domainKeyPair.getPrivate(), certFile)));
+        job.setDeployResult(results.toString());
+        List<String> failed = results.entrySet().stream()
+                .filter(entry -> entry.getValue() != DeployStatus.DEPLOYED)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (failed.isEmpty()) {
+            jobStore.advance(job, JobState.DEPLOYED);
+        } else {
+            // 保持已签发状态，下次运行只重试部署
+            jobStore.recordFailure(job, "部署失败: " + failed);
+        }
+    }
+
+    /**
+     * 证书文件名使用首个标识，通配符替换为 wildcard 以兼容各平台文件系统
+     */
+    private String certificateBaseName(CertificatePlan plan) {
+        return plan.getIdentifiers().get(0).replace("*", "wildcard");
+    }
+
     /**
      * @description: 证书保存方法
      * @author liuyg
      * @date 2025/3/21 21:56
      * @version 1.0
      */
-    private void saveCertificateToFile(String domain, Certificate certificate, KeyPair keyPair) {
+    private Path saveCertificateToFile(String domain, Certificate certificate, KeyPair keyPair) {
         try {
             // 1. 创建证书保存目录
-            Path certsDir = Paths.get("certs");
+            Path certsDir = Paths.get(this.certsDir);
             if (!Files.exists(certsDir)) {
                 Files.createDirectories(certsDir);
             }
@@ -135,47 +648,18 @@ public class AliyunScheduler {
             String baseName = domain + "_" + timestamp;
 
             // 3. 保存证书链
-            String certPem = CertUtils.generateFullChainPem(certificate.getCertificateChain());
-            Files.write(certsDir.resolve(baseName + "_cert.pem"), certPem.getBytes());
+            // 编码结果会被缓存，随后部署时上传同一证书链不再重复编码
+            Path certFile = certsDir.resolve(baseName + "_cert.pem");
+            Files.write(certFile, CertUtils.fullChainPemBytes(certificate.getCertificateChain()));
 
             // 4. 保存私钥
-            String keyPem = CertUtils.generatePrivateKeyPem(keyPair.getPrivate());
-            Files.write(certsDir.resolve(baseName + "_key.pem"), keyPem.getBytes());
+            Files.write(certsDir.resolve(baseName + "_key.pem"), CertUtils.privateKeyPemBytes(keyPair.getPrivate()));
 
             log.info("证书已保存到本地目录 [Path: {}]", certsDir.toAbsolutePath());
+            return certFile;
         } catch (Exception ex) {
             log.error("证书保存失败 [Domain: {}]", domain, ex);
-        }
-    }
-
-    private void deployToAliyunCDN(String domain, Certificate certificate, KeyPair keyPair) {
-        try {
-            // 获取证书链列表
-            List<X509Certificate> certChain = certificate.getCertificateChain();
-            if (certChain == null || certChain.isEmpty()) {
-                throw new IllegalStateException("证书链为空");
-            }
-            // 生成完整证书链PEM格式
-            String certPem = CertUtils.generateFullChainPem(certChain);
-            // 生成私钥PEM格式
-            String keyPem = CertUtils.generatePrivateKeyPem(keyPair.getPrivate());
-            // 验证公私钥匹配性（新增验证）
-//            if (!CertUtils.validateKeyPair(certPem, keyPem)) {
-//                log.error("证书与私钥不匹配 [Domain: {}]", domain);
-//                return;
-//            }
-            // 生成唯一证书名称
-            String certName = "sslflux-cert-" + System.currentTimeMillis();
-//             调用阿里云CDN API更新证书
-            boolean success = aliyunCDN.setCdnDomainSSLCertificate(domain, certName, certPem, keyPem);
-//             此处需要实现具体上传逻辑
-            if (success) {
-                log.info("证书已更新到阿里云CDN [Domain: {}] [CertName: {}]", domain, certName);
-            } else {
-                log.error("证书上传失败 [Domain: {}]", domain);
-            }
-        } catch (Exception ex) {
-            log.error("证书部署到CDN失败 [Domain: {}]", domain, ex);
+            return null;
         }
     }
 }
@@ -0,0 +1,148 @@
+package cn.sslflux.scheduler;
+
+import cn.sslflux.Utils.DomainUtils;
+import cn.sslflux.acmeClient.model.CertificatePlan;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 证书订单规划器
+ * 将同一可注册域名下的CDN域名合并为多SAN证书，减少订单数量与CA频率限制消耗；
+ * 开启通配符后（DNS-01验证），同级子域名达到阈值时合并为一个通配符标识
+ * @date 2025/3/23 15:20
+ */
+@Slf4j
+@Component
+public class OrderPlanner {
+
+    private static final String WILDCARD_PREFIX = "*.";
+
+    // 单张证书最多包含的SAN数量（Let's Encrypt上限为100）
+    @Value("${sslflux.order.max-sans:100}")
+    private int maxSans;
+
+    // 是否允许使用通配符证书（需DNS-01验证）
+    @Value("${sslflux.order.wildcard-enabled:false}")
+    private boolean wildcardEnabled;
+
+    // 同一父域名下子域名数量达到该值时使用通配符
+    @Value("${sslflux.order.wildcard-threshold:3}")
+    private int wildcardThreshold;
+
+    /**
+     * 生成签发计划
+     *
+     * @param hostnames 需要续期的CDN域名（"."开头表示泛域名加速）
+     * @return 签发计划列表
+     */
+    public List<CertificatePlan> plan(Collection<String> hostnames) {
+        // 按可注册域名分组，保持输入顺序
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (String hostname : hostnames) {
+            String bare = hostname.startsWith(".") ? hostname.substring(1) : hostname;
+            groups.computeIfAbsent(DomainUtils.extractRootDomain(bare), k -> new ArrayList<>()).add(hostname);
+        }
+
+        List<CertificatePlan> plans = new ArrayList<>();
+        groups.forEach((registrable, members) -> plans.addAll(planGroup(registrable, members)));
+        log.info("签发计划已生成 [Domains: {}] [Orders: {}]", hostnames.size(), plans.size());
+        return plans;
+    }
+
+    /**
+     * 规划单个可注册域名下的证书
+     */
+    private List<CertificatePlan> planGroup(String registrable, List<String> members) {
+        // 标识 -> 需要该标识覆盖的CDN域名
+        Map<String, Set<String>> coverage = new LinkedHashMap<>();
+        for (String hostname : members) {
+            coverage.computeIfAbsent(toIdentifier(hostname, registrable), k -> new LinkedHashSet<>()).add(hostname);
+        }
+        if (wildcardEnabled) {
+            collapseToWildcards(coverage, registrable);
+        }
+
+        // 按SAN上限拆分
+        List<CertificatePlan> plans = new ArrayList<>();
+        CertificatePlan current = null;
+        for (Map.Entry<String, Set<String>> entry : coverage.entrySet()) {
+            if (current == null || current.getIdentifiers().size() >= maxSans) {
+                current = new CertificatePlan();
+                current.setRegistrableDomain(registrable);
+                plans.add(current);
+            }
+            current.getIdentifiers().add(entry.getKey());
+            for (String target : entry.getValue()) {
+                if (!current.getTargets().contains(target)) {
+                    current.getTargets().add(target);
+                }
+            }
+        }
+        return plans;
+    }
+
+    /**
+     * 订单标识是否覆盖该CDN域名，与规划时的对应关系一致：同名标识、同级通配符，
+     * 或泛域名加速对应的通配符/根域名标识
+     */
+    public static boolean covers(String identifier, String target, String registrable) {
+        if (target.startsWith(".")) {
+            return identifier.equals("*" + target) || identifier.equals(registrable);
+        }
+        if (identifier.equals(target)) {
+            return true;
+        }
+        int dot = target.indexOf('.');
+        return identifier.startsWith(WILDCARD_PREFIX) && dot > 0
+                && target.substring(dot + 1).equals(identifier.substring(WILDCARD_PREFIX.length()));
+    }
+
+    /**
+     * CDN域名转换为订单标识：泛域名加速在允许通配符时签发通配符证书，否则沿用根域名
+     */
+    private String toIdentifier(String hostname, String registrable) {
+        if (!hostname.startsWith(".")) {
+            return hostname;
+        }
+        return wildcardEnabled ? "*" + hostname : registrable;
+    }
+
+    /**
+     * 同一父域名下的单级子域名达到阈值时合并为通配符标识
+     */
+    private void collapseToWildcards(Map<String, Set<String>> coverage, String registrable) {
+        Map<String, List<String>> byParent = new LinkedHashMap<>();
+        for (String identifier : coverage.keySet()) {
+            int dot = identifier.indexOf('.');
+            if (identifier.startsWith(WILDCARD_PREFIX) || dot <= 0) {
+                continue;
+            }
+            String parent = identifier.substring(dot + 1);
+            // 通配符只能落在可注册域名及其下级，不能是公共后缀（如 com、com.cn）
+            if (parent.equals(registrable) || parent.endsWith("." + registrable)) {
+                byParent.computeIfAbsent(parent, k -> new ArrayList<>()).add(identifier);
+            }
+        }
+        byParent.forEach((parent, children) -> {
+            if (children.size() < wildcardThreshold) {
+                return;
+            }
+            Set<String> targets = coverage.computeIfAbsent(WILDCARD_PREFIX + parent, k -> new LinkedHashSet<>());
+            for (String child : children) {
+                targets.addAll(coverage.remove(child));
+            }
+            log.debug("合并为通配符标识 [Wildcard: {}{}] [Covers: {}]", WILDCARD_PREFIX, parent, children);
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package cn.sslflux.scheduler;
+
+import cn.sslflux.scheduler.model.RenewalStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期运行健康信息
+ * 仅展示首轮续期是否完成（首轮结束时已到期的续期均已执行）及最近一次运行结果，不参与就绪探针（readiness），
+ * 首轮续期耗时较长时服务仍可正常接收请求；集群中非协调者节点的阶段为 STANDBY
+ * @date 2025/3/28 11:00
+ */
+@Component("renewal")
+public class RenewalHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private RenewalRunTracker runTracker;
+
+    @Override
+    public Health health() {
+        RenewalStatus status = runTracker.snapshot();
+        return Health.up()
+                .withDetail("phase", status.getPhase())
+                .withDetail("firstPassComplete", status.getFirstPassCompletedAt() != null)
+                .withDetail("lastSucceeded", String.valueOf(status.getLastSucceeded()))
+                .withDetail("completedPasses", status.getCompletedPasses())
+                .build();
+    }
+}
@@ -0,0 +1,175 @@
+package cn.sslflux.scheduler;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 证书续期并发流水线
+ * 1. 工作线程池控制同时处理的域名数量
+ * 2. 各阶段（下单、挑战、签发、部署）独立限流，避免某一阶段压垮CA或云厂商接口
+ * @date 2025/3/22 10:12
+ */
+@Slf4j
+@Component
+public class RenewalPipeline {
+
+    /**
+     * 续期流程阶段
+     */
+    public enum Stage {
+        ORDER, CHALLENGE, FINALIZE, DEPLOY
+    }
+
+    // 同时处理的域名数量
+    @Value("${sslflux.renewal.worker-threads:8}")
+    private int workerThreads;
+
+    // JDK21+ 运行时可切换为虚拟线程，JDK17下自动回退到平台线程池
+    @Value("${sslflux.renewal.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${sslflux.renewal.stage-limits.order:4}")
+    private int orderLimit;
+
+    @Value("${sslflux.renewal.stage-limits.challenge:8}")
+    private int challengeLimit;
+
+    @Value("${sslflux.renewal.stage-limits.finalize:4}")
+    private int finalizeLimit;
+
+    @Value("${sslflux.renewal.stage-limits.deploy:4}")
+    private int deployLimit;
+
+    private ExecutorService executor;
+    // 虚拟线程不设上限，由该信号量约束并发域名数
+    private Semaphore workerPermits;
+    private final Map<Stage, Semaphore> stagePermits = new EnumMap<>(Stage.class);
+
+    @PostConstruct
+    public void init() {
+        stagePermits.put(Stage.ORDER, new Semaphore(Math.max(1, orderLimit), true));
+        stagePermits.put(Stage.CHALLENGE, new Semaphore(Math.max(1, challengeLimit), true));
+        stagePermits.put(Stage.FINALIZE, new Semaphore(Math.max(1, finalizeLimit), true));
+        stagePermits.put(Stage.DEPLOY, new Semaphore(Math.max(1, deployLimit), true));
+        workerPermits = new Semaphore(Math.max(1, workerThreads), true);
+
+        executor = virtualThreads ? createVirtualThreadExecutor() : null;
+        boolean usingVirtual = executor != null;
+        if (!usingVirtual) {
+            executor = Executors.newFixedThreadPool(Math.max(1, workerThreads), new NamedThreadFactory());
+        }
+        log.info("续期流水线已初始化 [Workers: {}] [Virtual: {}] [Limits: {}]",
+                workerThreads, usingVirtual, stageLimits());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 并发处理全部任务并等待完成，单个任务的异常不影响其他任务
+     *
+     * @param items 待处理对象
+     * @param task  处理逻辑
+     */
+    public <T> void runAll(Collection<T> items, Consumer<T> task) {
+        List<Future<?>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(executor.submit(() -> {
+                workerPermits.acquireUninterruptibly();
+                try {
+                    task.accept(item);
+                } catch (Exception ex) {
+                    log.error("续期任务执行异常 [Item: {}]", item, ex);
+                } finally {
+                    workerPermits.release();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                return;
+            } catch (ExecutionException ex) {
+                log.error("续期任务执行异常", ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * 在指定阶段的并发额度内执行操作
+     *
+     * @param stage  所属阶段
+     * @param action 阶段操作
+     * @return 操作结果
+     */
+    public <T> T stage(Stage stage, Callable<T> action) throws Exception {
+        Semaphore permits = stagePermits.get(stage);
+        permits.acquire();
+        try {
+            return action.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Map<Stage, Integer> stageLimits() {
+        Map<Stage, Integer> limits = new EnumMap<>(Stage.class);
+        stagePermits.forEach((stage, permits) -> limits.put(stage, permits.availablePermits()));
+        return limits;
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，避免编译期依赖JDK21
+     */
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            log.warn("当前JDK不支持虚拟线程，回退到平台线程池");
+            return null;
+        }
+    }
+
+    /**
+     * 续期工作线程命名
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "sslflux-renew-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
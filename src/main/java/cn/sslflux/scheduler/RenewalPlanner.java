@@ -0,0 +1,187 @@
+package cn.sslflux.scheduler;
+
+import cn.sslflux.Utils.CryptoServices;
+import cn.sslflux.Utils.DomainUtils;
+import cn.sslflux.acmeClient.core.AccountSession;
+import cn.sslflux.acmeClient.model.CertificateValidityPeriod;
+import cn.sslflux.certManager.CertificateInventory;
+import cn.sslflux.certManager.model.CertificateRecord;
+import cn.sslflux.rateLimit.RateLimiterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.shredzone.acme4j.RenewalInfo;
+import org.shredzone.acme4j.exception.AcmeNotSupportedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期时间规划
+ * 1. CA提供ACME续期信息（ARI）时，在其建议窗口内选取续期时间
+ * 2. 否则在证书有效期的约2/3处续期，并按域名叠加固定抖动，使大量证书的续期时间分散开
+ * 3. 已错过续期时间的证书在一段时间内分散执行，即将过期或没有证书的域名立即续期
+ * 抖动按可注册域名计算，同一根域名下的域名续期时间一致，便于合并为多SAN证书
+ * @date 2025/3/28 14:10
+ */
+@Slf4j
+@Component
+public class RenewalPlanner {
+
+    private final AccountSession accountSession;
+    private final RateLimiterRegistry rateLimiter;
+    private final CertificateInventory certificateInventory;
+    // 有效期内的续期位置
+    private final double lifetimeRatio;
+    // 抖动幅度（占有效期的比例），实际偏移在 ±jitter/2 之间
+    private final double jitter;
+    // 无签发时间时按到期前固定窗口续期
+    private final Duration fallbackWindow;
+    // 剩余有效期不足该时长时立即续期
+    private final Duration urgentWindow;
+    // 已错过续期时间的证书在该时长内分散续期
+    private final Duration overdueSpread;
+    private final boolean ariEnabled;
+    private final Duration ariCacheTtl;
+
+    // 证书指纹 -> ARI建议窗口
+    private final Map<String, CachedWindow> ariCache = new ConcurrentHashMap<>();
+    // CA不支持ARI时在运行期内不再查询
+    private volatile boolean ariSupported = true;
+
+    public RenewalPlanner(AccountSession accountSession,
+                          RateLimiterRegistry rateLimiter,
+                          CertificateInventory certificateInventory,
+                          @Value("${sslflux.renewal.lifetime-ratio:0.6667}") double lifetimeRatio,
+                          @Value("${sslflux.renewal.jitter:0.05}") double jitter,
+                          @Value("${sslflux.renewal.fallback-window:30d}") Duration fallbackWindow,
+                          @Value("${sslflux.renewal.urgent-window:7d}") Duration urgentWindow,
+                          @Value("${sslflux.renewal.overdue-spread:2h}") Duration overdueSpread,
+                          @Value("${sslflux.renewal.ari.enabled:true}") boolean ariEnabled,
+                          @Value("${sslflux.renewal.ari.cache-ttl:6h}") Duration ariCacheTtl) {
+        this.accountSession = accountSession;
+        this.rateLimiter = rateLimiter;
+        this.certificateInventory = certificateInventory;
+        this.lifetimeRatio = lifetimeRatio;
+        this.jitter = jitter;
+        this.fallbackWindow = fallbackWindow;
+        this.urgentWindow = urgentWindow;
+        this.overdueSpread = overdueSpread;
+        this.ariEnabled = ariEnabled;
+        this.ariCacheTtl = ariCacheTtl;
+    }
+
+    /**
+     * 计算证书的计划续期时间（可能早于当前时间）
+     */
+    public Instant renewalTime(CertificateValidityPeriod period) {
+        if (period.getNotAfter() == null) {
+            return Instant.EPOCH;
+        }
+        String hostname = period.getHostname();
+        Instant notAfter = period.getNotAfter().toInstant();
+        double fraction = spreadFraction(hostname);
+
+        Optional<Window> suggested = ariWindow(period);
+        if (suggested.isPresent()) {
+            Window window = suggested.get();
+            long span = Duration.between(window.start(), window.end()).toMillis();
+            return window.start().plusMillis((long) (span * fraction));
+        }
+
+        if (period.getNotBefore() == null) {
+            return notAfter.minus(fallbackWindow);
+        }
+        Instant notBefore = period.getNotBefore().toInstant();
+        long lifetime = Duration.between(notBefore, notAfter).toMillis();
+        long offset = (long) (lifetime * (lifetimeRatio + (fraction - 0.5) * jitter));
+        return notBefore.plusMillis(offset);
+    }
+
+    /**
+     * 计算实际执行时间：未到续期时间的按计划执行；已错过的分散执行，临近过期的立即执行
+     */
+    public Instant scheduleTime(CertificateValidityPeriod period, Instant now) {
+        Instant renewAt = renewalTime(period);
+        if (renewAt.isAfter(now)) {
+            return renewAt;
+        }
+        if (period.getNotAfter() == null
+                || period.getNotAfter().toInstant().isBefore(now.plus(urgentWindow))) {
+            return now;
+        }
+        return now.plusMillis((long) (overdueSpread.toMillis() * spreadFraction(period.getHostname())));
+    }
+
+    /**
+     * 按可注册域名计算的 [0, 1) 固定分布值
+     */
+    static double spreadFraction(String hostname) {
+        String bare = hostname.startsWith(".") ? hostname.substring(1) : hostname;
+        byte[] digest = CryptoServices.sha256(DomainUtils.extractRootDomain(bare).getBytes(StandardCharsets.UTF_8));
+        long bits = 0;
+        for (int i = 0; i < 7; i++) {
+            bits = (bits << 8) | (digest[i] & 0xff);
+        }
+        return (double) bits / (1L << 56);
+    }
+
+    /**
+     * 查询ARI建议窗口，仅对台账中由本系统签发、且仍在线使用的证书查询
+     */
+    private Optional<Window> ariWindow(CertificateValidityPeriod period) {
+        if (!ariEnabled || !ariSupported || accountSession == null) {
+            return Optional.empty();
+        }
+        Optional<CertificateRecord> record = certificateInventory.get(period.getHostname());
+        if (record.isEmpty() || record.get().getCertFile() == null || record.get().getCertFingerprint() == null
+                || !Objects.equals(record.get().getNotAfter(), period.getNotAfter())) {
+            return Optional.empty();
+        }
+        String fingerprint = record.get().getCertFingerprint();
+        CachedWindow cached = ariCache.get(fingerprint);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return Optional.ofNullable(cached.window());
+        }
+        Window window = fetchWindow(record.get());
+        ariCache.put(fingerprint, new CachedWindow(window, Instant.now().plus(ariCacheTtl)));
+        return Optional.ofNullable(window);
+    }
+
+    private Window fetchWindow(CertificateRecord record) {
+        try {
+            X509Certificate leaf;
+            try (InputStream in = Files.newInputStream(Paths.get(record.getCertFile()))) {
+                leaf = CryptoServices.parseCertificate(in);
+            }
+            RenewalInfo info = accountSession.getLogin().bindRenewalInfo(leaf);
+            rateLimiter.call(RateLimiterRegistry.ACME, "renewal-info", info::fetch);
+            log.debug("ARI建议续期窗口 [Domain: {}] [Start: {}] [End: {}]",
+                    record.getHostname(), info.getSuggestedWindowStart(), info.getSuggestedWindowEnd());
+            return new Window(info.getSuggestedWindowStart(), info.getSuggestedWindowEnd());
+        } catch (AcmeNotSupportedException ex) {
+            ariSupported = false;
+            log.info("CA不支持ACME续期信息（ARI），按有效期计算续期时间");
+        } catch (Exception ex) {
+            log.warn("ARI查询失败，按有效期计算续期时间 [Domain: {}] [Error: {}]", record.getHostname(), ex.getMessage());
+        }
+        return null;
+    }
+
+    private record Window(Instant start, Instant end) {
+    }
+
+    private record CachedWindow(Window window, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,93 @@
+package cn.sslflux.scheduler;
+
+import cn.sslflux.Utils.DomainUtils;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 按续期时间排序的待续期队列
+ * 取出到期域名时，同一可注册域名下已排队的其他域名一并取出，保证仍能合并为多SAN证书
+ * @date 2025/3/28 14:40
+ */
+@Component
+public class RenewalQueue {
+
+    private final TreeSet<Entry> queue = new TreeSet<>(
+            Comparator.comparing(Entry::dueAt).thenComparing(Entry::hostname));
+    private final Map<String, Entry> byHost = new HashMap<>();
+
+    /**
+     * 加入或更新域名的续期时间
+     */
+    public synchronized void schedule(String hostname, Instant dueAt) {
+        Entry previous = byHost.remove(hostname);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+        Entry entry = new Entry(hostname, dueAt);
+        queue.add(entry);
+        byHost.put(hostname, entry);
+    }
+
+    public synchronized void cancel(String hostname) {
+        Entry previous = byHost.remove(hostname);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+    }
+
+    /**
+     * 取出全部已到期的域名及与其同根域名的排队域名
+     */
+    public synchronized List<String> pollDue(Instant now) {
+        List<String> due = new ArrayList<>();
+        Set<String> roots = new HashSet<>();
+        while (!queue.isEmpty() && !queue.first().dueAt().isAfter(now)) {
+            Entry entry = queue.pollFirst();
+            byHost.remove(entry.hostname());
+            due.add(entry.hostname());
+            roots.add(rootOf(entry.hostname()));
+        }
+        if (due.isEmpty()) {
+            return due;
+        }
+        Iterator<Entry> it = queue.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (roots.contains(rootOf(entry.hostname()))) {
+                it.remove();
+                byHost.remove(entry.hostname());
+                due.add(entry.hostname());
+            }
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public synchronized Optional<Instant> nextDueAt() {
+        return queue.isEmpty() ? Optional.empty() : Optional.of(queue.first().dueAt());
+    }
+
+    private static String rootOf(String hostname) {
+        return DomainUtils.extractRootDomain(hostname.startsWith(".") ? hostname.substring(1) : hostname);
+    }
+
+    private record Entry(String hostname, Instant dueAt) {
+    }
+}
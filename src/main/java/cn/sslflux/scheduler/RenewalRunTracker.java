@@ -0,0 +1,108 @@
+package cn.sslflux.scheduler;
+
+import cn.sslflux.scheduler.model.RenewalStatus;
+import cn.sslflux.scheduler.model.RenewalStatus.Phase;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期运行状态跟踪
+ * 同一时间只允许一轮续期运行，记录预热排期、每轮的起止时间与结果，供状态接口和健康检查查询；
+ * 一轮续期只负责排期，首轮结束时已到期的续期由 dispatchDue 派发并执行完毕后，首轮才算完成
+ * @date 2025/3/28 10:20
+ */
+@Component
+public class RenewalRunTracker {
+
+    private final RenewalStatus status = new RenewalStatus();
+    // 首轮成功结束的时间，在此之前到期的续期全部派发完成后首轮才算完成
+    private Date firstPassFinishedAt;
+
+    public RenewalRunTracker() {
+        status.setPhase(Phase.WAITING);
+    }
+
+    public synchronized void warmupScheduled(Date warmupAt) {
+        status.setWarmupAt(warmupAt);
+        if (status.getPhase() == Phase.WAITING) {
+            status.setPhase(Phase.SCHEDULED);
+        }
+    }
+
+    /**
+     * 标记一轮续期开始，上一轮仍在运行时返回 false
+     */
+    public synchronized boolean tryStart(String trigger) {
+        if (status.getPhase() == Phase.RUNNING) {
+            return false;
+        }
+        status.setPhase(Phase.RUNNING);
+        status.setTrigger(trigger);
+        status.setLastStartedAt(new Date());
+        return true;
+    }
+
+    public synchronized void finish(Throwable error) {
+        Date now = new Date();
+        status.setPhase(Phase.IDLE);
+        status.setLastFinishedAt(now);
+        status.setLastSucceeded(error == null);
+        status.setLastError(error == null ? null : error.toString());
+        status.setCompletedPasses(status.getCompletedPasses() + 1);
+        if (error == null && firstPassFinishedAt == null) {
+            firstPassFinishedAt = now;
+        }
+    }
+
+    /**
+     * 当前节点不是协调者，不枚举域名也不派发续期，运行中的一轮不受影响
+     */
+    public synchronized void standby() {
+        if (status.getPhase() != Phase.RUNNING) {
+            status.setPhase(Phase.STANDBY);
+        }
+    }
+
+    /**
+     * 一次派发执行完毕后调用；队列中已没有首轮结束前到期的续期时，记录首轮完成
+     *
+     * @param nextDueAt 队列中最早的续期时间
+     */
+    public synchronized void dispatchSettled(Optional<Instant> nextDueAt) {
+        if (status.getPhase() == Phase.STANDBY) {
+            status.setPhase(Phase.IDLE);
+        }
+        if (firstPassFinishedAt == null || status.getFirstPassCompletedAt() != null) {
+            return;
+        }
+        if (nextDueAt.isEmpty() || nextDueAt.get().isAfter(firstPassFinishedAt.toInstant())) {
+            status.setFirstPassCompletedAt(new Date());
+        }
+    }
+
+    public synchronized boolean isFirstPassComplete() {
+        return status.getFirstPassCompletedAt() != null;
+    }
+
+    /**
+     * 当前状态的副本
+     */
+    public synchronized RenewalStatus snapshot() {
+        RenewalStatus copy = new RenewalStatus();
+        copy.setPhase(status.getPhase());
+        copy.setTrigger(status.getTrigger());
+        copy.setWarmupAt(status.getWarmupAt());
+        copy.setLastStartedAt(status.getLastStartedAt());
+        copy.setLastFinishedAt(status.getLastFinishedAt());
+        copy.setLastSucceeded(status.getLastSucceeded());
+        copy.setLastError(status.getLastError());
+        copy.setFirstPassCompletedAt(status.getFirstPassCompletedAt());
+        copy.setCompletedPasses(status.getCompletedPasses());
+        return copy;
+    }
+}
@@ -0,0 +1,80 @@
+package cn.sslflux.scheduler;
+
+import cn.sslflux.cluster.CoordinatorElectedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 启动预热
+ * 应用就绪后在后台线程延迟执行首轮续期，不阻塞启动；叠加随机抖动，避免多个实例同时重启后集中访问CA和云厂商接口。
+ * 集群中运行期间接任协调者时，同样在后台执行一轮续期，重建随原协调者丢失的待续期队列
+ * @date 2025/3/28 10:40
+ */
+@Slf4j
+@Component
+public class RenewalWarmup {
+
+    @Value("${sslflux.renewal.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sslflux.renewal.warmup.delay:30s}")
+    private Duration delay;
+
+    // 在延迟基础上追加 [0, jitter) 的随机时长
+    @Value("${sslflux.renewal.warmup.jitter:30s}")
+    private Duration jitter;
+
+    @Autowired
+    private AliyunScheduler aliyunScheduler;
+
+    @Autowired
+    private RenewalRunTracker runTracker;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sslflux-warmup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("启动预热已关闭，等待定时任务触发续期");
+            return;
+        }
+        long jitterMillis = jitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(jitter.toMillis());
+        long delayMillis = delay.toMillis() + jitterMillis;
+        Date warmupAt = new Date(System.currentTimeMillis() + delayMillis);
+        runTracker.warmupScheduled(warmupAt);
+        executor.schedule(() -> aliyunScheduler.runRenewalPass("warmup"), delayMillis, TimeUnit.MILLISECONDS);
+        log.info("首轮续期已排期 [At: {}] [Delay: {}ms]", warmupAt, delayMillis);
+    }
+
+    /**
+     * 接任协调者后立即重新排期，不等待下一次定时任务；在后台执行，不阻塞心跳线程
+     */
+    @EventListener
+    public void onCoordinatorElected(CoordinatorElectedEvent event) {
+        log.info("接任协调者，重新排期续期 [Node: {}]", event.nodeId());
+        executor.execute(() -> aliyunScheduler.runRenewalPass("failover"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,43 @@
+package cn.sslflux.scheduler.model;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期运行状态快照
+ * @date 2025/3/28 10:10
+ */
+@Data
+public class RenewalStatus {
+
+    /**
+     * 运行阶段
+     */
+    public enum Phase {
+        // 启动后等待预热
+        WAITING,
+        // 预热已排期
+        SCHEDULED,
+        RUNNING,
+        IDLE,
+        // 集群中的非协调者节点，续期由协调者排期
+        STANDBY
+    }
+
+    private Phase phase;
+    // 最近一次触发来源：warmup / cron / manual / failover
+    private String trigger;
+    // 预热计划执行时间
+    private Date warmupAt;
+    private Date lastStartedAt;
+    private Date lastFinishedAt;
+    // 最近一次运行是否成功
+    private Boolean lastSucceeded;
+    private String lastError;
+    // 首轮续期完成时间（首轮排期的到期续期已执行完毕），为空表示尚未完成
+    private Date firstPassCompletedAt;
+    private long completedPasses;
+}
@@ -0,0 +1,35 @@
+-- 表结构同时兼容 H2（MODE=MySQL，单实例默认）与 MySQL（集群共享库，见 application-cluster.yml），启动时按需创建
+-- 时间列使用 DATETIME(3)：MySQL 的 TIMESTAMP 列在部分版本下会被隐式加上自动更新，且有2038年上限
+
+-- 续期任务表：记录每张证书续期流程的当前步骤，重启后据此恢复
+CREATE TABLE IF NOT EXISTS renewal_job
+(
+    id                 BIGINT AUTO_INCREMENT PRIMARY KEY,
+    plan_key           VARCHAR(64)  NOT NULL,
+    registrable_domain VARCHAR(255),
+    identifiers        TEXT         NOT NULL,
+    targets            TEXT         NOT NULL,
+    state              VARCHAR(16)  NOT NULL,
+    order_url          VARCHAR(512),
+    certificate_url    VARCHAR(512),
+    key_pair_pem       TEXT,
+    cert_file          VARCHAR(512),
+    deploy_result      TEXT,
+    attempts           INT          NOT NULL DEFAULT 0,
+    last_error         VARCHAR(1024),
+    lock_owner         VARCHAR(128),
+    created_at         DATETIME(3)  NOT NULL,
+    updated_at         DATETIME(3)  NOT NULL,
+    KEY idx_renewal_job_plan (plan_key),
+    KEY idx_renewal_job_state (state),
+    KEY idx_renewal_job_domain (registrable_domain)
+);
+
+-- 集群租约表：节点心跳、协调者选举与续期任务锁，过期后可被其他节点接管
+CREATE TABLE IF NOT EXISTS cluster_lease
+(
+    name       VARCHAR(255) PRIMARY KEY,
+    owner      VARCHAR(128) NOT NULL,
+    expires_at DATETIME(3)  NOT NULL,
+    updated_at DATETIME(3)  NOT NULL
+);
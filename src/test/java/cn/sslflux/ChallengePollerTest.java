@@ -0,0 +1,124 @@
+package cn.sslflux;
+
+import cn.sslflux.acmeClient.core.ChallengePoller;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.shredzone.acme4j.Login;
+import org.shredzone.acme4j.Session;
+import org.shredzone.acme4j.Status;
+import org.shredzone.acme4j.challenge.Challenge;
+import org.shredzone.acme4j.toolbox.JSON;
+import org.shredzone.acme4j.util.KeyPairUtils;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 挑战状态异步轮询测试
+ * @date 2025/3/24 16:40
+ */
+public class ChallengePollerTest {
+
+    private final ChallengePoller poller = new ChallengePoller(1, Duration.ofMillis(10),
+            Duration.ofMillis(50), 1.5, 0.2, Duration.ofSeconds(2));
+
+    @AfterEach
+    void tearDown() {
+        poller.shutdown();
+    }
+
+    @Test
+    void testCompletesWhenValid() throws Exception {
+        ScriptedChallenge challenge = new ScriptedChallenge(Optional::empty,
+                Status.PENDING, Status.PROCESSING, Status.VALID);
+
+        assertEquals(Status.VALID, poller.await(challenge).get(2, TimeUnit.SECONDS));
+        assertEquals(3, challenge.fetches.get());
+    }
+
+    @Test
+    void testCompletesWhenInvalid() throws Exception {
+        ScriptedChallenge challenge = new ScriptedChallenge(Optional::empty, Status.INVALID);
+
+        assertEquals(Status.INVALID, poller.await(challenge).get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testHonorsRetryAfter() throws Exception {
+        // 服务端要求较长的等待，应按提示时间再轮询一次
+        ScriptedChallenge challenge = new ScriptedChallenge(() -> Optional.of(Instant.now().plusMillis(1500)),
+                Status.PROCESSING, Status.VALID);
+
+        long start = System.nanoTime();
+        assertEquals(Status.VALID, poller.await(challenge).get(3, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 1000, "elapsed " + elapsed + "ms");
+        assertEquals(2, challenge.fetches.get());
+    }
+
+    @Test
+    void testTimesOutAtDeadline() throws Exception {
+        ChallengePoller shortPoller = new ChallengePoller(1, Duration.ofMillis(10),
+                Duration.ofMillis(20), 1.5, 0.0, Duration.ofMillis(200));
+        try {
+            ScriptedChallenge challenge = new ScriptedChallenge(Optional::empty, Status.PROCESSING);
+
+            ExecutionException ex = assertThrows(ExecutionException.class,
+                    () -> shortPoller.await(challenge).get(2, TimeUnit.SECONDS));
+            assertTrue(ex.getCause() instanceof TimeoutException);
+            assertTrue(challenge.fetches.get() >= 2);
+        } finally {
+            shortPoller.shutdown();
+        }
+    }
+
+    /**
+     * 按脚本返回状态的挑战，最后一个状态保持不变
+     */
+    static class ScriptedChallenge extends Challenge {
+        final AtomicInteger fetches = new AtomicInteger();
+        private final Supplier<Optional<Instant>> retryAfter;
+        private final Deque<Status> statuses;
+        private volatile Status current = Status.PENDING;
+
+        ScriptedChallenge(Supplier<Optional<Instant>> retryAfter, Status... statuses) throws Exception {
+            super(new Login(URI.create("https://acme.test/acct/1").toURL(), KeyPairUtils.createKeyPair(2048),
+                            new Session(URI.create("https://acme.test/directory"))),
+                    JSON.parse("{\"type\":\"dns-01\",\"url\":\"https://acme.test/chall/1\",\"status\":\"pending\"}"));
+            this.retryAfter = retryAfter;
+            this.statuses = new ArrayDeque<>(List.of(statuses));
+        }
+
+        @Override
+        public Optional<Instant> fetch() {
+            fetches.incrementAndGet();
+            if (statuses.size() > 1) {
+                current = statuses.poll();
+            } else {
+                current = statuses.peek();
+            }
+            return retryAfter.get();
+        }
+
+        @Override
+        public Status getStatus() {
+            return current;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package cn.sslflux;
+
+import cn.sslflux.cluster.ConsistentHashRing;
+import cn.sslflux.cluster.LeaseManager;
+import cn.sslflux.cluster.LeaseMapper;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 集群租约（H2内存库）与一致性哈希划分测试
+ * @date 2025/3/27 17:00
+ */
+public class ClusterLeaseTest {
+
+    private static final Duration TTL = Duration.ofSeconds(30);
+
+    @Test
+    void testLeaseExclusiveUntilExpired() throws Exception {
+        MutableClock clock = new MutableClock();
+        try (SqlSession session = TestDatabase.open(LeaseMapper.class)) {
+            LeaseManager leases = new LeaseManager(session.getMapper(LeaseMapper.class), clock);
+
+            assertTrue(leases.tryAcquire("coordinator", "node-a", TTL));
+            assertFalse(leases.tryAcquire("coordinator", "node-b", TTL));
+            // 持有者续约
+            clock.advance(Duration.ofSeconds(20));
+            assertTrue(leases.tryAcquire("coordinator", "node-a", TTL));
+            clock.advance(Duration.ofSeconds(20));
+            assertFalse(leases.tryAcquire("coordinator", "node-b", TTL));
+
+            // node-a 停止续约，租约过期后由 node-b 接管
+            clock.advance(Duration.ofSeconds(31));
+            assertTrue(leases.tryAcquire("coordinator", "node-b", TTL));
+            assertFalse(leases.tryAcquire("coordinator", "node-a", TTL));
+
+            // 主动释放后立即可被获取
+            leases.release("coordinator", "node-b");
+            assertTrue(leases.tryAcquire("coordinator", "node-a", TTL));
+        }
+    }
+
+    @Test
+    void testDeadNodeDropsOutOfMembership() throws Exception {
+        MutableClock clock = new MutableClock();
+        try (SqlSession session = TestDatabase.open(LeaseMapper.class)) {
+            LeaseManager leases = new LeaseManager(session.getMapper(LeaseMapper.class), clock);
+            leases.tryAcquire("node:a", "a", TTL);
+            leases.tryAcquire("node:b", "b", TTL);
+            leases.tryAcquire("job:1", "b", TTL);
+            assertEquals(List.of("a", "b"), leases.liveOwners("node:"));
+
+            // b 宕机：a 继续心跳，b 的心跳与任务锁随之过期
+            clock.advance(Duration.ofSeconds(20));
+            leases.tryAcquire("node:a", "a", TTL);
+            clock.advance(Duration.ofSeconds(20));
+            assertEquals(List.of("a"), leases.liveOwners("node:"));
+            assertTrue(leases.tryAcquire("job:1", "a", TTL));
+        }
+    }
+
+    @Test
+    void testRingPartitionsAndMovesMinimalKeys() {
+        ConsistentHashRing three = new ConsistentHashRing(List.of("a", "b", "c"), 64);
+        Map<String, Integer> load = new HashMap<>();
+        Map<String, String> before = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String domain = "site" + i + ".example.com";
+            String node = three.nodeFor(domain);
+            before.put(domain, node);
+            load.merge(node, 1, Integer::sum);
+        }
+        // 虚拟节点使负载大致均衡
+        load.values().forEach(count -> assertTrue(count > 600 && count < 1400, "load " + load));
+
+        // 节点 c 下线：只有原属于 c 的域名迁移
+        ConsistentHashRing two = new ConsistentHashRing(List.of("a", "b"), 64);
+        before.forEach((domain, node) -> {
+            if (!node.equals("c")) {
+                assertEquals(node, two.nodeFor(domain));
+            }
+        });
+        assertEquals(three.nodeFor("x.example.com"), new ConsistentHashRing(List.of("c", "b", "a"), 64)
+                .nodeFor("x.example.com"));
+    }
+
+    /**
+     * 可手动推进的时钟
+     */
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-03-27T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package cn.sslflux;
+
+import cn.sslflux.Utils.CertUtils;
+import cn.sslflux.Utils.CryptoServices;
+import cn.sslflux.certManager.model.KeyAlgorithm;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.Security;
+import java.security.cert.CertificateFactory;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 加密服务入口测试（提供者注册、按线程缓存、共享SSLContext、密钥还原）
+ * @date 2025/3/31 16:00
+ */
+public class CryptoServicesTest {
+
+    @Test
+    void testBouncyCastleRegisteredOnce() {
+        // 先触发类初始化
+        Provider provider = CryptoServices.BOUNCY_CASTLE;
+        assertSame(provider, Security.getProvider(BouncyCastleProvider.PROVIDER_NAME));
+        long count = Arrays.stream(Security.getProviders())
+                .filter(p -> BouncyCastleProvider.PROVIDER_NAME.equals(p.getName()))
+                .count();
+        assertEquals(1, count);
+    }
+
+    @Test
+    void testFactoriesCachedPerThread() throws Exception {
+        CertificateFactory factory = CryptoServices.certificateFactory();
+        assertSame(factory, CryptoServices.certificateFactory());
+        assertSame(CryptoServices.keyFactory("EC"), CryptoServices.keyFactory("EC"));
+
+        CertificateFactory other = CompletableFuture.supplyAsync(CryptoServices::certificateFactory).get();
+        assertNotSame(factory, other);
+    }
+
+    @Test
+    void testDigestResetBetweenUses() {
+        MessageDigest digest = CryptoServices.messageDigest("SHA-256");
+        // 模拟上次使用中途异常遗留的状态
+        digest.update("leftover".getBytes(StandardCharsets.UTF_8));
+
+        byte[] hash = CryptoServices.sha256("abc".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                HexFormat.of().formatHex(hash));
+    }
+
+    @Test
+    void testSharedTrustAllContext() {
+        assertSame(CryptoServices.trustAllSslContext(), CryptoServices.trustAllSslContext());
+        assertNotNull(CryptoServices.trustAllSocketFactory());
+    }
+
+    @Test
+    void testGeneratedKeysRoundTrip() throws Exception {
+        KeyPair rsa = KeyAlgorithm.RSA_2048.generate();
+        KeyPair ec = KeyAlgorithm.EC_P384.generate();
+        assertEquals(2048, ((RSAPrivateKey) rsa.getPrivate()).getModulus().bitLength());
+
+        KeyPair parsedRsa = CertUtils.parseKeyPair(CertUtils.generateKeyPairPem(rsa));
+        KeyPair parsedEc = CertUtils.parseKeyPair(CertUtils.generateKeyPairPem(ec));
+
+        assertTrue(parsedRsa.getPrivate() instanceof RSAPrivateKey);
+        assertTrue(parsedEc.getPrivate() instanceof ECPrivateKey);
+        assertEquals(rsa.getPublic(), parsedRsa.getPublic());
+        assertEquals(ec.getPublic(), parsedEc.getPublic());
+    }
+}
@@ -0,0 +1,137 @@
+package cn.sslflux;
+
+import cn.sslflux.acmeClient.core.DnsPropagationChecker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: DNS传播检查测试，使用本地UDP DNS桩服务
+ * @date 2025/3/24 14:30
+ */
+public class DnsPropagationCheckerTest {
+
+    private static final String RECORD = "_acme-challenge.www.example.com";
+
+    private DnsStubServer stub;
+    private DnsPropagationChecker checker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new DnsStubServer();
+        checker = new DnsPropagationChecker(
+                List.of("127.0.0.1:" + stub.getPort()), false, Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void testRecordPropagated() {
+        stub.txtRecords.put(RECORD, "digest-value");
+
+        assertTrue(checker.isPropagated(RECORD, "digest-value", "example.com"));
+    }
+
+    @Test
+    void testRecordMissing() {
+        assertFalse(checker.isPropagated(RECORD, "digest-value", "example.com"));
+    }
+
+    @Test
+    void testStaleValue() {
+        stub.txtRecords.put(RECORD, "old-value");
+
+        assertFalse(checker.isPropagated(RECORD, "digest-value", "example.com"));
+    }
+
+    /**
+     * 极简DNS桩服务：只应答TXT查询，其余返回NXDOMAIN
+     */
+    static class DnsStubServer implements AutoCloseable {
+        final Map<String, String> txtRecords = new ConcurrentHashMap<>();
+        private final DatagramSocket socket;
+
+        DnsStubServer() throws Exception {
+            socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            Thread thread = new Thread(this::serve);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        private void serve() {
+            byte[] buffer = new byte[512];
+            while (!socket.isClosed()) {
+                try {
+                    DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                    socket.receive(request);
+                    byte[] response = answer(request.getData(), request.getLength());
+                    socket.send(new DatagramPacket(response, response.length, request.getSocketAddress()));
+                } catch (Exception ignored) {
+                    // 服务关闭
+                }
+            }
+        }
+
+        private byte[] answer(byte[] query, int length) {
+            // 解析问题段中的域名
+            StringBuilder name = new StringBuilder();
+            int pos = 12;
+            while (query[pos] != 0) {
+                int len = query[pos++];
+                if (name.length() > 0) {
+                    name.append('.');
+                }
+                name.append(new String(query, pos, len, StandardCharsets.US_ASCII));
+                pos += len;
+            }
+            pos++;
+            int qtype = ((query[pos] & 0xff) << 8) | (query[pos + 1] & 0xff);
+            int questionEnd = pos + 4;
+
+            String value = qtype == 16 ? txtRecords.get(name.toString()) : null;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(query[0]);
+            out.write(query[1]);
+            out.write(0x81);
+            out.write(value != null ? 0x80 : 0x83); // NOERROR / NXDOMAIN
+            out.writeBytes(new byte[]{0, 1, 0, (byte) (value != null ? 1 : 0), 0, 0, 0, 0});
+            out.write(query, 12, questionEnd - 12);
+            if (value != null) {
+                byte[] text = value.getBytes(StandardCharsets.US_ASCII);
+                out.writeBytes(new byte[]{(byte) 0xc0, 0x0c, 0, 16, 0, 1, 0, 0, 0, 60});
+                out.write(0);
+                out.write(text.length + 1);
+                out.write(text.length);
+                out.writeBytes(text);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public void close() {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package cn.sslflux;
+
+import cn.sslflux.Utils.DomainUtils;
+import cn.sslflux.Utils.PublicSuffixList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 基于公共后缀列表的域名解析测试
+ * @date 2025/3/26 15:00
+ */
+public class DomainUtilsTest {
+
+    @Test
+    void testMultiLevelPublicSuffix() {
+        assertEquals("example.com.cn", DomainUtils.extractRootDomain("shop.example.com.cn"));
+        assertEquals("example.co.uk", DomainUtils.extractRootDomain("a.b.example.co.uk"));
+        assertEquals("example.com", DomainUtils.extractRootDomain("www.example.com"));
+        assertEquals("example.com", DomainUtils.extractRootDomain("WWW.Example.COM."));
+        // 未收录的顶级域按默认规则处理
+        assertEquals("example.unknowntld", DomainUtils.extractRootDomain("api.example.unknowntld"));
+        // 国际化后缀以 punycode 匹配
+        assertEquals("example.xn--55qx5d.cn", DomainUtils.extractRootDomain("www.example.xn--55qx5d.cn"));
+    }
+
+    @Test
+    void testWildcardAndExceptionRules() {
+        PublicSuffixList psl = PublicSuffixList.getDefault();
+        assertEquals("foo.bar.kawasaki.jp", psl.registrableDomain("www.foo.bar.kawasaki.jp"));
+        assertEquals("city.kawasaki.jp", psl.registrableDomain("www.city.kawasaki.jp"));
+        assertEquals("www.ck", psl.registrableDomain("www.ck"));
+        assertNull(psl.registrableDomain("bar.kawasaki.jp"));
+        assertNull(psl.registrableDomain("com.cn"));
+        // *.sch.uk：学校域名在地区标签下注册
+        assertEquals("school.essex.sch.uk", psl.registrableDomain("www.school.essex.sch.uk"));
+        assertNull(psl.registrableDomain("essex.sch.uk"));
+    }
+
+    @Test
+    void testExtractSubDomain() {
+        assertEquals("_acme-challenge.shop", DomainUtils.extractSubDomain("_acme-challenge.shop.example.com.cn"));
+        assertEquals("@", DomainUtils.extractSubDomain("example.com"));
+        // 子域名中包含根域名字符串时不应被误替换
+        assertEquals("example.com.cdn", DomainUtils.extractSubDomain("example.com.cdn.example.com", "example.com"));
+        assertThrows(IllegalArgumentException.class,
+                () -> DomainUtils.extractSubDomain("badexample.com", "example.com"));
+    }
+
+    @Test
+    void testAuthoritativeZonesPreferred() {
+        Set<String> zones = Set.of("example.com", "dev.example.com");
+        assertEquals("dev.example.com", DomainUtils.extractRootDomain("api.dev.example.com", zones));
+        assertEquals("example.com", DomainUtils.extractRootDomain("www.example.com", zones));
+        assertEquals("other.com.cn", DomainUtils.extractRootDomain("www.other.com.cn", zones));
+        assertNull(DomainUtils.findZone("www.other.net", zones));
+    }
+}
@@ -0,0 +1,136 @@
+package cn.sslflux;
+
+import cn.sslflux.Utils.CertUtils;
+import cn.sslflux.Utils.PemCodec;
+import cn.sslflux.certManager.model.KeyAlgorithm;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.bouncycastle.util.io.pem.PemWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: PEM编解码测试（与BouncyCastle输出一致、各长度余数、流式写入、链缓存与容错解析）
+ * @date 2025/3/31 11:00
+ */
+public class PemCodecTest {
+
+    @Test
+    void testEncodeMatchesPemWriter() throws Exception {
+        Random random = new Random(42);
+        // 覆盖 0~2 字节余数与整行边界
+        for (int length : new int[]{0, 1, 2, 3, 47, 48, 49, 95, 96, 97, 1234}) {
+            byte[] content = new byte[length];
+            random.nextBytes(content);
+
+            StringWriter sw = new StringWriter();
+            try (PemWriter pw = new PemWriter(sw)) {
+                pw.writeObject(new PemObject("CERTIFICATE", content));
+            }
+            String expected = sw.toString().replace(System.lineSeparator(), "\n");
+
+            assertEquals(expected, new String(PemCodec.encode("CERTIFICATE", content), StandardCharsets.US_ASCII),
+                    "长度 " + length);
+            assertArrayEquals(content, PemCodec.decodeFirst(expected, "CERTIFICATE"), "长度 " + length);
+        }
+    }
+
+    @Test
+    void testStreamEncodeMatchesArrayEncode() throws Exception {
+        byte[] content = new byte[5000];
+        new Random(7).nextBytes(content);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PemCodec.encode(PemCodec.PRIVATE_KEY, content, out);
+
+        assertArrayEquals(PemCodec.encode(PemCodec.PRIVATE_KEY, content), out.toByteArray());
+    }
+
+    @Test
+    void testChainEncodingCachedAndDecodable() throws Exception {
+        List<X509Certificate> chain = List.of(selfSigned("CN=leaf.test"), selfSigned("CN=issuer.test"));
+
+        byte[] first = CertUtils.fullChainPemBytes(chain);
+        // 同一证书链（即使是不同的List实例）命中缓存
+        assertSame(first, CertUtils.fullChainPemBytes(List.copyOf(chain)));
+        assertNotSame(first, PemCodec.encodeChain(chain));
+        assertArrayEquals(first, PemCodec.encodeChain(chain));
+
+        List<PemCodec.PemBlock> blocks = PemCodec.decode(new String(first, StandardCharsets.US_ASCII));
+        assertEquals(2, blocks.size());
+        assertArrayEquals(chain.get(0).getEncoded(), blocks.get(0).content());
+        assertArrayEquals(chain.get(1).getEncoded(), blocks.get(1).content());
+    }
+
+    @Test
+    void testParseTolerantInput() throws Exception {
+        X509Certificate cert = selfSigned("CN=flat.test");
+        String pem = CertUtils.generateFullChainPem(List.of(cert));
+        String base64 = pem.replace("-----BEGIN CERTIFICATE-----", "")
+                .replace("-----END CERTIFICATE-----", "")
+                .replace("\n", "");
+
+        // 单行PEM、CRLF换行、纯Base64
+        assertEquals(cert, CertUtils.parseCertificate("-----BEGIN CERTIFICATE-----" + base64 + "-----END CERTIFICATE-----"));
+        assertEquals(cert, CertUtils.parseCertificate(pem.replace("\n", "\r\n")));
+        assertEquals(cert, CertUtils.parseCertificate(base64));
+        assertEquals(pem, CertUtils.normalizeCert(base64));
+        // 前面有私钥块时只取证书块
+        KeyPair keyPair = KeyAlgorithm.EC_P256.generate();
+        assertEquals(cert, CertUtils.parseCertificate(CertUtils.generatePrivateKeyPem(keyPair.getPrivate()) + pem));
+    }
+
+    @Test
+    void testMalformedPemRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PemCodec.decodeFirst("-----BEGIN CERTIFICATE-----\nAB*C\n-----END CERTIFICATE-----\n", "CERTIFICATE"));
+        assertThrows(IllegalArgumentException.class,
+                () -> PemCodec.decodeFirst("-----BEGIN CERTIFICATE-----\nABCD\n", "CERTIFICATE"));
+        assertThrows(IllegalArgumentException.class,
+                () -> PemCodec.decodeFirst("-----BEGIN PUBLIC KEY-----\nABCD\n-----END PUBLIC KEY-----\n", "CERTIFICATE"));
+    }
+
+    @Test
+    void testKeyPairPemRoundTrip() throws Exception {
+        KeyPair keyPair = KeyAlgorithm.EC_P256.generate();
+
+        KeyPair parsed = CertUtils.parseKeyPair(CertUtils.generateKeyPairPem(keyPair));
+
+        assertArrayEquals(keyPair.getPrivate().getEncoded(), parsed.getPrivate().getEncoded());
+        assertArrayEquals(keyPair.getPublic().getEncoded(), parsed.getPublic().getEncoded());
+    }
+
+    private static X509Certificate selfSigned(String dn) throws Exception {
+        KeyPair keyPair = KeyAlgorithm.EC_P256.generate();
+        X500Name subject = new X500Name(dn);
+        return new JcaX509CertificateConverter().getCertificate(
+                new JcaX509v3CertificateBuilder(
+                        subject,
+                        BigInteger.valueOf(System.nanoTime()),
+                        new Date(System.currentTimeMillis() - 86400000L),
+                        new Date(System.currentTimeMillis() + 86400000L),
+                        subject,
+                        keyPair.getPublic()
+                ).build(new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate())));
+    }
+}
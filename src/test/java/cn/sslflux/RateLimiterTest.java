@@ -0,0 +1,187 @@
+package cn.sslflux;
+
+import cn.sslflux.rateLimit.AdaptiveConcurrencyLimiter;
+import cn.sslflux.rateLimit.RateLimitProperties;
+import cn.sslflux.rateLimit.RateLimiterRegistry;
+import cn.sslflux.rateLimit.ThrottleDetector;
+import cn.sslflux.rateLimit.TokenBucket;
+import com.aliyun.sdk.gateway.pop.exception.PopClientException;
+import com.aliyun.sdk.gateway.pop.exception.PopServerException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 令牌桶与自适应并发限流测试
+ * @date 2025/3/26 11:00
+ */
+public class RateLimiterTest {
+
+    @Test
+    void testTokenBucketAllowsBurstThenThrottles() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(20, 5, now::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire());
+        }
+
+        // 突发耗尽后按 20 QPS 发放，每 50ms 一个令牌
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), bucket.tryAcquire());
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(30), bucket.tryAcquire());
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(30));
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+    }
+
+    @Test
+    void testTokenBucketPauseDelaysRefill() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(1000, 10, now::get);
+
+        bucket.pause(Duration.ofSeconds(2));
+
+        // 暂停期间即使令牌已补充也不发放
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.tryAcquire());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    void testTokenBucketWithNegativeClockOrigin() {
+        // System.nanoTime 的起点任意，可能为负数
+        AtomicLong now = new AtomicLong(Long.MIN_VALUE / 2);
+        TokenBucket bucket = new TokenBucket(20, 1, now::get);
+
+        assertEquals(0, bucket.tryAcquire());
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, bucket.tryAcquire());
+
+        bucket.pause(Duration.ofMillis(100));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    void testAimdHalvesOnThrottleAndRecovers() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 8);
+        assertEquals(8, limiter.getLimit());
+
+        limiter.acquire();
+        limiter.release(true);
+        assertEquals(4, limiter.getLimit());
+        limiter.acquire();
+        limiter.release(true);
+        assertEquals(2, limiter.getLimit());
+
+        // 加性恢复：每个完整窗口约+1
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+            limiter.release(false);
+        }
+        assertTrue(limiter.getLimit() > 2 && limiter.getLimit() <= 8);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testThrottleDetection() {
+        assertTrue(ThrottleDetector.isThrottled(
+                new PopClientException("Throttling.User", "Request was denied due to user flow control.", "1A2B")));
+        assertTrue(ThrottleDetector.isThrottled(new CompletionException(
+                new PopServerException("Throttling", "Request was denied due to flow control.", "3C4D"))));
+        // 请求ID中的十六进制片段、域名或记录值中出现 429、Throttling 字样都不是限流
+        assertFalse(ThrottleDetector.isThrottled(new PopClientException("InvalidDomainName.NoExist",
+                "The specified domain name does not exist.", "5E2D7C1A-1A429F3B-4C0E-9A2D-61B0C7D42F11")));
+        assertFalse(ThrottleDetector.isThrottled(new IllegalStateException("HTTP 429 Too Many Requests")));
+        assertFalse(ThrottleDetector.isThrottled(new RuntimeException("record Throttling.example.com not found")));
+    }
+
+    @Test
+    void testRegistryBacksOffOnThrottling() throws Exception {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getProviders().put("test", new RateLimitProperties.Limit(1000.0, 100, 8, 1, new HashMap<>()));
+        RateLimiterRegistry registry = new RateLimiterRegistry(properties);
+
+        assertEquals("ok", registry.call("test", "api", () -> "ok"));
+        assertEquals(8, registry.currentLimit("test", "api"));
+
+        assertThrows(PopClientException.class, () -> registry.call("test", "api", () -> {
+            throw new PopClientException("Throttling.User", "Request was denied due to user flow control.", "1A2B");
+        }));
+        assertEquals(4, registry.currentLimit("test", "api"));
+
+        // 普通错误不影响并发上限
+        assertThrows(PopClientException.class, () -> registry.call("test", "api", () -> {
+            throw new PopClientException("InvalidParameter", "The parameter is invalid.", "429A");
+        }));
+        assertEquals(4, registry.currentLimit("test", "api"));
+        // 其他接口互不影响
+        assertEquals(8, registry.currentLimit("test", "other"));
+    }
+
+    @Test
+    void testCallAsyncQueuesWithoutBlocking() throws Exception {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getProviders().put("test", new RateLimitProperties.Limit(1000.0, 100, 1, 1, new HashMap<>()));
+        RateLimiterRegistry registry = new RateLimiterRegistry(properties);
+
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> firstCall = registry.callAsync("test", "api", () -> first);
+        // 并发名额已满，第二次调用立即返回未完成的Future，不阻塞调用线程
+        CompletableFuture<String> secondCall = registry.callAsync("test", "api",
+                () -> CompletableFuture.completedFuture("second"));
+        assertFalse(secondCall.isDone());
+
+        first.complete("first");
+        assertEquals("first", firstCall.get(1, TimeUnit.SECONDS));
+        assertEquals("second", secondCall.get(1, TimeUnit.SECONDS));
+        registry.shutdown();
+    }
+
+    @Test
+    void testCallAsyncReportsSupplierFailureThroughFuture() throws Exception {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getProviders().put("test", new RateLimitProperties.Limit(1000.0, 100, 1, 1, new HashMap<>()));
+        RateLimiterRegistry registry = new RateLimiterRegistry(properties);
+
+        CompletableFuture<String> failed = registry.callAsync("test", "api", () -> {
+            throw new IllegalArgumentException("bad request");
+        });
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        // 失败后名额已归还
+        assertEquals("ok", registry.callAsync("test", "api", () -> CompletableFuture.completedFuture("ok"))
+                .get(1, TimeUnit.SECONDS));
+        registry.shutdown();
+    }
+
+    @Test
+    void testEndpointOverridesProvider() {
+        RateLimitProperties properties = new RateLimitProperties();
+        RateLimitProperties.Limit provider = new RateLimitProperties.Limit(10.0, null, 6, null, new HashMap<>());
+        provider.getEndpoints().put("new-order", new RateLimitProperties.Limit(2.0, null, null, null, new HashMap<>()));
+        properties.getProviders().put("acme", provider);
+
+        RateLimitProperties.Limit resolved = properties.resolve("acme", "new-order");
+        assertEquals(2.0, resolved.getQps());
+        assertEquals(6, resolved.getMaxConcurrency().intValue());
+        assertEquals(10, resolved.getBurst().intValue());
+        assertEquals(1, resolved.getMinConcurrency().intValue());
+    }
+}
@@ -0,0 +1,170 @@
+package cn.sslflux;
+
+import cn.sslflux.acmeClient.model.CertificatePlan;
+import cn.sslflux.certManager.model.KeyAlgorithm;
+import cn.sslflux.jobStore.KeyPairCipher;
+import cn.sslflux.jobStore.RenewalJobMapper;
+import cn.sslflux.jobStore.RenewalJobStore;
+import cn.sslflux.jobStore.model.JobState;
+import cn.sslflux.jobStore.model.RenewalJob;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期任务存储与状态转换测试（H2内存库）
+ * @date 2025/3/27 11:00
+ */
+public class RenewalJobStoreTest {
+
+    private SqlSession session;
+    private RenewalJobMapper mapper;
+    private RenewalJobStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        session = TestDatabase.open(RenewalJobMapper.class);
+        mapper = session.getMapper(RenewalJobMapper.class);
+        store = new RenewalJobStore(mapper, new KeyPairCipher(new SecretKeySpec(new byte[32], "AES")),
+                3, Duration.ofMinutes(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        session.close();
+    }
+
+    @Test
+    void testOpenReusesUnfinishedJob() {
+        RenewalJob job = store.open(plan("a.example.com", "b.example.com"));
+        assertEquals(JobState.PENDING, job.getState());
+
+        // 标识顺序不同视为同一计划
+        RenewalJob again = store.open(plan("b.example.com", "a.example.com"));
+        assertEquals(job.getId(), again.getId());
+
+        job.setOrderUrl("https://acme.test/order/1");
+        store.advance(job, JobState.ORDERED);
+        RenewalJob loaded = mapper.findById(job.getId());
+        assertEquals(JobState.ORDERED, loaded.getState());
+        assertEquals("https://acme.test/order/1", loaded.getOrderUrl());
+        assertEquals(List.of("a.example.com", "b.example.com"), RenewalJobStore.toPlan(loaded).getIdentifiers());
+    }
+
+    @Test
+    void testOpenRejectsRegroupedOverlap() {
+        RenewalJob job = store.open(plan("a.example.com", "b.example.com"));
+
+        // 重新分组后与未结束任务共用部署目标
+        assertThrows(IllegalStateException.class, () -> store.open(plan("b.example.com", "c.example.com")));
+        assertEquals(job.getId(), store.findUnfinishedByTarget().get("b.example.com").getId());
+        // 不重叠的计划正常创建
+        assertNotEquals(job.getId(), store.open(plan("c.example.com")).getId());
+        assertEquals(2, store.findUnfinished().size());
+    }
+
+    @Test
+    void testResumeFromLastCompletedStep() throws Exception {
+        RenewalJob job = store.open(plan("www.example.com"));
+        job.setOrderUrl("https://acme.test/order/2");
+        store.advance(job, JobState.ORDERED);
+        store.advance(job, JobState.AUTHORIZED);
+        KeyPair keyPair = KeyAlgorithm.EC_P256.generate();
+        store.saveKeyPair(job, keyPair);
+        // 库中不保存明文私钥
+        assertFalse(mapper.findById(job.getId()).getKeyPairPem().contains("PRIVATE KEY"));
+
+        // 模拟重启：从库中重新读取未完成任务
+        List<RenewalJob> unfinished = store.findUnfinished();
+        assertEquals(1, unfinished.size());
+        RenewalJob resumed = unfinished.get(0);
+        assertEquals(JobState.AUTHORIZED, resumed.getState());
+        assertEquals("https://acme.test/order/2", resumed.getOrderUrl());
+        KeyPair restored = store.loadKeyPair(resumed).orElseThrow();
+        assertArrayEquals(keyPair.getPublic().getEncoded(), restored.getPublic().getEncoded());
+
+        resumed.setCertificateUrl("https://acme.test/cert/2");
+        store.advance(resumed, JobState.ISSUED);
+        store.advance(resumed, JobState.DEPLOYED);
+        assertTrue(store.findUnfinished().isEmpty());
+        // 结束后清除私钥
+        assertNull(mapper.findById(resumed.getId()).getKeyPairPem());
+        // 结束后同一计划创建新任务
+        assertNotEquals(resumed.getId(), store.open(plan("www.example.com")).getId());
+    }
+
+    @Test
+    void testIllegalAndConcurrentTransitionsRejected() {
+        RenewalJob job = store.open(plan("c.example.com"));
+        assertThrows(IllegalStateException.class, () -> store.advance(job, JobState.ISSUED));
+
+        // 另一流程已推进该任务，本地副本的条件更新失败
+        RenewalJob stale = mapper.findById(job.getId());
+        job.setOrderUrl("https://acme.test/order/3");
+        store.advance(job, JobState.ORDERED);
+        stale.setOrderUrl("https://acme.test/order/other");
+        assertThrows(IllegalStateException.class, () -> store.advance(stale, JobState.ORDERED));
+        assertEquals("https://acme.test/order/3", mapper.findById(job.getId()).getOrderUrl());
+
+        // 订单失效退回下单步骤
+        store.resetOrder(job);
+        assertEquals(JobState.PENDING, mapper.findById(job.getId()).getState());
+    }
+
+    @Test
+    void testTakenOverJobRejectsStaleOwner() {
+        RenewalJob job = store.open(plan("e.example.com"));
+        assertTrue(store.claim(job, "node-a"));
+        job.setOrderUrl("https://acme.test/order/5");
+        store.advance(job, JobState.ORDERED);
+
+        // node-a 的任务锁过期后由 node-b 认领，node-a 的后续写入（包括失败记录）不再生效
+        RenewalJob takenOver = mapper.findById(job.getId());
+        assertTrue(store.claim(takenOver, "node-b"));
+        assertThrows(IllegalStateException.class, () -> store.advance(job, JobState.AUTHORIZED));
+        store.recordFailure(job, "授权验证失败");
+        RenewalJob loaded = mapper.findById(job.getId());
+        assertEquals(JobState.ORDERED, loaded.getState());
+        assertEquals(0, loaded.getAttempts());
+
+        store.advance(takenOver, JobState.AUTHORIZED);
+        assertEquals(JobState.AUTHORIZED, mapper.findById(job.getId()).getState());
+    }
+
+    @Test
+    void testFailuresStopAfterMaxAttempts() {
+        RenewalJob job = store.open(plan("d.example.com"));
+        store.recordFailure(job, "授权验证失败");
+        store.recordFailure(job, "授权验证失败");
+        assertEquals(JobState.PENDING, mapper.findById(job.getId()).getState());
+        store.recordFailure(job, "授权验证失败");
+        RenewalJob loaded = mapper.findById(job.getId());
+        assertEquals(JobState.FAILED, loaded.getState());
+        assertEquals(3, loaded.getAttempts());
+        assertEquals("授权验证失败", loaded.getLastError());
+    }
+
+    private static CertificatePlan plan(String... identifiers) {
+        CertificatePlan plan = new CertificatePlan();
+        plan.setRegistrableDomain("example.com");
+        plan.getIdentifiers().addAll(List.of(identifiers));
+        plan.getTargets().addAll(List.of(identifiers));
+        return plan;
+    }
+}
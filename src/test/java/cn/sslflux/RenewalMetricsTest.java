@@ -0,0 +1,108 @@
+package cn.sslflux;
+
+import cn.sslflux.metrics.RenewalMetrics;
+import cn.sslflux.metrics.RenewalMetrics.Stage;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期阶段观测测试
+ * @date 2025/3/29 11:20
+ */
+public class RenewalMetricsTest {
+
+    private final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+
+    private RenewalMetrics metrics() {
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        return new RenewalMetrics(registry, null);
+    }
+
+    @Test
+    void testStageTaggedWithDomainAndOrder() {
+        RenewalMetrics metrics = metrics();
+        Observation renewal = metrics.startRenewal("example.com", 7L);
+        try (Observation.Scope scope = renewal.openScope()) {
+            metrics.tagOrder("https://acme.example/order/1");
+            assertEquals("ok", metrics.observe(Stage.DNS_ADD, "www.example.com", () -> "ok"));
+        } finally {
+            renewal.stop();
+        }
+
+        assertEquals(2, stopped.size());
+        Observation.Context stage = stopped.get(0);
+        assertEquals(RenewalMetrics.STAGE_OBSERVATION, stage.getName());
+        assertEquals("dns-add", stage.getLowCardinalityKeyValue("stage").getValue());
+        assertEquals("success", stage.getLowCardinalityKeyValue("outcome").getValue());
+        assertEquals("www.example.com", stage.getHighCardinalityKeyValue("domain").getValue());
+        // 阶段观测挂在续期任务之下，订单URL记录在任务上
+        assertSame(stopped.get(1), stage.getParentObservation().getContextView());
+        assertEquals("https://acme.example/order/1",
+                stopped.get(1).getHighCardinalityKeyValue("order").getValue());
+    }
+
+    @Test
+    void testFailureRecordedAsError() {
+        RenewalMetrics metrics = metrics();
+        assertThrows(IllegalStateException.class, () -> metrics.observe(Stage.FINALIZE, "example.com", () -> {
+            throw new IllegalStateException("订单完成失败");
+        }));
+
+        Observation.Context context = stopped.get(0);
+        assertEquals("error", context.getLowCardinalityKeyValue("outcome").getValue());
+        assertNotNull(context.getError());
+    }
+
+    @Test
+    void testSyncOutcomeFromResult() {
+        RenewalMetrics metrics = metrics();
+        assertFalse(metrics.observe(Stage.CHALLENGE_VALIDATION, "example.com", () -> false,
+                valid -> valid ? "success" : "failure"));
+        assertNull(metrics.observe(Stage.ORDER_CREATE, "example.com", () -> null, RenewalMetrics::outcomeOf));
+
+        assertEquals("failure", stopped.get(0).getLowCardinalityKeyValue("outcome").getValue());
+        assertEquals("failure", stopped.get(1).getLowCardinalityKeyValue("outcome").getValue());
+        assertNull(stopped.get(0).getError());
+    }
+
+    @Test
+    void testAsyncOutcomeFromResult() {
+        RenewalMetrics metrics = metrics();
+        CompletableFuture<String> probe = new CompletableFuture<>();
+        CompletableFuture<String> observed = metrics.observeAsync(Stage.PROBE, "www.example.com",
+                () -> probe, status -> status);
+        assertTrue(stopped.isEmpty());
+
+        probe.complete("timeout");
+        assertEquals("timeout", observed.join());
+        assertEquals("timeout", stopped.get(0).getLowCardinalityKeyValue("outcome").getValue());
+        assertEquals("probe", stopped.get(0).getLowCardinalityKeyValue("stage").getValue());
+    }
+}
@@ -0,0 +1,100 @@
+package cn.sslflux;
+
+import cn.sslflux.acmeClient.model.CertificateValidityPeriod;
+import cn.sslflux.scheduler.RenewalPlanner;
+import cn.sslflux.scheduler.RenewalQueue;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期时间规划与续期队列测试
+ * @date 2025/3/28 15:30
+ */
+public class RenewalPlannerTest {
+
+    private static final Instant NOW = Instant.parse("2025-03-28T00:00:00Z");
+
+    private final RenewalPlanner planner = new RenewalPlanner(null, null, null,
+            0.6667, 0.05, Duration.ofDays(30), Duration.ofDays(7), Duration.ofHours(2), false, Duration.ofHours(6));
+
+    @Test
+    void testRenewAtTwoThirdsOfLifetimeWithJitter() {
+        Instant notBefore = NOW.minus(Duration.ofDays(10));
+        Instant renewAt = planner.renewalTime(period("www.example.com", notBefore, Duration.ofDays(90)));
+        long offsetHours = Duration.between(notBefore, renewAt).toHours();
+        // 90天证书约在第60天续期，抖动不超过 ±2.25天
+        assertTrue(offsetHours >= 60 * 24 - 54 && offsetHours <= 60 * 24 + 54, "offset " + offsetHours + "h");
+
+        // 同一根域名下的域名续期时间一致，便于合并订单
+        assertEquals(renewAt, planner.renewalTime(period("api.example.com", notBefore, Duration.ofDays(90))));
+        // 不同根域名的续期时间分散
+        boolean spread = false;
+        for (int i = 0; i < 10 && !spread; i++) {
+            spread = !renewAt.equals(planner.renewalTime(period("www.site" + i + ".com", notBefore, Duration.ofDays(90))));
+        }
+        assertTrue(spread);
+    }
+
+    @Test
+    void testFallbackWithoutIssueDate() {
+        CertificateValidityPeriod period = period("www.example.com", null, null);
+        period.setNotAfter(Date.from(NOW.plus(Duration.ofDays(50))));
+        assertEquals(NOW.plus(Duration.ofDays(20)), planner.renewalTime(period));
+    }
+
+    @Test
+    void testScheduleTimeSpreadsOverdueAndKeepsUrgent() {
+        // 未到续期时间：按计划执行
+        CertificateValidityPeriod fresh = period("www.example.com", NOW, Duration.ofDays(90));
+        assertTrue(planner.scheduleTime(fresh, NOW).isAfter(NOW.plus(Duration.ofDays(55))));
+
+        // 没有证书或即将过期：立即执行
+        assertEquals(NOW, planner.scheduleTime(period("new.example.com", null, null), NOW));
+        CertificateValidityPeriod expiring = period("www.example.com", NOW.minus(Duration.ofDays(87)), Duration.ofDays(90));
+        assertEquals(NOW, planner.scheduleTime(expiring, NOW));
+
+        // 已错过续期时间但尚有余量：在分散窗口内执行
+        CertificateValidityPeriod overdue = period("www.example.com", NOW.minus(Duration.ofDays(70)), Duration.ofDays(90));
+        Instant at = planner.scheduleTime(overdue, NOW);
+        assertTrue(!at.isBefore(NOW) && at.isBefore(NOW.plus(Duration.ofHours(2))), "at " + at);
+    }
+
+    @Test
+    void testQueueOrdersByTimeAndCoalescesSiblings() {
+        RenewalQueue queue = new RenewalQueue();
+        queue.schedule("b.other.com", NOW.plusSeconds(60));
+        queue.schedule("a.example.com", NOW.plusSeconds(10));
+        queue.schedule("c.example.com", NOW.plus(Duration.ofHours(5)));
+        queue.schedule("d.third.com", NOW.plus(Duration.ofHours(6)));
+        // 重新排期覆盖旧时间
+        queue.schedule("d.third.com", NOW.plus(Duration.ofHours(3)));
+        assertEquals(4, queue.size());
+
+        assertTrue(queue.pollDue(NOW).isEmpty());
+        // a 到期时同根域名的 c 一并取出
+        assertEquals(List.of("a.example.com", "c.example.com"), queue.pollDue(NOW.plusSeconds(30)));
+        assertEquals(List.of("b.other.com"), queue.pollDue(NOW.plusSeconds(60)));
+        assertEquals(NOW.plus(Duration.ofHours(3)), queue.nextDueAt().orElseThrow());
+        queue.cancel("d.third.com");
+        assertEquals(0, queue.size());
+    }
+
+    private static CertificateValidityPeriod period(String hostname, Instant notBefore, Duration lifetime) {
+        CertificateValidityPeriod period = new CertificateValidityPeriod();
+        period.setHostname(hostname);
+        if (notBefore != null) {
+            period.setNotBefore(Date.from(notBefore));
+            period.setNotAfter(Date.from(notBefore.plus(lifetime)));
+        }
+        return period;
+    }
+}
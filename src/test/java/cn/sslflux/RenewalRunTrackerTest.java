@@ -0,0 +1,95 @@
+package cn.sslflux;
+
+import cn.sslflux.scheduler.RenewalRunTracker;
+import cn.sslflux.scheduler.model.RenewalStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 续期运行状态跟踪测试
+ * @date 2025/3/28 11:30
+ */
+public class RenewalRunTrackerTest {
+
+    @Test
+    void testOverlappingRunsRejected() {
+        RenewalRunTracker tracker = new RenewalRunTracker();
+        tracker.warmupScheduled(new Date());
+        assertEquals(RenewalStatus.Phase.SCHEDULED, tracker.snapshot().getPhase());
+
+        assertTrue(tracker.tryStart("warmup"));
+        assertFalse(tracker.tryStart("cron"));
+        assertEquals("warmup", tracker.snapshot().getTrigger());
+        tracker.finish(null);
+        assertTrue(tracker.tryStart("cron"));
+    }
+
+    @Test
+    void testFirstPassCompleteOnlyAfterSuccess() {
+        RenewalRunTracker tracker = new RenewalRunTracker();
+        assertTrue(tracker.tryStart("warmup"));
+        tracker.finish(new IllegalStateException("CDN接口不可用"));
+        RenewalStatus failed = tracker.snapshot();
+        assertFalse(tracker.isFirstPassComplete());
+        assertFalse(failed.getLastSucceeded());
+        assertNotNull(failed.getLastError());
+        assertNull(failed.getFirstPassCompletedAt());
+
+        assertTrue(tracker.tryStart("cron"));
+        tracker.finish(null);
+        tracker.dispatchSettled(Optional.empty());
+        assertTrue(tracker.isFirstPassComplete());
+        assertEquals(2, tracker.snapshot().getCompletedPasses());
+        assertEquals(RenewalStatus.Phase.IDLE, tracker.snapshot().getPhase());
+    }
+
+    @Test
+    void testFirstPassCompleteAfterDueRenewalsDispatched() {
+        RenewalRunTracker tracker = new RenewalRunTracker();
+        // 派发早于首轮结束时不算完成
+        tracker.dispatchSettled(Optional.empty());
+        assertTrue(tracker.tryStart("warmup"));
+        tracker.finish(null);
+        assertFalse(tracker.isFirstPassComplete());
+
+        // 首轮结束前到期的续期仍在队列中
+        tracker.dispatchSettled(Optional.of(Instant.now().minusSeconds(60)));
+        assertFalse(tracker.isFirstPassComplete());
+
+        // 只剩之后才到期的续期
+        tracker.dispatchSettled(Optional.of(Instant.now().plusSeconds(3600)));
+        assertTrue(tracker.isFirstPassComplete());
+    }
+
+    @Test
+    void testStandbyNode() {
+        RenewalRunTracker tracker = new RenewalRunTracker();
+        tracker.standby();
+        RenewalStatus standby = tracker.snapshot();
+        assertEquals(RenewalStatus.Phase.STANDBY, standby.getPhase());
+        assertNull(standby.getFirstPassCompletedAt());
+
+        // 运行中的一轮不被覆盖
+        assertTrue(tracker.tryStart("warmup"));
+        tracker.standby();
+        assertEquals(RenewalStatus.Phase.RUNNING, tracker.snapshot().getPhase());
+        tracker.finish(null);
+
+        // 重新成为协调者后的派发恢复为空闲
+        tracker.standby();
+        tracker.dispatchSettled(Optional.empty());
+        assertEquals(RenewalStatus.Phase.IDLE, tracker.snapshot().getPhase());
+        assertTrue(tracker.isFirstPassComplete());
+    }
+}
@@ -0,0 +1,51 @@
+package cn.sslflux;
+
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: 测试用数据库：每次创建独立的H2内存库（MySQL模式），执行与生产相同的 schema.sql
+ * @date 2025/3/27 17:00
+ */
+final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    /**
+     * 新建内存库并打开自动提交的会话
+     *
+     * @param mappers 需要注册的Mapper
+     */
+    static SqlSession open(Class<?>... mappers) throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement();
+             InputStream in = TestDatabase.class.getResourceAsStream("/schema.sql")) {
+            for (String sql : new String(in.readAllBytes(), StandardCharsets.UTF_8).split(";")) {
+                if (!sql.isBlank()) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+        Configuration configuration = new Configuration(
+                new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        for (Class<?> mapper : mappers) {
+            configuration.addMapper(mapper);
+        }
+        return new SqlSessionFactoryBuilder().build(configuration).openSession(true);
+    }
+}
@@ -0,0 +1,143 @@
+package cn.sslflux;
+
+import cn.sslflux.acmeClient.core.TlsExpiryProber;
+import cn.sslflux.acmeClient.model.CertificateValidityPeriod;
+import cn.sslflux.acmeClient.model.ProbeStatus;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.shredzone.acme4j.util.KeyPairUtils;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyg
+ * @version 1.0
+ * @description: TLS探测器测试，使用本地TLS服务代替真实域名
+ * @date 2025/3/22 17:20
+ */
+public class TlsExpiryProberTest {
+
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    private TlsExpiryProber prober;
+    private X509Certificate serverCert;
+    private SSLServerSocket tlsServer;
+    private ServerSocket silentServer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        prober = new TlsExpiryProber(Duration.ofSeconds(2), Duration.ofMillis(500), 4);
+
+        KeyPair keyPair = KeyPairUtils.createKeyPair(2048);
+        X500Name subject = new X500Name("CN=localhost");
+        serverCert = new JcaX509CertificateConverter().getCertificate(
+                new JcaX509v3CertificateBuilder(
+                        subject,
+                        BigInteger.valueOf(System.currentTimeMillis()),
+                        new Date(System.currentTimeMillis() - 86400000L),
+                        new Date(System.currentTimeMillis() + 30L * 86400000),
+                        subject,
+                        keyPair.getPublic()
+                ).build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+
+        KeyStore ks = KeyStore.getInstance("PKCS12");
+        ks.load(null, null);
+        ks.setKeyEntry("server", keyPair.getPrivate(), PASSWORD, new Certificate[]{serverCert});
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(ks, PASSWORD);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), null, null);
+
+        tlsServer = (SSLServerSocket) context.getServerSocketFactory().createServerSocket(0);
+        startAcceptLoop(tlsServer, true);
+
+        // 只接受连接不响应握手，模拟卡死的节点
+        silentServer = new ServerSocket(0);
+        startAcceptLoop(silentServer, false);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        prober.shutdown();
+        tlsServer.close();
+        silentServer.close();
+    }
+
+    @Test
+    void testProbeSuccess() {
+        CertificateValidityPeriod result = prober.probe("localhost", tlsServer.getLocalPort());
+
+        assertEquals(ProbeStatus.SUCCESS, result.getProbeStatus());
+        assertEquals(serverCert.getNotAfter(), result.getNotAfter());
+        assertEquals(serverCert.getNotBefore(), result.getNotBefore());
+    }
+
+    @Test
+    void testProbeHandshakeTimeout() {
+        CertificateValidityPeriod result = prober.probe("localhost", silentServer.getLocalPort());
+
+        assertEquals(ProbeStatus.TIMEOUT, result.getProbeStatus());
+        assertNull(result.getNotAfter());
+        assertTrue(result.getProbeMillis() < 2000, "握手超时应在截止时间附近返回");
+    }
+
+    @Test
+    void testProbeRefused() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        CertificateValidityPeriod result = prober.probe("localhost", closedPort);
+
+        assertEquals(ProbeStatus.REFUSED, result.getProbeStatus());
+    }
+
+    @Test
+    void testProbeAllKeepsOrder() {
+        List<CertificateValidityPeriod> results = prober.probeAll(List.of("localhost", "unresolvable.invalid"));
+
+        assertEquals("localhost", results.get(0).getHostname());
+        assertEquals(ProbeStatus.UNKNOWN_HOST, results.get(1).getProbeStatus());
+    }
+
+    private void startAcceptLoop(ServerSocket server, boolean handshake) {
+        Thread thread = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    if (handshake) {
+                        ((SSLSocket) socket).startHandshake();
+                        socket.close();
+                    }
+                } catch (IOException ignored) {
+                    // 服务关闭或握手中断
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+}